@@ -17,6 +17,9 @@ export default function ApplicationsPage() {
   const [mounted, setMounted] = useState(false)
   const [loading, setLoading] = useState(true)
   const [applications, setApplications] = useState<any[]>([])
+  const [nextCursor, setNextCursor] = useState<string | null>(null)
+  const [loadingMore, setLoadingMore] = useState(false)
+  const [stats, setStats] = useState<any>({})
   const [searchValue, setSearchValue] = useState('')
   const [statusFilter, setStatusFilter] = useState('all')
 
@@ -29,31 +32,65 @@ export default function ApplicationsPage() {
       return
     }
 
-    fetchApplications()
+    // Totals come from the backend's counters, not from the rows loaded so far
+    fetchStats()
   }, [router])
 
+  // The status filter runs on the backend, so a new filter starts again from the first page
+  useEffect(() => {
+    if (authAPI.getCurrentAdmin()) {
+      fetchApplications()
+    }
+  }, [statusFilter])
+
+  const statusParam = () => (statusFilter === 'all' ? undefined : statusFilter)
+
+  const fetchStats = async () => {
+    try {
+      setStats(await adminAPI.getSystemStats())
+    } catch (error) {
+      console.error('Failed to fetch application totals:', error)
+    }
+  }
+
   const fetchApplications = async () => {
     try {
       setLoading(true)
-      const data = await adminAPI.getAllApplications()
-      setApplications(Array.isArray(data) ? data : [])
+      const page = await adminAPI.getAllApplications({ status: statusParam() })
+      setApplications(page.items)
+      setNextCursor(page.nextCursor)
     } catch (error) {
       console.error('Failed to fetch applications:', error)
       setApplications([])
+      setNextCursor(null)
     } finally {
       setLoading(false)
     }
   }
 
+  const loadMore = async () => {
+    if (!nextCursor) return
+    try {
+      setLoadingMore(true)
+      const page = await adminAPI.getAllApplications({ status: statusParam(), startAfter: nextCursor })
+      setApplications((loaded) => [...loaded, ...page.items])
+      setNextCursor(page.nextCursor)
+    } catch (error) {
+      console.error('Failed to load more applications:', error)
+    } finally {
+      setLoadingMore(false)
+    }
+  }
+
   if (!mounted) return null
 
-  const filteredApplications = applications.filter((app) => {
-    const matchesSearch = 
-      app.trackingId?.toLowerCase().includes(searchValue.toLowerCase()) ||
-      app.applicantName?.toLowerCase().includes(searchValue.toLowerCase())
-    const matchesStatus = statusFilter === 'all' || app.status === statusFilter
-    return matchesSearch && matchesStatus
-  })
+  const byStatus = stats.applicationsByStatus || {}
+
+  // Search only looks at the pages loaded so far
+  const filteredApplications = applications.filter((app) =>
+    app.trackingId?.toLowerCase().includes(searchValue.toLowerCase()) ||
+    app.applicantName?.toLowerCase().includes(searchValue.toLowerCase())
+  )
 
   return (
     <div className="flex h-screen bg-gray-50">
@@ -85,24 +122,24 @@ export default function ApplicationsPage() {
                 <div className="grid grid-cols-2 md:grid-cols-4 gap-4">
                   <div className="bg-white rounded-lg border p-4">
                     <p className="text-sm text-gray-600">Total</p>
-                    <p className="text-2xl font-bold text-gray-900">{applications.length}</p>
+                    <p className="text-2xl font-bold text-gray-900">{stats.totalApplications ?? 0}</p>
                   </div>
                   <div className="bg-blue-50 rounded-lg border border-blue-200 p-4">
                     <p className="text-sm text-blue-600">Submitted</p>
                     <p className="text-2xl font-bold text-blue-900">
-                      {applications.filter(a => a.status === 'submitted').length}
+                      {byStatus.submitted ?? 0}
                     </p>
                   </div>
                   <div className="bg-yellow-50 rounded-lg border border-yellow-200 p-4">
                     <p className="text-sm text-yellow-600">Under Review</p>
                     <p className="text-2xl font-bold text-yellow-900">
-                      {applications.filter(a => a.status === 'under_review').length}
+                      {byStatus.under_review ?? 0}
                     </p>
                   </div>
                   <div className="bg-green-50 rounded-lg border border-green-200 p-4">
                     <p className="text-sm text-green-600">Approved</p>
                     <p className="text-2xl font-bold text-green-900">
-                      {applications.filter(a => a.status === 'approved').length}
+                      {byStatus.approved ?? 0}
                     </p>
                   </div>
                 </div>
@@ -137,7 +174,7 @@ export default function ApplicationsPage() {
             <div className="bg-white rounded-lg border">
               <div className="p-4 border-b">
                 <h2 className="font-semibold text-gray-900">
-                  {filteredApplications.length} Application{filteredApplications.length !== 1 ? 's' : ''} Found
+                  Showing {filteredApplications.length} Application{filteredApplications.length !== 1 ? 's' : ''}
                 </h2>
               </div>
 
@@ -167,6 +204,14 @@ export default function ApplicationsPage() {
                   </div>
                   ))}
                 </div>
+
+                {nextCursor && (
+                  <div className="p-4 border-t text-center">
+                    <Button variant="outline" onClick={loadMore} disabled={loadingMore}>
+                      {loadingMore ? 'Loading...' : 'Load more'}
+                    </Button>
+                  </div>
+                )}
               </div>
               </>
             )}
@@ -18,6 +18,9 @@ export default function CitizensPage() {
   const [mounted, setMounted] = useState(false)
   const [loading, setLoading] = useState(true)
   const [citizens, setCitizens] = useState<any[]>([])
+  const [nextCursor, setNextCursor] = useState<string | null>(null)
+  const [loadingMore, setLoadingMore] = useState(false)
+  const [stats, setStats] = useState<any>({})
   const [searchValue, setSearchValue] = useState('')
   const [statusFilter, setStatusFilter] = useState('all')
 
@@ -31,33 +34,64 @@ export default function CitizensPage() {
       return
     }
 
-    // Fetch citizens from backend
-    fetchCitizens()
+    // Totals come from the backend's counters, not from the rows loaded so far
+    fetchStats()
   }, [router])
 
+  // The status filter runs on the backend, so a new filter starts again from the first page
+  useEffect(() => {
+    if (authAPI.getCurrentAdmin()) {
+      fetchCitizens()
+    }
+  }, [statusFilter])
+
+  const statusParam = () => (statusFilter === 'all' ? undefined : statusFilter)
+
+  const fetchStats = async () => {
+    try {
+      setStats(await adminAPI.getSystemStats())
+    } catch (error) {
+      console.error('Failed to fetch citizen totals:', error)
+    }
+  }
+
   const fetchCitizens = async () => {
     try {
       setLoading(true)
-      const data = await adminAPI.getAllCitizens()
-      setCitizens(Array.isArray(data) ? data : [])
+      const page = await adminAPI.getAllCitizens({ status: statusParam() })
+      setCitizens(page.items)
+      setNextCursor(page.nextCursor)
     } catch (error) {
       console.error('Failed to fetch citizens:', error)
       setCitizens([])
+      setNextCursor(null)
     } finally {
       setLoading(false)
     }
   }
 
+  const loadMore = async () => {
+    if (!nextCursor) return
+    try {
+      setLoadingMore(true)
+      const page = await adminAPI.getAllCitizens({ status: statusParam(), startAfter: nextCursor })
+      setCitizens((loaded) => [...loaded, ...page.items])
+      setNextCursor(page.nextCursor)
+    } catch (error) {
+      console.error('Failed to load more citizens:', error)
+    } finally {
+      setLoadingMore(false)
+    }
+  }
+
   if (!mounted) return null
 
-  const filteredCitizens = citizens.filter((citizen) => {
-    const matchesSearch = 
-      citizen.name?.toLowerCase().includes(searchValue.toLowerCase()) ||
-      citizen.email?.toLowerCase().includes(searchValue.toLowerCase()) ||
-      citizen.phone?.includes(searchValue)
-    const matchesStatus = statusFilter === 'all' || citizen.status === statusFilter
-    return matchesSearch && matchesStatus
-  })
+  // Search only looks at the pages loaded so far
+  const filteredCitizens = citizens.filter((citizen) =>
+    citizen.name?.toLowerCase().includes(searchValue.toLowerCase()) ||
+    citizen.email?.toLowerCase().includes(searchValue.toLowerCase()) ||
+    citizen.phone?.includes(searchValue)
+  )
 
   const handleToggleStatus = async (citizenId: string, currentStatus: string) => {
     const newStatus = currentStatus === 'blocked' ? 'active' : 'blocked'
@@ -65,7 +99,9 @@ export default function CitizensPage() {
     try {
       await adminAPI.updateCitizenStatus(citizenId, newStatus)
       alert(`Citizen ${newStatus === 'blocked' ? 'blocked' : 'unblocked'} successfully!`)
-      fetchCitizens() // Refresh list
+      // Update the row in place so the loaded pages are kept
+      setCitizens((loaded) => loaded.map((c) => (c.id === citizenId ? { ...c, status: newStatus } : c)))
+      fetchStats()
     } catch (error) {
       console.error('Failed to update citizen status:', error)
       alert('Failed to update citizen status')
@@ -99,24 +135,24 @@ export default function CitizensPage() {
                 <div className="grid grid-cols-2 md:grid-cols-4 gap-4">
                   <div className="bg-white rounded-lg border p-4">
                     <p className="text-sm text-gray-600">Total Citizens</p>
-                    <p className="text-2xl font-bold text-gray-900">{citizens.length}</p>
+                    <p className="text-2xl font-bold text-gray-900">{stats.totalCitizens ?? 0}</p>
                   </div>
                   <div className="bg-green-50 rounded-lg border border-green-200 p-4">
                     <p className="text-sm text-green-600">Active</p>
                     <p className="text-2xl font-bold text-green-900">
-                      {citizens.filter(c => c.status === 'active').length}
+                      {stats.activeCitizens ?? 0}
                     </p>
                   </div>
                   <div className="bg-red-50 rounded-lg border border-red-200 p-4">
                     <p className="text-sm text-red-600">Blocked</p>
                     <p className="text-2xl font-bold text-red-900">
-                      {citizens.filter(c => c.status === 'blocked').length}
+                      {stats.blockedCitizens ?? 0}
                     </p>
                   </div>
                   <div className="bg-blue-50 rounded-lg border border-blue-200 p-4">
                     <p className="text-sm text-blue-600">Total Applications</p>
                     <p className="text-2xl font-bold text-blue-900">
-                      {citizens.reduce((sum, c) => sum + (c.totalApplications || 0), 0)}
+                      {stats.totalApplications ?? 0}
                     </p>
                   </div>
                 </div>
@@ -148,7 +184,7 @@ export default function CitizensPage() {
             <div className="bg-white rounded-lg border">
               <div className="p-4 border-b">
                 <h2 className="font-semibold text-gray-900">
-                  {filteredCitizens.length} Citizen{filteredCitizens.length !== 1 ? 's' : ''} Found
+                  Showing {filteredCitizens.length} Citizen{filteredCitizens.length !== 1 ? 's' : ''}
                 </h2>
               </div>
 
@@ -223,6 +259,14 @@ export default function CitizensPage() {
                   </tbody>
                 </table>
               </div>
+
+              {nextCursor && (
+                <div className="p-4 border-t text-center">
+                  <Button variant="outline" onClick={loadMore} disabled={loadingMore}>
+                    {loadingMore ? 'Loading...' : 'Load more'}
+                  </Button>
+                </div>
+              )}
             </div>
               </>
             )}
@@ -143,6 +143,7 @@ export default function AddOfficerPage() {
                       <SelectItem value="Revenue">Revenue</SelectItem>
                       <SelectItem value="Transport">Transport</SelectItem>
                       <SelectItem value="Utility">Utility</SelectItem>
+                      <SelectItem value="Police">Police</SelectItem>
                       <SelectItem value="General">General</SelectItem>
                     </SelectContent>
                   </Select>
@@ -17,6 +17,9 @@ export default function ComplaintsPage() {
   const [mounted, setMounted] = useState(false)
   const [loading, setLoading] = useState(true)
   const [complaints, setComplaints] = useState<any[]>([])
+  const [nextCursor, setNextCursor] = useState<string | null>(null)
+  const [loadingMore, setLoadingMore] = useState(false)
+  const [counters, setCounters] = useState<any>({})
   const [searchValue, setSearchValue] = useState('')
   const [statusFilter, setStatusFilter] = useState('all')
 
@@ -30,37 +33,71 @@ export default function ComplaintsPage() {
       return
     }
 
-    // Fetch complaints from backend
-    fetchComplaints()
+    // Totals come from the backend's counters, not from the rows loaded so far
+    fetchCounters()
   }, [router])
 
+  // The status filter runs on the backend, so a new filter starts again from the first page
+  useEffect(() => {
+    if (authAPI.getCurrentOfficer()) {
+      fetchComplaints()
+    }
+  }, [statusFilter])
+
+  const statusParam = () => (statusFilter === 'all' ? undefined : statusFilter)
+
+  const fetchCounters = async () => {
+    try {
+      setCounters(await officerAPI.getStatusCounters())
+    } catch (error) {
+      console.error('Failed to fetch complaint totals:', error)
+    }
+  }
+
   const fetchComplaints = async () => {
     try {
       setLoading(true)
-      const data = await officerAPI.getComplaints()
-      setComplaints(Array.isArray(data) ? data : [])
+      const page = await officerAPI.getComplaints({ status: statusParam() })
+      setComplaints(page.items)
+      setNextCursor(page.nextCursor)
     } catch (error) {
       console.error('Failed to fetch complaints:', error)
       setComplaints([])
+      setNextCursor(null)
     } finally {
       setLoading(false)
     }
   }
 
+  const loadMore = async () => {
+    if (!nextCursor) return
+    try {
+      setLoadingMore(true)
+      const page = await officerAPI.getComplaints({ status: statusParam(), startAfter: nextCursor })
+      setComplaints((loaded) => [...loaded, ...page.items])
+      setNextCursor(page.nextCursor)
+    } catch (error) {
+      console.error('Failed to load more complaints:', error)
+    } finally {
+      setLoadingMore(false)
+    }
+  }
+
   if (!mounted) return null
 
-  const filteredComplaints = complaints.filter((complaint) => {
-    const matchesSearch = 
-      complaint.trackingId.toLowerCase().includes(searchValue.toLowerCase()) ||
-      complaint.submittedBy.toLowerCase().includes(searchValue.toLowerCase())
-    const matchesStatus = statusFilter === 'all' || complaint.status === statusFilter
-    return matchesSearch && matchesStatus
-  })
+  // The counters cover every department; the list below is this officer's department only
+  const byStatus = counters.complaintsByStatus || {}
+
+  // Search only looks at the pages loaded so far
+  const filteredComplaints = complaints.filter((complaint) =>
+    complaint.trackingId?.toLowerCase().includes(searchValue.toLowerCase()) ||
+    complaint.submittedBy?.toLowerCase().includes(searchValue.toLowerCase())
+  )
 
   const statusOptions = [
     { value: 'all', label: 'All Status' },
     { value: 'pending', label: 'Pending' },
-    { value: 'in-progress', label: 'In Progress' },
+    { value: 'in_progress', label: 'In Progress' },
     { value: 'resolved', label: 'Resolved' },
     { value: 'rejected', label: 'Rejected' },
   ]
@@ -93,26 +130,24 @@ export default function ComplaintsPage() {
                   <div className="bg-blue-50 rounded-lg border border-blue-200 p-4">
                     <p className="text-sm text-blue-600">Pending</p>
                     <p className="text-2xl font-bold text-blue-900">
-                      {complaints.filter(c => c.status === 'pending').length}
+                      {byStatus.pending ?? 0}
                     </p>
                   </div>
                   <div className="bg-yellow-50 rounded-lg border border-yellow-200 p-4">
                     <p className="text-sm text-yellow-600">In Progress</p>
                     <p className="text-2xl font-bold text-yellow-900">
-                      {complaints.filter(c => c.status === 'in-progress' || c.status === 'in_progress').length}
+                      {(byStatus.in_progress ?? 0) + (byStatus['in-progress'] ?? 0)}
                     </p>
                   </div>
                   <div className="bg-green-50 rounded-lg border border-green-200 p-4">
                     <p className="text-sm text-green-600">Resolved</p>
                     <p className="text-2xl font-bold text-green-900">
-                      {complaints.filter(c => c.status === 'resolved').length}
+                      {byStatus.resolved ?? 0}
                     </p>
                   </div>
-                  <div className="bg-red-50 rounded-lg border border-red-200 p-4">
-                    <p className="text-sm text-red-600">Urgent</p>
-                    <p className="text-2xl font-bold text-red-900">
-                      {complaints.filter(c => c.priority === 'urgent').length}
-                    </p>
+                  <div className="bg-white rounded-lg border p-4">
+                    <p className="text-sm text-gray-600">Total (all departments)</p>
+                    <p className="text-2xl font-bold text-gray-900">{counters.totalComplaints ?? 0}</p>
                   </div>
                 </div>
 
@@ -127,7 +162,7 @@ export default function ComplaintsPage() {
                 <div className="bg-white rounded-lg border">
                   <div className="p-4 border-b">
                     <h2 className="font-semibold text-gray-900">
-                      {filteredComplaints.length} Complaint{filteredComplaints.length !== 1 ? 's' : ''} Found
+                      Showing {filteredComplaints.length} Complaint{filteredComplaints.length !== 1 ? 's' : ''}
                     </h2>
                   </div>
 
@@ -173,6 +208,14 @@ export default function ComplaintsPage() {
                       ))
                     )}
                   </div>
+
+                  {nextCursor && (
+                    <div className="p-4 border-t text-center">
+                      <Button variant="outline" onClick={loadMore} disabled={loadingMore}>
+                        {loadingMore ? 'Loading...' : 'Load more'}
+                      </Button>
+                    </div>
+                  )}
                 </div>
               </>
             )}
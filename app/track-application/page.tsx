@@ -74,6 +74,19 @@ export default function TrackApplicationPage() {
     }
   }
 
+  // Keep the shown application current while the page is open
+  useEffect(() => {
+    if (!application?.trackingId) return
+    const api = application.serviceType ? healthServicesAPI : applicationsAPI
+    return api.watch(application.trackingId, (update) => {
+      setApplication((current) => current && {
+        ...current,
+        currentStatus: update.status,
+        timeline: update.record?.timeline ?? current.timeline,
+      })
+    })
+  }, [application?.trackingId, application?.serviceType])
+
   const handleSearch = async (e: React.FormEvent) => {
     e.preventDefault()
     setError('')
@@ -1,6 +1,6 @@
 "use client"
 
-import { useState } from 'react'
+import { useState, useEffect } from 'react'
 import Header from "../../components/Header"
 import Footer from "../../components/Footer"
 import { Card, CardContent } from "../../components/ui/card"
@@ -28,6 +28,18 @@ export default function TrackComplaint() {
   const [error, setError] = useState('')
   const [isSearching, setIsSearching] = useState(false)
 
+  // Keep the shown complaint current while the page is open
+  useEffect(() => {
+    if (!complaint?.trackingId) return
+    return complaintsAPI.watch(complaint.trackingId, (update) => {
+      setComplaint((current) => current && {
+        ...current,
+        status: update.status,
+        resolution: update.record?.resolution ?? current.resolution,
+      })
+    })
+  }, [complaint?.trackingId])
+
   const handleTrack = async (e: React.FormEvent) => {
     e.preventDefault()
     setError('')
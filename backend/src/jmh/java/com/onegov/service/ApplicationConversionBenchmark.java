@@ -0,0 +1,69 @@
+package com.onegov.service;
+
+import com.onegov.model.Application;
+import com.onegov.model.OfficerInfo;
+import com.onegov.model.TimelineEntry;
+import com.onegov.service.storage.StoredDocument;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Model <-> document mapping done on every application read and write
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationConversionBenchmark {
+
+    private ApplicationService applicationService;
+    private Application application;
+    private StoredDocument storedDocument;
+
+    @Setup
+    public void setUp() {
+        applicationService = new ApplicationService();
+
+        application = new Application();
+        application.setApplicationId(UUID.randomUUID().toString());
+        application.setUserId("user-1");
+        application.setTrackingId("APP0J4QZ8M2X1K7C");
+        application.setSchemeName("PM Kisan Samman Nidhi");
+        application.setSchemeId("pm-kisan");
+        application.setStatus("under_review");
+        application.setSubmittedAt(LocalDateTime.now());
+        application.setUpdatedAt(LocalDateTime.now());
+        application.setDocuments(List.of("aadhaar.pdf", "land-record.pdf"));
+        Map<String, Object> formData = new HashMap<>();
+        formData.put("landArea", 2.5);
+        formData.put("bankAccount", "XXXX1234");
+        formData.put("district", "Nashik");
+        application.setFormData(formData);
+
+        List<TimelineEntry> timeline = new ArrayList<>();
+        for (String stage : List.of("Submitted", "Verified", "Under Review")) {
+            TimelineEntry entry = new TimelineEntry();
+            entry.setStage(stage);
+            entry.setStatus("completed");
+            entry.setTimestamp(LocalDateTime.now());
+            entry.setOfficer(new OfficerInfo("Rajesh Kumar", "officer-1"));
+            timeline.add(entry);
+        }
+        application.setTimeline(timeline);
+
+        storedDocument = new StoredDocument(application.getApplicationId(), applicationService.convertToMap(application));
+    }
+
+    @Benchmark
+    public Map<String, Object> convertToMap() {
+        return applicationService.convertToMap(application);
+    }
+
+    @Benchmark
+    public Application convertToApplication() {
+        return applicationService.convertToApplication(storedDocument);
+    }
+}
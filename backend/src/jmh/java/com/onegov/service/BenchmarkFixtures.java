@@ -0,0 +1,57 @@
+package com.onegov.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onegov.service.eligibility.SchemeRuleEngine;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.storage.InMemoryStorageEngine;
+
+import java.io.IOException;
+
+import java.lang.reflect.Field;
+
+// Wires services by hand for benchmarks: no Spring context, the in-memory engine as the store
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    public static InMemoryStorageEngine memoryStore() {
+        return memoryStore(0);
+    }
+
+    // Each store call parks for latencyMicros, standing in for a Firestore round trip
+    public static InMemoryStorageEngine memoryStore(long latencyMicros) {
+        return new InMemoryStorageEngine("userId,trackingId,email,status", latencyMicros);
+    }
+
+    // Rule engine holding the bundled default scheme catalogue
+    public static SchemeRuleEngine defaultSchemeEngine() throws IOException {
+        SchemeRuleEngine engine = schemeEngine();
+        engine.loadDefaults();
+        return engine;
+    }
+
+    // Empty rule engine; catalogue changes go to a bus nobody listens on
+    public static SchemeRuleEngine schemeEngine() {
+        SchemeRuleEngine engine = inject(new SchemeRuleEngine(), "objectMapper", new ObjectMapper());
+        return inject(engine, "eventBus", new EventBus(16, 0, 0));
+    }
+
+    // Sets an @Autowired or @Value field the way Spring would
+    public static <T> T inject(T target, String fieldName, Object value) {
+        Class<?> type = target.getClass();
+        while (type != null) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return target;
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " on " + target.getClass().getName());
+    }
+}
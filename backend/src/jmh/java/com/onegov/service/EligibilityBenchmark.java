@@ -0,0 +1,65 @@
+package com.onegov.service;
+
+import com.onegov.model.CitizenProfile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.onegov.service.BenchmarkFixtures.inject;
+
+// Scheme eligibility evaluated on every profile save, against the bundled scheme catalogue
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EligibilityBenchmark {
+
+    private ProfileService profileService;
+    private CitizenProfile farmer;
+    private CitizenProfile student;
+
+    @Setup
+    public void setUp() throws Exception {
+        profileService = new ProfileService();
+        inject(profileService, "schemeRuleEngine", BenchmarkFixtures.defaultSchemeEngine());
+
+        farmer = new CitizenProfile();
+        farmer.setAge(45);
+        farmer.setGender("male");
+        farmer.setCategory("OBC");
+        farmer.setOccupation("farmer");
+        farmer.setIncome(180000L);
+        farmer.setState("Maharashtra");
+        farmer.setHasBPLCard(true);
+        farmer.setIsMinority(false);
+        farmer.setHasDisability(false);
+        farmer.setIsStudent(false);
+        farmer.setIsFarmer(true);
+
+        student = new CitizenProfile();
+        student.setAge(19);
+        student.setGender("female");
+        student.setCategory("SC");
+        student.setOccupation("student");
+        student.setIncome(650000L);
+        student.setState("Bihar");
+        student.setHasBPLCard(false);
+        student.setIsMinority(true);
+        student.setHasDisability(false);
+        student.setIsStudent(true);
+        student.setIsFarmer(false);
+    }
+
+    @Benchmark
+    public List<String> farmerProfile() {
+        return profileService.calculateEligibleSchemes(farmer);
+    }
+
+    @Benchmark
+    public List<String> studentProfile() {
+        return profileService.calculateEligibleSchemes(student);
+    }
+}
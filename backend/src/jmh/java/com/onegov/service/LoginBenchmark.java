@@ -0,0 +1,68 @@
+package com.onegov.service;
+
+import com.onegov.dto.request.LoginRequest;
+import com.onegov.dto.response.AuthResponse;
+import com.onegov.service.storage.InMemoryStorageEngine;
+import com.onegov.util.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.onegov.service.BenchmarkFixtures.inject;
+
+// Citizen login: email lookup, BCrypt match (dominant cost) and token issue
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+    private static final String EMAIL = "citizen@example.com";
+    private static final String PASSWORD = "Citizen@123";
+
+    private AuthService authService;
+    private BCryptPasswordEncoder passwordEncoder;
+    private String passwordHash;
+    private LoginRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        InMemoryStorageEngine store = BenchmarkFixtures.memoryStore();
+        passwordEncoder = new BCryptPasswordEncoder();
+        passwordHash = passwordEncoder.encode(PASSWORD);
+
+        Map<String, Object> user = new HashMap<>();
+        user.put("userId", "user-1");
+        user.put("email", EMAIL);
+        user.put("password", passwordHash);
+        user.put("name", "Test Citizen");
+        user.put("role", "CITIZEN");
+        store.createDocument("users", "user-1", user);
+
+        JwtUtil jwtUtil = new JwtUtil("onegovSecretKeyForJWTTokenGenerationAndValidation2024", 86400000L, 60000L, 10000);
+
+        authService = new AuthService();
+        inject(authService, "firebaseService", store);
+        inject(authService, "passwordHashingService", new PasswordHashingService(0, 64, 10000, 10, 12, 12));
+        inject(authService, "jwtUtil", jwtUtil);
+
+        request = new LoginRequest();
+        request.setEmail(EMAIL);
+        request.setPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public AuthResponse login() throws Exception {
+        return authService.login(request);
+    }
+
+    @Benchmark
+    public boolean bcryptMatches() {
+        return passwordEncoder.matches(PASSWORD, passwordHash);
+    }
+}
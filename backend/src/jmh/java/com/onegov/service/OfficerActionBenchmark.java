@@ -0,0 +1,75 @@
+package com.onegov.service;
+
+import com.onegov.service.event.EventBus;
+import com.onegov.service.storage.InMemoryStorageEngine;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.workqueue.ComplaintWorkQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// One officer status update end to end, with every store call parked for a simulated round trip.
+// officerUpdate is OfficerService as it is now (a read and one conditional write that returns the
+// result); readUpdateRead is the read, update, read-back sequence it replaced.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfficerActionBenchmark {
+
+    private static final String COLLECTION = "applications";
+    private static final String ID = "app-1";
+
+    @Param({"0", "1000"})
+    private long latencyMicros;
+
+    private InMemoryStorageEngine store;
+    private OfficerService officerService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = BenchmarkFixtures.memoryStore(latencyMicros);
+        EntityCache cache = BenchmarkFixtures.inject(new EntityCache(1000, 30, 3600, ""), "firebaseService", store);
+        VersionedUpdater updater = BenchmarkFixtures.inject(new VersionedUpdater(3), "firebaseService", store);
+        BenchmarkFixtures.inject(updater, "entityCache", cache);
+
+        officerService = BenchmarkFixtures.inject(new OfficerService(), "firebaseService", store);
+        BenchmarkFixtures.inject(officerService, "eventBus", new EventBus(16, 0, 0));
+        BenchmarkFixtures.inject(officerService, "versionedUpdater", updater);
+        BenchmarkFixtures.inject(officerService, "complaintWorkQueue", new ComplaintWorkQueue(1800000, 5));
+
+        Map<String, Object> application = new HashMap<>();
+        application.put("applicationId", ID);
+        application.put("userId", "user-1");
+        application.put("trackingId", "APP-000001");
+        application.put("status", "under_review");
+        application.put("submittedAt", "2025-01-01T10:00:00");
+        application.put("updatedAt", "2025-01-01T10:00:00");
+        store.createDocument(COLLECTION, ID, application);
+    }
+
+    @Benchmark
+    public Map<String, Object> officerUpdate() throws Exception {
+        return officerService.updateApplicationStatus(ID, "under_review", "Officer One", "checked", "officer-1", null);
+    }
+
+    @Benchmark
+    public Map<String, Object> readUpdateRead() throws Exception {
+        StoredDocument doc = store.getDocument(COLLECTION, ID);
+        if (!doc.exists()) {
+            throw new IllegalStateException("Application not found");
+        }
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("status", "under_review");
+        updates.put("updatedAt", LocalDateTime.now().toString());
+        updates.put("assignedOfficer", "Officer One");
+        updates.put("remarks", "checked");
+        store.updateDocument(COLLECTION, ID, updates);
+        return store.getDocument(COLLECTION, ID).getData();
+    }
+}
@@ -0,0 +1,63 @@
+package com.onegov.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Outreach counts and pages over the scheme -> eligible profiles index, filled with generated profiles
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SchemeEligibilityIndexBenchmark {
+
+    private static final String[] STATES = {"Bihar", "Maharashtra", "Kerala", "Punjab", "Assam", "Gujarat",
+            "Odisha", "Uttar Pradesh", "Rajasthan", "Karnataka", "Tamil Nadu", "West Bengal"};
+    private static final String[] SCHEMES = {"pm-kisan", "ayushman-bharat", "pm-awas", "scholarship-sc-st",
+            "ujjwala", "mudra", "old-age-pension", "disability-pension"};
+
+    @Param({"100000", "1000000"})
+    private int profiles;
+
+    private SchemeEligibilityIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new SchemeEligibilityIndex();
+        for (int i = 0; i < profiles; i++) {
+            List<String> eligible = new ArrayList<>();
+            for (String scheme : SCHEMES) {
+                if (random.nextInt(4) == 0) {
+                    eligible.add(scheme);
+                }
+            }
+            index.index("profile-" + i, STATES[random.nextInt(STATES.length)], eligible);
+        }
+    }
+
+    @Benchmark
+    public Object countOneScheme() {
+        return index.count(List.of("pm-kisan"), true, null);
+    }
+
+    @Benchmark
+    public Object countIntersectionInState() {
+        return index.count(List.of("pm-kisan", "ayushman-bharat"), true, List.of("Bihar"));
+    }
+
+    @Benchmark
+    public Object countUnion() {
+        return index.count(List.of("pm-kisan", "pm-awas", "ujjwala"), false, null);
+    }
+
+    @Benchmark
+    public Object firstPage() {
+        return index.page(List.of("pm-kisan", "ayushman-bharat"), true, List.of("Bihar", "Kerala"), null, 50);
+    }
+}
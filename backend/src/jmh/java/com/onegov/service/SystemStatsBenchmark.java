@@ -0,0 +1,66 @@
+package com.onegov.service;
+
+import com.onegov.service.storage.InMemoryStorageEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.onegov.service.BenchmarkFixtures.inject;
+
+// Admin dashboard stats: counter reads versus the full scan-and-filter they replaced
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SystemStatsBenchmark {
+
+    private static final String[] STATUSES = {"submitted", "under_review", "approved", "rejected", "pending", "resolved"};
+
+    @Param({"1000", "10000"})
+    private int documentsPerCollection;
+
+    private InMemoryStorageEngine store;
+    private StatsCounterService statsCounterService;
+    private AdminService adminService;
+
+    @Setup
+    public void setUp() throws Exception {
+        store = BenchmarkFixtures.memoryStore();
+        statsCounterService = new StatsCounterService();
+        for (String collection : StatsCounterService.TRACKED_COLLECTIONS) {
+            for (int i = 0; i < documentsPerCollection; i++) {
+                String status = STATUSES[i % STATUSES.length];
+                Map<String, Object> doc = new HashMap<>();
+                doc.put("status", status);
+                doc.put("userId", "user-" + (i % 500));
+                store.createDocument(collection, collection + "-" + i, doc);
+                statsCounterService.recordCreated(collection, status);
+            }
+        }
+
+        adminService = new AdminService();
+        inject(adminService, "firebaseService", store);
+        inject(adminService, "statsCounterService", statsCounterService);
+    }
+
+    @Benchmark
+    public Map<String, Object> countersRead() throws Exception {
+        return adminService.getSystemStats();
+    }
+
+    // The pre-counter implementation: load every document and filter by status
+    @Benchmark
+    public long scanAndFilter() throws Exception {
+        long pending = 0;
+        for (String collection : StatsCounterService.TRACKED_COLLECTIONS) {
+            pending += store.getAllDocuments(collection).stream()
+                    .filter(doc -> "submitted".equals(doc.getString("status")) || "pending".equals(doc.getString("status")))
+                    .count();
+        }
+        return pending;
+    }
+}
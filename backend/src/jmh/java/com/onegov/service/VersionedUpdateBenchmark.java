@@ -0,0 +1,85 @@
+package com.onegov.service;
+
+import com.onegov.exception.VersionConflictException;
+import com.onegov.service.storage.InMemoryStorageEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 8 officers updating the same application at once: conditional writes with bounded retry next to
+// the old blind update. Also a contention check: after every iteration the stored version must equal
+// the number of updates reported as applied, i.e. no update was lost.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class VersionedUpdateBenchmark {
+
+    private static final String COLLECTION = "applications";
+    private static final String ID = "app-1";
+
+    @Param({"1", "3", "10"})
+    private int maxAttempts;
+
+    private InMemoryStorageEngine store;
+    private VersionedUpdater updater;
+    private final AtomicLong applied = new AtomicLong();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long conflicts;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = BenchmarkFixtures.memoryStore();
+        EntityCache cache = BenchmarkFixtures.inject(new EntityCache(1000, 30, 3600, ""), "firebaseService", store);
+        updater = BenchmarkFixtures.inject(new VersionedUpdater(maxAttempts), "firebaseService", store);
+        BenchmarkFixtures.inject(updater, "entityCache", cache);
+
+        Map<String, Object> application = new HashMap<>();
+        application.put("applicationId", ID);
+        application.put("status", "under_review");
+        application.put("updatedAt", "2025-01-01T10:00:00");
+        store.createDocument(COLLECTION, ID, application);
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkNoLostUpdates() {
+        long version = store.getDocument(COLLECTION, ID).getVersion();
+        if (version != applied.get()) {
+            throw new IllegalStateException("Lost updates: version " + version + " after " + applied.get()
+                    + " applied updates");
+        }
+    }
+
+    // Remarks only: commutes with the other officers' writes, so conflicts are retried
+    @Benchmark
+    public void conditionalUpdate(Outcomes outcomes) throws Exception {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("remarks", Thread.currentThread().getName());
+        updates.put("updatedAt", "2025-01-01T10:00:01");
+        try {
+            updater.update(COLLECTION, ID, null, "status", "Application not found", current -> updates);
+            applied.incrementAndGet();
+        } catch (VersionConflictException e) {
+            outcomes.conflicts++;
+        }
+    }
+
+    // What every status update did before: no read, no check, last writer wins
+    @Benchmark
+    public void blindUpdate() throws Exception {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("remarks", Thread.currentThread().getName());
+        updates.put("updatedAt", "2025-01-01T10:00:01");
+        store.updateDocument(COLLECTION, ID, updates);
+    }
+}
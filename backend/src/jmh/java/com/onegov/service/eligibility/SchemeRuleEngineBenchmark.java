@@ -0,0 +1,83 @@
+package com.onegov.service.eligibility;
+
+import com.onegov.model.CitizenProfile;
+import com.onegov.model.Scheme;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.onegov.service.BenchmarkFixtures.schemeEngine;
+
+// One profile against a large generated catalogue mixing ranges, enum sets, flags, state filters and anyOf
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemeRuleEngineBenchmark {
+
+    private static final String[] STATES = {"Bihar", "Maharashtra", "Kerala", "Punjab", "Assam", "Gujarat", "Odisha"};
+    private static final String[] CATEGORIES = {"General", "OBC", "SC", "ST"};
+    private static final String[] FLAGS = {"isFarmer", "hasBPLCard", "isStudent", "isMinority", "hasDisability"};
+
+    @Param({"100", "1000", "5000"})
+    private int schemes;
+
+    private SchemeRuleEngine engine;
+    private List<Scheme> catalogue;
+    private CitizenProfile profile;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        catalogue = new ArrayList<>();
+        for (int i = 0; i < schemes; i++) {
+            Scheme scheme = new Scheme();
+            scheme.setSchemeId("scheme-" + i);
+            scheme.setIsActive(true);
+            scheme.setEligibilityCriteria(Map.of(
+                    "age", Map.of("min", random.nextInt(40), "max", 40 + random.nextInt(50)),
+                    "state", List.of(STATES[random.nextInt(STATES.length)], STATES[random.nextInt(STATES.length)]),
+                    "anyOf", List.of(
+                            Map.of(FLAGS[random.nextInt(FLAGS.length)], true),
+                            Map.of("income", Map.of("lt", 100000 + random.nextInt(900000))),
+                            Map.of("category", List.of(CATEGORIES[random.nextInt(CATEGORIES.length)])))));
+            catalogue.add(scheme);
+        }
+
+        engine = schemeEngine();
+        engine.load(catalogue);
+
+        profile = new CitizenProfile();
+        profile.setAge(34);
+        profile.setGender("female");
+        profile.setCategory("OBC");
+        profile.setIncome(240000L);
+        profile.setState("Bihar");
+        profile.setHasBPLCard(true);
+        profile.setIsFarmer(false);
+        profile.setIsStudent(false);
+        profile.setIsMinority(false);
+        profile.setHasDisability(false);
+    }
+
+    @Benchmark
+    public List<String> evaluate() {
+        return engine.evaluate(profile);
+    }
+
+    // What a catalogue change costs: compiling every scheme's criteria
+    @Benchmark
+    public EligibilityRule[] compileCatalogue() {
+        EligibilityRule[] rules = new EligibilityRule[catalogue.size()];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = RuleCompiler.compile(catalogue.get(i).getEligibilityCriteria());
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,60 @@
+package com.onegov.service.event;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost an officer's status update pays to publish: throughput with 4 publishing threads,
+// and the sampled per-publish latency distribution (p50/p99 in the JMH output)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class EventBusBenchmark {
+
+    @Param({"1", "4"})
+    private int subscribers;
+
+    @Param({"DROP_OLDEST", "CALLER_RUNS"})
+    private Backpressure policy;
+
+    // Simulated per-event handler work, in Blackhole tokens
+    @Param({"0", "100"})
+    private int handlerWork;
+
+    private EventBus eventBus;
+    private ApplicationStatusChanged event;
+
+    @Setup
+    public void setUp() {
+        eventBus = new EventBus(1024, 50, 1000);
+        for (int i = 0; i < subscribers; i++) {
+            int work = handlerWork;
+            eventBus.subscribe("bench-" + i, StatusChangedEvent.class,
+                    e -> Blackhole.consumeCPU(work), policy);
+        }
+        event = new ApplicationStatusChanged("app-1", "user-1", "APP-0000000000001",
+                "submitted", "approved", "officer-1", "2025-01-01T10:00:00");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        eventBus.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void publishThroughput() {
+        eventBus.publish(event);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void publishLatency() {
+        eventBus.publish(event);
+    }
+}
@@ -0,0 +1,75 @@
+package com.onegov.service.storage;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// First page (50 rows) of the officer complaint list over one collection: with the composite indexes from
+// IndexCatalog the planner walks one in order and stops at the page; without them it narrows by the status
+// hash index and sorts the whole bucket. Lives in the storage package to build MemoryCollection both ways.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryPlannerBenchmark {
+
+    private static final String[] STATUSES = {"submitted", "assigned", "in_progress", "resolved", "closed"};
+    private static final String[] DEPARTMENTS = {"water", "roads", "electricity", "sanitation", "health", "general"};
+
+    @Param({"10000", "100000"})
+    private int complaints;
+
+    @Param({"true", "false"})
+    private boolean compositeIndexes;
+
+    private MemoryCollection collection;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        collection = new MemoryCollection(Set.of("userId", "trackingId", "email", "status"),
+                compositeIndexes ? IndexCatalog.forCollection("complaints") : List.of());
+        for (int i = 0; i < complaints; i++) {
+            Map<String, Object> complaint = new HashMap<>();
+            complaint.put("status", STATUSES[i % STATUSES.length]);
+            complaint.put("department", DEPARTMENTS[(i / STATUSES.length) % DEPARTMENTS.length]);
+            complaint.put("userId", "user-" + (i % 2000));
+            complaint.put("updatedAt", String.format("2025-%02d-%02dT10:%02d:%02d",
+                    1 + i % 12, 1 + i % 28, i % 60, (i / 60) % 60));
+            collection.put("complaint-" + i, complaint);
+        }
+        System.out.println("statusAndDepartment: " + collection.explain(statusAndDepartmentQuery()));
+        System.out.println("updatedRange: " + collection.explain(updatedRangeQuery()));
+    }
+
+    @Benchmark
+    public DocumentPage statusAndDepartment() {
+        return collection.page(statusAndDepartmentQuery());
+    }
+
+    @Benchmark
+    public DocumentPage updatedRange() {
+        return collection.page(updatedRangeQuery());
+    }
+
+    private static DocumentQuery statusAndDepartmentQuery() {
+        return DocumentQuery.of("complaints")
+                .whereEqualTo("status", "assigned")
+                .whereEqualTo("department", "roads")
+                .orderBy("updatedAt", true)
+                .limit(50);
+    }
+
+    private static DocumentQuery updatedRangeQuery() {
+        return DocumentQuery.of("complaints")
+                .whereEqualTo("status", "submitted")
+                .orderBy("updatedAt", true)
+                .whereBetween("updatedAt", "2025-03-01", "2025-04-01")
+                .limit(50);
+    }
+}
@@ -0,0 +1,61 @@
+package com.onegov.service.timeline;
+
+import com.onegov.model.OfficerInfo;
+import com.onegov.model.TimelineEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Archiving a decided application's timeline, against the per-entry maps it replaces
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimelineCodecBenchmark {
+
+    private static final String[] STAGES = {"Submitted", "Verified", "Under Review", "Processing", "Approved"};
+
+    @Param({"5", "50"})
+    private int entries;
+
+    private List<TimelineEntry> timeline;
+    private byte[] archive;
+
+    @Setup
+    public void setUp() {
+        timeline = new ArrayList<>();
+        LocalDateTime timestamp = LocalDateTime.of(2026, 1, 5, 10, 30);
+        for (int i = 0; i < entries; i++) {
+            timestamp = timestamp.plusHours(7).plusSeconds(i * 13L);
+            TimelineEntry entry = new TimelineEntry();
+            entry.setStage(STAGES[i % STAGES.length]);
+            entry.setStatus("completed");
+            entry.setTimestamp(timestamp);
+            entry.setOfficer(i == 0 ? new OfficerInfo("System", "system") : new OfficerInfo("Rajesh Kumar", "officer-" + (i % 3)));
+            timeline.add(entry);
+        }
+        archive = TimelineCodec.encode(timeline);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return TimelineCodec.encode(timeline);
+    }
+
+    @Benchmark
+    public List<TimelineEntry> decode() {
+        return TimelineCodec.decode(archive);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> toEntryMaps() {
+        return timeline.stream().map(ApplicationTimelineStore::toMap).collect(Collectors.toList());
+    }
+}
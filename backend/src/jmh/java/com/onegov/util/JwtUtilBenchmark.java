@@ -0,0 +1,72 @@
+package com.onegov.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Token issue on every login and token validation on every authenticated call
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "onegovSecretKeyForJWTTokenGenerationAndValidation2024";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 86400000L, 60000L, 10000);
+        token = jwtUtil.generateToken("user-1", "citizen@example.com", "CITIZEN");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("user-1", "citizen@example.com", "CITIZEN");
+    }
+
+    // Before: userId, email, role and expiry each rebuilt the key and re-verified the token
+    @Benchmark
+    public void validateRebuildingKeyPerAccessor(Blackhole blackhole) {
+        blackhole.consume(legacyClaims(token).getSubject());
+        blackhole.consume(legacyClaims(token).get("email"));
+        blackhole.consume(legacyClaims(token).get("role"));
+        blackhole.consume(legacyClaims(token).getExpiration().before(new Date()));
+    }
+
+    // One verification with the prebuilt parser, no cache
+    @Benchmark
+    public void validateSingleParse(Blackhole blackhole) {
+        TokenClaims claims = jwtUtil.parseClaims(token);
+        blackhole.consume(claims.getUserId());
+        blackhole.consume(claims.getEmail());
+        blackhole.consume(claims.getRole());
+        blackhole.consume(claims.isExpired());
+    }
+
+    // After: the same four accessors served from the claims cache
+    @Benchmark
+    public void validateCached(Blackhole blackhole) {
+        blackhole.consume(jwtUtil.extractUserId(token));
+        blackhole.consume(jwtUtil.extractEmail(token));
+        blackhole.consume(jwtUtil.extractRole(token));
+        blackhole.consume(jwtUtil.isTokenExpired(token));
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
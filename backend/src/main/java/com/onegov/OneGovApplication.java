@@ -2,8 +2,10 @@ package com.onegov;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class OneGovApplication {
     public static void main(String[] args) {
         SpringApplication.run(OneGovApplication.class, args);
@@ -0,0 +1,64 @@
+package com.onegov.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+// spring.mvc.async.request-timeout is one value for every async response; a handler that streams
+// for longer (exports) sets TIMEOUT_ATTRIBUTE to its own limit in milliseconds before returning.
+// A handler that holds something for the life of its response sets CLEANUP_ATTRIBUTE to a Runnable.
+// It runs when the response ends, whether it completed, failed, timed out or was rejected, and also
+// when async processing never started. It can run more than once, so it must be idempotent.
+@Configuration
+public class AsyncTimeoutConfig implements WebMvcConfigurer {
+
+    public static final String TIMEOUT_ATTRIBUTE = AsyncTimeoutConfig.class.getName() + ".timeoutMs";
+    public static final String CLEANUP_ATTRIBUTE = AsyncTimeoutConfig.class.getName() + ".cleanup";
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                Object timeout = request.getAttribute(TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (timeout instanceof Long && request instanceof AsyncWebRequest) {
+                    ((AsyncWebRequest) request).setTimeout((Long) timeout);
+                }
+            }
+
+            // Every way a started async response ends, including a task the executor rejected
+            @Override
+            public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                runCleanup(request.getAttribute(CLEANUP_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+            }
+        });
+    }
+
+    // Requests that end without async processing, e.g. when starting it failed
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                        Exception ex) {
+                runCleanup(request.getAttribute(CLEANUP_ATTRIBUTE));
+            }
+        });
+    }
+
+    private static void runCleanup(Object cleanup) {
+        if (cleanup instanceof Runnable) {
+            ((Runnable) cleanup).run();
+        }
+    }
+}
@@ -7,12 +7,15 @@ import com.google.firebase.cloud.FirestoreClient;
 import com.google.cloud.firestore.Firestore;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.ClassPathResource;
 
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 
+// Not loaded under the "memory" profile, which runs on InMemoryStorageEngine
 @Configuration
+@Profile("!memory")
 public class FirebaseConfig {
 
     @PostConstruct
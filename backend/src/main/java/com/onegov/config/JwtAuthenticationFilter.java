@@ -0,0 +1,66 @@
+package com.onegov.config;
+
+import com.onegov.service.TokenRevocationList;
+import com.onegov.util.JwtUtil;
+import com.onegov.util.TokenClaims;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Authenticates a request from its Bearer token alone: the principal is the token's
+ * TokenClaims and the authority is ROLE_ + its role claim. No store read happens here;
+ * revoked accounts are refused through the in-memory TokenRevocationList.
+ * A missing or invalid token leaves the request anonymous for the matchers to decide.
+ * The update stream also takes a stream token as ?token=, because EventSource cannot
+ * set headers; stream tokens are accepted there and nowhere else.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String STREAM_PATH = "/api/updates/stream";
+    private static final String STREAM_TOKEN_PARAM = "token";
+
+    private final JwtUtil jwtUtil;
+    private final TokenRevocationList revocationList;
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, TokenRevocationList revocationList) {
+        this.jwtUtil = jwtUtil;
+        this.revocationList = revocationList;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader("Authorization");
+        String streamToken = STREAM_PATH.equals(request.getServletPath())
+                ? request.getParameter(STREAM_TOKEN_PARAM) : null;
+        boolean bearer = header != null && header.startsWith(BEARER_PREFIX);
+        if (bearer || streamToken != null) {
+            try {
+                String token = bearer ? header.substring(BEARER_PREFIX.length()) : streamToken;
+                TokenClaims claims = jwtUtil.extractClaims(token);
+                // A session token in a URL would end up in logs, and a stream token must not open anything else
+                boolean scopeAllowed = bearer ? !claims.isStreamToken() : claims.isStreamToken();
+                if (scopeAllowed && claims.getRole() != null && !revocationList.isRevoked(claims.getUserId())) {
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            claims, null,
+                            List.of(new SimpleGrantedAuthority("ROLE_" + claims.getRole().toUpperCase(Locale.ROOT))));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
+            } catch (Exception e) {
+                // Invalid or expired token: continue unauthenticated
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
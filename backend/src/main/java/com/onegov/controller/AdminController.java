@@ -1,12 +1,25 @@
 package com.onegov.controller;
 
+import com.onegov.config.AsyncTimeoutConfig;
+import com.onegov.dto.request.ListQueryRequest;
 import com.onegov.dto.response.ApiResponse;
+import com.onegov.dto.response.PagedResult;
+import com.onegov.exception.HashingOverloadedException;
+import com.onegov.exception.StreamLimitExceededException;
+import com.onegov.model.Scheme;
 import com.onegov.service.AdminService;
+import com.onegov.service.ExportService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -14,9 +27,14 @@ import java.util.Map;
 @RequestMapping("/api/admin")
 public class AdminController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private ExportService exportService;
+
     // Get System Dashboard Statistics
     @GetMapping("/dashboard/stats")
     public ResponseEntity<?> getSystemStats() {
@@ -29,6 +47,78 @@ public class AdminController {
         }
     }
 
+    // Recount System Statistics and Report Drift
+    @PostMapping("/dashboard/stats/reconcile")
+    public ResponseEntity<?> reconcileSystemStats() {
+        try {
+            Map<String, Object> report = adminService.reconcileSystemStats();
+            return ResponseEntity.ok(report);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to reconcile system stats: " + e.getMessage()));
+        }
+    }
+
+    // Get Password Hashing Latency/Queue Statistics
+    @GetMapping("/auth/hashing/stats")
+    public ResponseEntity<?> getHashingStats() {
+        try {
+            Map<String, Object> stats = adminService.getHashingStats();
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch hashing stats: " + e.getMessage()));
+        }
+    }
+
+    // Get Read Cache Hit/Miss Statistics
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getCacheStats() {
+        try {
+            Map<String, Object> stats = adminService.getCacheStats();
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch cache stats: " + e.getMessage()));
+        }
+    }
+
+    // Get Deferred Write Queue Statistics
+    @GetMapping("/writebehind/stats")
+    public ResponseEntity<?> getWriteBehindStats() {
+        try {
+            Map<String, Object> stats = adminService.getWriteBehindStats();
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch write-behind stats: " + e.getMessage()));
+        }
+    }
+
+    // Get Event Bus Publish/Delivery Statistics
+    @GetMapping("/events/stats")
+    public ResponseEntity<?> getEventStats() {
+        try {
+            Map<String, Object> stats = adminService.getEventStats();
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch event stats: " + e.getMessage()));
+        }
+    }
+
+    // Get Server-Sent Event Stream Statistics
+    @GetMapping("/streams/stats")
+    public ResponseEntity<?> getStreamStats() {
+        try {
+            Map<String, Object> stats = adminService.getStreamStats();
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch stream stats: " + e.getMessage()));
+        }
+    }
+
     // ============================================
     // OFFICER MANAGEMENT
     // ============================================
@@ -66,6 +156,10 @@ public class AdminController {
         try {
             Map<String, Object> officer = adminService.createOfficer(officerData);
             return ResponseEntity.status(HttpStatus.CREATED).body(officer);
+        } catch (HashingOverloadedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, HashingOverloadedException.RETRY_AFTER_SECONDS)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(ApiResponse.error(e.getMessage()));
@@ -113,10 +207,13 @@ public class AdminController {
 
     // Get All Citizens
     @GetMapping("/citizens")
-    public ResponseEntity<?> getAllCitizens() {
+    public ResponseEntity<?> getAllCitizens(ListQueryRequest query) {
         try {
-            List<Map<String, Object>> citizens = adminService.getAllCitizens();
-            return ResponseEntity.ok(citizens);
+            PagedResult<Map<String, Object>> citizens = adminService.getAllCitizens(query);
+            return pageResponse(citizens);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to fetch citizens: " + e.getMessage()));
@@ -147,10 +244,13 @@ public class AdminController {
 
     // Get All Applications
     @GetMapping("/applications")
-    public ResponseEntity<?> getAllApplications() {
+    public ResponseEntity<?> getAllApplications(ListQueryRequest query) {
         try {
-            List<Map<String, Object>> applications = adminService.getAllApplications();
-            return ResponseEntity.ok(applications);
+            PagedResult<Map<String, Object>> applications = adminService.getAllApplications(query);
+            return pageResponse(applications);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to fetch applications: " + e.getMessage()));
@@ -159,13 +259,277 @@ public class AdminController {
 
     // Get All Complaints
     @GetMapping("/complaints")
-    public ResponseEntity<?> getAllComplaints() {
+    public ResponseEntity<?> getAllComplaints(ListQueryRequest query) {
         try {
-            List<Map<String, Object>> complaints = adminService.getAllComplaints();
-            return ResponseEntity.ok(complaints);
+            PagedResult<Map<String, Object>> complaints = adminService.getAllComplaints(query);
+            return pageResponse(complaints);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to fetch complaints: " + e.getMessage()));
         }
     }
+
+    // ============================================
+    // EXPORT
+    // ============================================
+
+    // Streams a whole collection (applications, complaints or citizens) as NDJSON or CSV;
+    // ListQueryRequest supplies the status/department filters and the column selection (fields)
+    @GetMapping("/export/{dataset}")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable String dataset,
+            ListQueryRequest query,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletRequest request) {
+        ExportService.Export export;
+        try {
+            export = exportService.prepare(dataset, format, query.resolveFields(), query.getStatus(),
+                    query.getDepartment(), gzip);
+        } catch (IllegalArgumentException e) {
+            return plainError(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (StreamLimitExceededException e) {
+            return plainError(HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+        }
+        request.setAttribute(AsyncTimeoutConfig.TIMEOUT_ATTRIBUTE, exportService.getTimeoutMs());
+        // The body may never run (async start fails, the task is rejected, the client is gone before
+        // dispatch); the slot then comes back when the request ends instead of leaking
+        request.setAttribute(AsyncTimeoutConfig.CLEANUP_ATTRIBUTE, (Runnable) export::release);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(export.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(export.getFilename()).build().toString());
+        if (export.isGzip()) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(export::writeTo);
+    }
+
+    // Streaming responses can't carry an ApiResponse body, so errors are plain text
+    private ResponseEntity<StreamingResponseBody> plainError(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(out -> out.write(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // ============================================
+    // BULK IMPORT
+    // ============================================
+
+    // Import Officers from a JSON array or CSV (header row) body
+    @PostMapping("/import/officers")
+    public ResponseEntity<?> importOfficers(
+            @RequestBody String body,
+            @RequestParam(defaultValue = "json") String format,
+            @RequestParam(required = false) String createdBy) {
+        try {
+            Map<String, Object> result = adminService.importOfficers(format, body, createdBy);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (HashingOverloadedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, HashingOverloadedException.RETRY_AFTER_SECONDS)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to import officers: " + e.getMessage()));
+        }
+    }
+
+    // Import Historical Applications from a JSON array or CSV (header row) body
+    @PostMapping("/import/applications")
+    public ResponseEntity<?> importApplications(
+            @RequestBody String body,
+            @RequestParam(defaultValue = "json") String format) {
+        try {
+            Map<String, Object> result = adminService.importApplications(format, body);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to import applications: " + e.getMessage()));
+        }
+    }
+
+    // ============================================
+    // SCHEME CATALOGUE
+    // ============================================
+
+    // Get All Schemes with their eligibility criteria
+    @GetMapping("/schemes")
+    public ResponseEntity<?> getSchemes() {
+        try {
+            List<Scheme> schemes = adminService.getSchemes();
+            return ResponseEntity.ok(schemes);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch schemes: " + e.getMessage()));
+        }
+    }
+
+    // Create or Replace a Scheme; criteria are compiled first and rejected with 400 if invalid
+    @PutMapping("/schemes/{schemeId}")
+    public ResponseEntity<?> saveScheme(@PathVariable String schemeId, @RequestBody Scheme scheme) {
+        try {
+            Map<String, Object> result = adminService.saveScheme(schemeId, scheme);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to save scheme: " + e.getMessage()));
+        }
+    }
+
+    // Reload the Scheme Catalogue now (e.g. after console edits)
+    @PostMapping("/schemes/reload")
+    public ResponseEntity<?> reloadSchemes() {
+        try {
+            Map<String, Object> result = adminService.reloadSchemes();
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to reload schemes: " + e.getMessage()));
+        }
+    }
+
+    // Start re-evaluating every stored profile; runs in the background, poll the status endpoint
+    @PostMapping("/schemes/recompute")
+    public ResponseEntity<?> recomputeEligibility(@RequestParam(defaultValue = "true") boolean resume) {
+        try {
+            Map<String, Object> result = adminService.recomputeEligibility(resume);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to start eligibility recompute: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/schemes/recompute/status")
+    public ResponseEntity<?> getRecomputeStatus() {
+        try {
+            Map<String, Object> status = adminService.getRecomputeStatus();
+            return ResponseEntity.ok(status);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch recompute status: " + e.getMessage()));
+        }
+    }
+
+    // Stops after the current page; the checkpoint lets a later start resume from there
+    @PostMapping("/schemes/recompute/cancel")
+    public ResponseEntity<?> cancelRecompute() {
+        try {
+            Map<String, Object> result = adminService.cancelRecompute();
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to cancel eligibility recompute: " + e.getMessage()));
+        }
+    }
+
+    // Count citizens eligible for all (match=all, intersection) or any (match=any, union) of the schemes
+    @GetMapping("/schemes/eligible/count")
+    public ResponseEntity<?> countEligibleCitizens(
+            @RequestParam List<String> schemes,
+            @RequestParam(defaultValue = "all") String match,
+            @RequestParam(required = false) List<String> states) {
+        try {
+            Map<String, Object> result = adminService.countEligibleCitizens(schemes, match, states);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to count eligible citizens: " + e.getMessage()));
+        }
+    }
+
+    // Same filters as the count, one page of profiles at a time
+    @GetMapping("/schemes/eligible")
+    public ResponseEntity<?> getEligibleCitizens(
+            @RequestParam List<String> schemes,
+            @RequestParam(defaultValue = "all") String match,
+            @RequestParam(required = false) List<String> states,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return pageResponse(adminService.getEligibleCitizens(schemes, match, states, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch eligible citizens: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/schemes/eligible/stats")
+    public ResponseEntity<?> getEligibilityIndexStats() {
+        try {
+            Map<String, Object> stats = adminService.getEligibilityIndexStats();
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch eligibility index stats: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/work/distribute")
+    public ResponseEntity<?> distributeComplaints(
+            @RequestParam String department,
+            @RequestParam(required = false) String strategy) {
+        try {
+            Map<String, Object> result = adminService.distributeComplaints(department, strategy);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to distribute complaints: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/work/stats")
+    public ResponseEntity<?> getWorkQueueStats() {
+        try {
+            Map<String, Object> stats = adminService.getWorkQueueStats();
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch work queue stats: " + e.getMessage()));
+        }
+    }
+
+    // Firestore index config for the list queries; save as firestore.indexes.json and deploy with the Firebase CLI
+    @GetMapping("/storage/indexes")
+    public ResponseEntity<?> getStorageIndexConfig() {
+        try {
+            Map<String, Object> config = adminService.getStorageIndexConfig();
+            return ResponseEntity.ok(config);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to build index config: " + e.getMessage()));
+        }
+    }
+
+    // Page rows go in the body as before; the cursor for the next page travels in a header
+    private ResponseEntity<?> pageResponse(PagedResult<Map<String, Object>> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
 }
@@ -2,15 +2,22 @@ package com.onegov.controller;
 
 import com.onegov.dto.request.ApplicationRequest;
 import com.onegov.dto.response.ApiResponse;
+import com.onegov.exception.ResourceNotFoundException;
+import com.onegov.exception.StreamLimitExceededException;
+import com.onegov.exception.VersionConflictException;
 import com.onegov.model.Application;
 import com.onegov.service.ApplicationService;
+import com.onegov.service.TrackingStreamRegistry;
+import com.onegov.service.event.ApplicationStatusChanged;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 @RestController
@@ -20,6 +27,9 @@ public class ApplicationController {
     @Autowired
     private ApplicationService applicationService;
 
+    @Autowired
+    private TrackingStreamRegistry trackingStreamRegistry;
+
     @PostMapping
     public ResponseEntity<?> submitApplication(@RequestBody ApplicationRequest request) {
         try {
@@ -32,42 +42,38 @@ public class ApplicationController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getApplicationById(@PathVariable String id) {
-        try {
-            Application application = applicationService.getApplicationById(id);
-            return ResponseEntity.ok(application);
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(ApiResponse.error(e.getMessage()));
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Failed to fetch application"));
-        }
+    public CompletableFuture<ResponseEntity<?>> getApplicationById(@PathVariable String id) {
+        return applicationService.getApplicationByIdAsync(id)
+                .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(result))
+                .exceptionally(e -> errorResponse(e, "Failed to fetch application"));
     }
 
     @GetMapping("/track/{trackingId}")
-    public ResponseEntity<?> trackApplication(@PathVariable String trackingId) {
+    public CompletableFuture<ResponseEntity<?>> trackApplication(@PathVariable String trackingId) {
+        return applicationService.getApplicationByTrackingIdAsync(trackingId)
+                .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(result))
+                .exceptionally(e -> errorResponse(e, "Failed to track application"));
+    }
+
+    // Pushes status and timeline changes for this tracking id as Server-Sent Events
+    @GetMapping("/track/{trackingId}/stream")
+    public ResponseEntity<SseEmitter> streamTracking(@PathVariable String trackingId) {
         try {
-            Application application = applicationService.getApplicationByTrackingId(trackingId);
-            return ResponseEntity.ok(application);
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(ApiResponse.error(e.getMessage()));
+            return ResponseEntity.ok(trackingStreamRegistry.openTrackingStream(ApplicationStatusChanged.COLLECTION, trackingId));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (StreamLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
         } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Failed to track application"));
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getUserApplications(@PathVariable String userId) {
-        try {
-            List<Application> applications = applicationService.getUserApplications(userId);
-            return ResponseEntity.ok(applications);
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Failed to fetch applications"));
-        }
+    public CompletableFuture<ResponseEntity<?>> getUserApplications(@PathVariable String userId) {
+        return applicationService.getUserApplicationsAsync(userId)
+                .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(result))
+                .exceptionally(e -> errorResponse(e, "Failed to fetch applications"));
     }
 
     @PutMapping("/{id}/status")
@@ -82,6 +88,9 @@ public class ApplicationController {
             Application application = applicationService.updateApplicationStatus(
                     id, status, officerName, officerId);
             return ResponseEntity.ok(application);
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage(), e.getCurrent()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error(e.getMessage()));
@@ -90,4 +99,15 @@ public class ApplicationController {
                     .body(ApiResponse.error("Failed to update status"));
         }
     }
+
+    // Same mapping as the blocking handlers: lookup errors are 404, storage failures 500
+    private ResponseEntity<?> errorResponse(Throwable e, String failureMessage) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RuntimeException) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error(cause.getMessage()));
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(failureMessage));
+    }
 }
@@ -8,11 +8,13 @@ import com.onegov.dto.response.AdminResponse;
 import com.onegov.dto.response.ApiResponse;
 import com.onegov.dto.response.AuthResponse;
 import com.onegov.dto.response.OfficerResponse;
+import com.onegov.exception.HashingOverloadedException;
 import com.onegov.model.Admin;
 import com.onegov.model.Officer;
 import com.onegov.model.User;
 import com.onegov.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -31,6 +33,10 @@ public class AuthController {
         try {
             AuthResponse response = authService.register(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (HashingOverloadedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, HashingOverloadedException.RETRY_AFTER_SECONDS)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(ApiResponse.error(e.getMessage()));
@@ -45,6 +51,10 @@ public class AuthController {
         try {
             AuthResponse response = authService.login(request);
             return ResponseEntity.ok(response);
+        } catch (HashingOverloadedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, HashingOverloadedException.RETRY_AFTER_SECONDS)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(ApiResponse.error(e.getMessage()));
@@ -86,6 +96,10 @@ public class AuthController {
         try {
             OfficerResponse response = authService.officerLogin(request);
             return ResponseEntity.ok(response);
+        } catch (HashingOverloadedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, HashingOverloadedException.RETRY_AFTER_SECONDS)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(ApiResponse.error(e.getMessage()));
@@ -115,6 +129,10 @@ public class AuthController {
         try {
             AdminResponse response = authService.adminLogin(request);
             return ResponseEntity.ok(response);
+        } catch (HashingOverloadedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, HashingOverloadedException.RETRY_AFTER_SECONDS)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(ApiResponse.error(e.getMessage()));
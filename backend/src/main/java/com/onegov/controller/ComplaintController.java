@@ -2,15 +2,23 @@ package com.onegov.controller;
 
 import com.onegov.dto.request.ComplaintRequest;
 import com.onegov.dto.response.ApiResponse;
+import com.onegov.exception.ResourceNotFoundException;
+import com.onegov.exception.StreamLimitExceededException;
+import com.onegov.exception.VersionConflictException;
+import com.onegov.exception.WorkItemConflictException;
 import com.onegov.model.Complaint;
 import com.onegov.service.ComplaintService;
+import com.onegov.service.TrackingStreamRegistry;
+import com.onegov.service.event.ComplaintStatusChanged;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 @RestController
@@ -20,6 +28,9 @@ public class ComplaintController {
     @Autowired
     private ComplaintService complaintService;
 
+    @Autowired
+    private TrackingStreamRegistry trackingStreamRegistry;
+
     @PostMapping
     public ResponseEntity<?> fileComplaint(@RequestBody ComplaintRequest request) {
         try {
@@ -32,42 +43,38 @@ public class ComplaintController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getComplaintById(@PathVariable String id) {
-        try {
-            Complaint complaint = complaintService.getComplaintById(id);
-            return ResponseEntity.ok(complaint);
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(ApiResponse.error(e.getMessage()));
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Failed to fetch complaint"));
-        }
+    public CompletableFuture<ResponseEntity<?>> getComplaintById(@PathVariable String id) {
+        return complaintService.getComplaintByIdAsync(id)
+                .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(result))
+                .exceptionally(e -> errorResponse(e, "Failed to fetch complaint"));
     }
 
     @GetMapping("/track/{trackingId}")
-    public ResponseEntity<?> trackComplaint(@PathVariable String trackingId) {
+    public CompletableFuture<ResponseEntity<?>> trackComplaint(@PathVariable String trackingId) {
+        return complaintService.getComplaintByTrackingIdAsync(trackingId)
+                .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(result))
+                .exceptionally(e -> errorResponse(e, "Failed to track complaint"));
+    }
+
+    // Pushes status and timeline changes for this tracking id as Server-Sent Events
+    @GetMapping("/track/{trackingId}/stream")
+    public ResponseEntity<SseEmitter> streamTracking(@PathVariable String trackingId) {
         try {
-            Complaint complaint = complaintService.getComplaintByTrackingId(trackingId);
-            return ResponseEntity.ok(complaint);
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(ApiResponse.error(e.getMessage()));
+            return ResponseEntity.ok(trackingStreamRegistry.openTrackingStream(ComplaintStatusChanged.COLLECTION, trackingId));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (StreamLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
         } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Failed to track complaint"));
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getUserComplaints(@PathVariable String userId) {
-        try {
-            List<Complaint> complaints = complaintService.getUserComplaints(userId);
-            return ResponseEntity.ok(complaints);
-        } catch (ExecutionException | InterruptedException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Failed to fetch complaints"));
-        }
+    public CompletableFuture<ResponseEntity<?>> getUserComplaints(@PathVariable String userId) {
+        return complaintService.getUserComplaintsAsync(userId)
+                .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(result))
+                .exceptionally(e -> errorResponse(e, "Failed to fetch complaints"));
     }
 
     @PutMapping("/{id}/status")
@@ -80,6 +87,9 @@ public class ComplaintController {
             
             Complaint complaint = complaintService.updateComplaintStatus(id, status, resolution);
             return ResponseEntity.ok(complaint);
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage(), e.getCurrent()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error(e.getMessage()));
@@ -97,6 +107,15 @@ public class ComplaintController {
             String officerId = request.get("officerId");
             Complaint complaint = complaintService.assignComplaint(id, officerId);
             return ResponseEntity.ok(complaint);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage(), e.getCurrent()));
+        } catch (WorkItemConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error(e.getMessage()));
@@ -105,4 +124,15 @@ public class ComplaintController {
                     .body(ApiResponse.error("Failed to assign complaint"));
         }
     }
+
+    // Same mapping as the blocking handlers: lookup errors are 404, storage failures 500
+    private ResponseEntity<?> errorResponse(Throwable e, String failureMessage) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RuntimeException) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error(cause.getMessage()));
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(failureMessage));
+    }
 }
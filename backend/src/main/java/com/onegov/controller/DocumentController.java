@@ -1,6 +1,7 @@
 package com.onegov.controller;
 
 import com.onegov.dto.response.ApiResponse;
+import com.onegov.exception.VersionConflictException;
 import com.onegov.model.Document;
 import com.onegov.service.DocumentService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -82,6 +83,9 @@ public class DocumentController {
             
             Document document = documentService.verifyDocument(id, verifiedBy, status);
             return ResponseEntity.ok(document);
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage(), e.getCurrent()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error(e.getMessage()));
@@ -2,12 +2,18 @@ package com.onegov.controller;
 
 import com.onegov.dto.request.HealthServiceRequest;
 import com.onegov.dto.response.ApiResponse;
+import com.onegov.exception.ResourceNotFoundException;
+import com.onegov.exception.StreamLimitExceededException;
+import com.onegov.exception.VersionConflictException;
 import com.onegov.model.HealthService;
 import com.onegov.service.HealthServiceService;
+import com.onegov.service.TrackingStreamRegistry;
+import com.onegov.service.event.HealthServiceStatusChanged;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -20,6 +26,9 @@ public class HealthServiceController {
     @Autowired
     private HealthServiceService healthServiceService;
 
+    @Autowired
+    private TrackingStreamRegistry trackingStreamRegistry;
+
     @PostMapping
     public ResponseEntity<?> submitHealthService(@RequestBody HealthServiceRequest request) {
         try {
@@ -59,6 +68,20 @@ public class HealthServiceController {
         }
     }
 
+    // Pushes status and timeline changes for this tracking id as Server-Sent Events
+    @GetMapping("/track/{trackingId}/stream")
+    public ResponseEntity<SseEmitter> streamTracking(@PathVariable String trackingId) {
+        try {
+            return ResponseEntity.ok(trackingStreamRegistry.openTrackingStream(HealthServiceStatusChanged.COLLECTION, trackingId));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (StreamLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (ExecutionException | InterruptedException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<?> getUserServices(@PathVariable String userId) {
         try {
@@ -80,6 +103,9 @@ public class HealthServiceController {
             
             HealthService service = healthServiceService.updateServiceStatus(id, status, certificateNumber);
             return ResponseEntity.ok(service);
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage(), e.getCurrent()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error(e.getMessage()));
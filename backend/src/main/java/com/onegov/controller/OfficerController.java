@@ -1,13 +1,21 @@
 package com.onegov.controller;
 
+import com.onegov.dto.request.ListQueryRequest;
 import com.onegov.dto.response.ApiResponse;
+import com.onegov.dto.response.PagedResult;
+import com.onegov.exception.VersionConflictException;
+import com.onegov.exception.WorkItemConflictException;
 import com.onegov.service.OfficerService;
+import com.onegov.service.VersionedUpdater;
+import com.onegov.service.workqueue.ComplaintWorkQueue;
+import com.onegov.util.TokenClaims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
@@ -15,9 +23,14 @@ import java.util.concurrent.ExecutionException;
 @RequestMapping("/api/officer")
 public class OfficerController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private OfficerService officerService;
 
+    @Autowired
+    private ComplaintWorkQueue complaintWorkQueue;
+
     // Get Dashboard Statistics
     @GetMapping("/dashboard/stats")
     public ResponseEntity<?> getDashboardStats(@RequestParam String officerId) {
@@ -30,12 +43,26 @@ public class OfficerController {
         }
     }
 
+    // Get Status Counts (counters, not a scan) for the list pages
+    @GetMapping("/stats/counters")
+    public ResponseEntity<?> getStatusCounters() {
+        try {
+            return ResponseEntity.ok(officerService.getStatusCounters());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch status counters: " + e.getMessage()));
+        }
+    }
+
     // Get All Health Services
     @GetMapping("/health-services")
-    public ResponseEntity<?> getAllHealthServices() {
+    public ResponseEntity<?> getAllHealthServices(ListQueryRequest query) {
         try {
-            List<Map<String, Object>> services = officerService.getAllHealthServices();
-            return ResponseEntity.ok(services);
+            PagedResult<Map<String, Object>> services = officerService.getAllHealthServices(query);
+            return pageResponse(services);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to fetch health services: " + e.getMessage()));
@@ -53,9 +80,16 @@ public class OfficerController {
             String remarks = request.get("remarks");
 
             Map<String, Object> updated = officerService.updateHealthServiceStatus(
-                    serviceId, status, certificateNumber, remarks);
+                    serviceId, status, certificateNumber, remarks, currentOfficerId(),
+                    VersionedUpdater.parseVersion(request.get("version")));
             
             return ResponseEntity.ok(updated);
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage(), e.getCurrent()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error(e.getMessage()));
@@ -67,10 +101,13 @@ public class OfficerController {
 
     // Get All Applications
     @GetMapping("/applications")
-    public ResponseEntity<?> getAllApplications() {
+    public ResponseEntity<?> getAllApplications(ListQueryRequest query) {
         try {
-            List<Map<String, Object>> applications = officerService.getAllApplications();
-            return ResponseEntity.ok(applications);
+            PagedResult<Map<String, Object>> applications = officerService.getAllApplications(query);
+            return pageResponse(applications);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to fetch applications: " + e.getMessage()));
@@ -88,9 +125,16 @@ public class OfficerController {
             String remarks = request.get("remarks");
 
             Map<String, Object> updated = officerService.updateApplicationStatus(
-                    applicationId, status, officerName, remarks);
+                    applicationId, status, officerName, remarks, currentOfficerId(),
+                    VersionedUpdater.parseVersion(request.get("version")));
             
             return ResponseEntity.ok(updated);
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage(), e.getCurrent()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error(e.getMessage()));
@@ -102,10 +146,13 @@ public class OfficerController {
 
     // Get All Complaints
     @GetMapping("/complaints")
-    public ResponseEntity<?> getAllComplaints() {
+    public ResponseEntity<?> getAllComplaints(ListQueryRequest query) {
         try {
-            List<Map<String, Object>> complaints = officerService.getAllComplaints();
-            return ResponseEntity.ok(complaints);
+            PagedResult<Map<String, Object>> complaints = officerService.getAllComplaints(query, currentOfficerId());
+            return pageResponse(complaints);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to fetch complaints: " + e.getMessage()));
@@ -123,9 +170,19 @@ public class OfficerController {
             String officerName = request.get("officerName");
 
             Map<String, Object> updated = officerService.updateComplaintStatus(
-                    complaintId, status, resolution, officerName);
+                    complaintId, status, resolution, officerName, currentOfficerId(),
+                    VersionedUpdater.parseVersion(request.get("version")));
             
             return ResponseEntity.ok(updated);
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage(), e.getCurrent()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (WorkItemConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error(e.getMessage()));
@@ -135,12 +192,87 @@ public class OfficerController {
         }
     }
 
+    // Work inbox: complaints leased to this officer plus the head of their department queue
+    @GetMapping("/work/inbox")
+    public ResponseEntity<?> getWorkInbox(@RequestParam(required = false) Integer limit) {
+        try {
+            int resolved = limit == null || limit <= 0 ? 20 : Math.min(limit, 100);
+            return ResponseEntity.ok(complaintWorkQueue.inbox(requireOfficerId(), resolved));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to fetch inbox: " + e.getMessage()));
+        }
+    }
+
+    // Claim the most urgent complaint in the officer's department
+    @PostMapping("/work/next")
+    public ResponseEntity<?> claimNextComplaint() {
+        try {
+            Map<String, Object> claimed = complaintWorkQueue.claimNext(requireOfficerId());
+            if (claimed == null) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok(claimed);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (WorkItemConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to claim complaint: " + e.getMessage()));
+        }
+    }
+
+    // Extend the lease on a claimed complaint that is not started yet
+    @PostMapping("/work/{complaintId}/renew")
+    public ResponseEntity<?> renewLease(@PathVariable String complaintId) {
+        try {
+            complaintWorkQueue.renew(complaintId, requireOfficerId());
+            return ResponseEntity.ok(ApiResponse.success("Lease renewed", null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (WorkItemConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // Hand a claimed complaint back to the department queue
+    @PostMapping("/work/{complaintId}/release")
+    public ResponseEntity<?> releaseLease(@PathVariable String complaintId) {
+        try {
+            complaintWorkQueue.release(complaintId, requireOfficerId());
+            return ResponseEntity.ok(ApiResponse.success("Complaint returned to the queue", null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage(), e.getCurrent()));
+        } catch (WorkItemConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to release complaint: " + e.getMessage()));
+        }
+    }
+
     // Get All Documents for Verification
     @GetMapping("/documents")
-    public ResponseEntity<?> getAllDocuments() {
+    public ResponseEntity<?> getAllDocuments(ListQueryRequest query) {
         try {
-            List<Map<String, Object>> documents = officerService.getAllDocuments();
-            return ResponseEntity.ok(documents);
+            PagedResult<Map<String, Object>> documents = officerService.getAllDocuments(query);
+            return pageResponse(documents);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to fetch documents: " + e.getMessage()));
@@ -158,9 +290,16 @@ public class OfficerController {
             String remarks = request.get("remarks");
 
             Map<String, Object> updated = officerService.verifyDocument(
-                    documentId, verifiedBy, status, remarks);
+                    documentId, verifiedBy, status, remarks, currentOfficerId(),
+                    VersionedUpdater.parseVersion(request.get("version")));
             
             return ResponseEntity.ok(updated);
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage(), e.getCurrent()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error(e.getMessage()));
@@ -169,4 +308,33 @@ public class OfficerController {
                     .body(ApiResponse.error("Failed to verify document: " + e.getMessage()));
         }
     }
+
+    // Decisions are credited to the officer in the token; admins acting here are not tracked
+    private String currentOfficerId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof TokenClaims) {
+            TokenClaims claims = (TokenClaims) authentication.getPrincipal();
+            if ("OFFICER".equalsIgnoreCase(claims.getRole())) {
+                return claims.getUserId();
+            }
+        }
+        return null;
+    }
+
+    private String requireOfficerId() {
+        String officerId = currentOfficerId();
+        if (officerId == null) {
+            throw new IllegalArgumentException("The work queue is only available to officers");
+        }
+        return officerId;
+    }
+
+    // Page rows go in the body as before; the cursor for the next page travels in a header
+    private ResponseEntity<?> pageResponse(PagedResult<Map<String, Object>> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
 }
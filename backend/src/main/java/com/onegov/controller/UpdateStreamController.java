@@ -0,0 +1,53 @@
+package com.onegov.controller;
+
+import com.onegov.exception.StreamLimitExceededException;
+import com.onegov.service.TrackingStreamRegistry;
+import com.onegov.util.JwtUtil;
+import com.onegov.util.TokenClaims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/updates")
+public class UpdateStreamController {
+
+    @Autowired
+    private TrackingStreamRegistry trackingStreamRegistry;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    // Swaps the session token (Bearer) for a short-lived stream token to open the stream with
+    @PostMapping("/stream-token")
+    public ResponseEntity<?> createStreamToken(@AuthenticationPrincipal TokenClaims claims) {
+        if (claims == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Map<String, Object> token = new HashMap<>();
+        token.put("token", jwtUtil.generateStreamToken(claims));
+        token.put("expiresInMs", jwtUtil.getStreamTokenExpiration());
+        return ResponseEntity.ok(token);
+    }
+
+    // Status changes to any of the signed-in citizen's applications, complaints, health services
+    // and documents, as Server-Sent Events. The user comes from the token, never from the URL.
+    // Browsers connect with ?token=<stream token>, since EventSource cannot send an Authorization header
+    @GetMapping("/stream")
+    public ResponseEntity<SseEmitter> streamMyUpdates(@AuthenticationPrincipal TokenClaims claims) {
+        if (claims == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        try {
+            return ResponseEntity.ok(trackingStreamRegistry.openUserStream(claims.getUserId()));
+        } catch (StreamLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+    }
+}
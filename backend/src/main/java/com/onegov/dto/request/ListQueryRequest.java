@@ -0,0 +1,41 @@
+package com.onegov.dto.request;
+
+import lombok.Data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Query parameters shared by the officer and admin list endpoints
+@Data
+public class ListQueryRequest {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    private Integer limit;
+    private String startAfter; // cursor from the X-Next-Cursor header of the previous page
+    private String status;
+    private String department;
+    private String userId; // one citizen's records, e.g. userId=...&status=pending
+    private String from; // inclusive lower bound on the sort timestamp (updatedAt; uploadedAt for documents)
+    private String to; // exclusive upper bound on the same field
+    private String fields; // comma-separated projection, e.g. fields=trackingId,status,updatedAt
+
+    public int resolveLimit() {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    public List<String> resolveFields() {
+        if (fields == null || fields.isBlank()) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
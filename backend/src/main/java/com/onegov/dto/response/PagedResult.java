@@ -0,0 +1,15 @@
+package com.onegov.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PagedResult<T> {
+    private List<T> items;
+    private String nextCursor; // null on the last page
+}
@@ -0,0 +1,11 @@
+package com.onegov.exception;
+
+// Password hashing pool is saturated; callers should answer 429 and let the client retry
+public class HashingOverloadedException extends RuntimeException {
+    // Retry-After sent with every 429 from the hashing limiter
+    public static final String RETRY_AFTER_SECONDS = "2";
+
+    public HashingOverloadedException(String message) {
+        super(message);
+    }
+}
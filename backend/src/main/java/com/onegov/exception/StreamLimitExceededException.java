@@ -0,0 +1,8 @@
+package com.onegov.exception;
+
+// Too many open update streams (overall, or for one tracking id or user); answered with 429
+public class StreamLimitExceededException extends RuntimeException {
+    public StreamLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.onegov.exception;
+
+import java.util.Map;
+
+// A conditional write lost to a concurrent change; carries the record as it is now so the caller can
+// show it, answered with 409
+public class VersionConflictException extends RuntimeException {
+
+    private final Map<String, Object> current;
+
+    public VersionConflictException(String message, Map<String, Object> current) {
+        super(message);
+        this.current = current;
+    }
+
+    // Null when the conflict was detected by the store before the current state was read back
+    public Map<String, Object> getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,8 @@
+package com.onegov.exception;
+
+// The work item is leased to another officer, or the officer is at their lease limit; answered with 409
+public class WorkItemConflictException extends RuntimeException {
+    public WorkItemConflictException(String message) {
+        super(message);
+    }
+}
@@ -23,4 +23,5 @@ public class Application {
     private List<String> documents;
     private List<TimelineEntry> timeline;
     private Map<String, Object> formData;
+    private long version; // bumped by every conditional write, see VersionedUpdater
 }
@@ -14,13 +14,15 @@ public class Complaint {
     private String userId;
     private String trackingId;
     private String type;
+    private String department; // routing queue, derived from type
     private String category;
     private String description;
     private String status; // submitted, assigned, in_progress, resolved, closed
-    private String priority; // low, medium, high
+    private String priority; // low, medium, high, urgent
     private String assignedTo;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private String resolution;
     private LocalDateTime resolvedAt;
+    private long version; // bumped by every conditional write, see VersionedUpdater
 }
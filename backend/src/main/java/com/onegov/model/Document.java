@@ -20,4 +20,5 @@ public class Document {
     private LocalDateTime uploadedAt;
     private String verifiedBy;
     private LocalDateTime verifiedAt;
+    private long version; // bumped by every conditional write, see VersionedUpdater
 }
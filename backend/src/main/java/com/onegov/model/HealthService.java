@@ -21,4 +21,5 @@ public class HealthService {
     private LocalDateTime submittedAt;
     private LocalDateTime updatedAt;
     private LocalDateTime issuedAt;
+    private long version; // bumped by every conditional write, see VersionedUpdater
 }
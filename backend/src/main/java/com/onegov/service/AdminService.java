@@ -1,10 +1,20 @@
 package com.onegov.service;
 
-import com.google.cloud.firestore.DocumentSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onegov.dto.request.ListQueryRequest;
+import com.onegov.dto.response.PagedResult;
 import com.onegov.exception.ResourceNotFoundException;
 import com.onegov.model.Officer;
+import com.onegov.model.Scheme;
+import com.onegov.service.eligibility.SchemeRuleEngine;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.storage.IndexCatalog;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.storage.UpdatedDocument;
+import com.onegov.service.workqueue.AssignmentStrategy;
+import com.onegov.service.workqueue.ComplaintWorkQueue;
+import com.onegov.service.workqueue.OfficerDirectory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -18,7 +28,49 @@ public class AdminService {
     private FirebaseService firebaseService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private StatsCounterService statsCounterService;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private WriteBehindQueue writeBehindQueue;
+
+    @Autowired
+    private OfficerPerformanceTracker performanceTracker;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private TrackingStreamRegistry trackingStreamRegistry;
+
+    @Autowired
+    private SchemeRuleEngine schemeRuleEngine;
+
+    @Autowired
+    private EligibilityRecomputeJob eligibilityRecomputeJob;
+
+    @Autowired
+    private SchemeEligibilityIndex schemeEligibilityIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ComplaintWorkQueue complaintWorkQueue;
+
+    @Autowired
+    private OfficerDirectory officerDirectory;
 
     private static final String OFFICERS_COLLECTION = "officers";
     private static final String ADMINS_COLLECTION = "admins";
@@ -32,47 +84,66 @@ public class AdminService {
     public Map<String, Object> getSystemStats() throws ExecutionException, InterruptedException {
         Map<String, Object> stats = new HashMap<>();
 
-        // Count collections
-        List<DocumentSnapshot> officers = firebaseService.getAllDocuments(OFFICERS_COLLECTION);
-        List<DocumentSnapshot> citizens = firebaseService.getAllDocuments(USERS_COLLECTION);
-        List<DocumentSnapshot> applications = firebaseService.getAllDocuments(APPLICATIONS_COLLECTION);
-        List<DocumentSnapshot> complaints = firebaseService.getAllDocuments(COMPLAINTS_COLLECTION);
-        List<DocumentSnapshot> healthServices = firebaseService.getAllDocuments(HEALTH_SERVICES_COLLECTION);
-
-        // Count by status
-        long pendingApplications = applications.stream()
-                .filter(doc -> "submitted".equals(doc.getString("status")))
-                .count();
-        
-        long pendingComplaints = complaints.stream()
-                .filter(doc -> "pending".equals(doc.getString("status")))
-                .count();
-
-        long resolvedComplaints = complaints.stream()
-                .filter(doc -> "resolved".equals(doc.getString("status")))
-                .count();
-
-        stats.put("totalOfficers", officers.size());
-        stats.put("totalCitizens", citizens.size());
-        stats.put("totalApplications", applications.size());
-        stats.put("pendingApplications", pendingApplications);
-        stats.put("totalComplaints", complaints.size());
-        stats.put("pendingComplaints", pendingComplaints);
-        stats.put("resolvedComplaints", resolvedComplaints);
-        stats.put("totalHealthServices", healthServices.size());
+        // Served from incrementally maintained counters, no collection scans
+        stats.put("totalOfficers", statsCounterService.getTotal(OFFICERS_COLLECTION));
+        stats.put("totalCitizens", statsCounterService.getTotal(USERS_COLLECTION));
+        // Citizens registered before sign-up stored a status have none; they are active until blocked
+        long blockedCitizens = statsCounterService.getCountByStatus(USERS_COLLECTION, "blocked");
+        stats.put("blockedCitizens", blockedCitizens);
+        stats.put("activeCitizens", Math.max(0, statsCounterService.getTotal(USERS_COLLECTION) - blockedCitizens));
+        stats.put("totalApplications", statsCounterService.getTotal(APPLICATIONS_COLLECTION));
+        stats.put("pendingApplications", statsCounterService.getCountByStatus(APPLICATIONS_COLLECTION, "submitted"));
+        stats.put("totalComplaints", statsCounterService.getTotal(COMPLAINTS_COLLECTION));
+        stats.put("pendingComplaints", statsCounterService.getCountByStatus(COMPLAINTS_COLLECTION, "pending"));
+        stats.put("resolvedComplaints", statsCounterService.getCountByStatus(COMPLAINTS_COLLECTION, "resolved"));
+        stats.put("totalHealthServices", statsCounterService.getTotal(HEALTH_SERVICES_COLLECTION));
+        // For the list pages' summary cards, which only hold the rows loaded so far
+        stats.put("applicationsByStatus", statsCounterService.getCountsByStatus(APPLICATIONS_COLLECTION));
+        stats.put("complaintsByStatus", statsCounterService.getCountsByStatus(COMPLAINTS_COLLECTION));
 
         return stats;
     }
 
+    // Recount dashboard totals from the store and report any drift that was corrected
+    public Map<String, Object> reconcileSystemStats() throws ExecutionException, InterruptedException {
+        return statsCounterService.reconcile();
+    }
+
+    // Get Password Hashing Pool Statistics
+    public Map<String, Object> getHashingStats() {
+        return passwordHashingService.getStats();
+    }
+
+    // Get Deferred Write Queue Statistics
+    public Map<String, Object> getWriteBehindStats() {
+        return writeBehindQueue.getStats();
+    }
+
+    // Get Event Bus Statistics
+    public Map<String, Object> getEventStats() {
+        return eventBus.getStats();
+    }
+
+    // Get Open Update Stream Statistics
+    public Map<String, Object> getStreamStats() {
+        return trackingStreamRegistry.getStats();
+    }
+
+    // Get Read Cache Statistics
+    public Map<String, Object> getCacheStats() {
+        return entityCache.getStats();
+    }
+
     // Get All Officers
     public List<Map<String, Object>> getAllOfficers() throws ExecutionException, InterruptedException {
-        List<DocumentSnapshot> docs = firebaseService.getAllDocuments(OFFICERS_COLLECTION);
+        List<StoredDocument> docs = firebaseService.getAllDocuments(OFFICERS_COLLECTION);
         List<Map<String, Object>> officers = new ArrayList<>();
 
-        for (DocumentSnapshot doc : docs) {
+        for (StoredDocument doc : docs) {
             if (doc.exists()) {
                 Map<String, Object> officer = doc.getData();
                 officer.remove("password"); // Don't send password
+                officer.put("performance", performanceTracker.currentPerformance(doc.getId(), officer.get("performance")));
                 officers.add(officer);
             }
         }
@@ -82,7 +153,7 @@ public class AdminService {
 
     // Get Officer by ID
     public Map<String, Object> getOfficerById(String officerId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = firebaseService.getDocument(OFFICERS_COLLECTION, officerId);
+        StoredDocument doc = firebaseService.getDocument(OFFICERS_COLLECTION, officerId);
         
         if (!doc.exists()) {
             throw new ResourceNotFoundException("Officer not found");
@@ -90,6 +161,7 @@ public class AdminService {
 
         Map<String, Object> officer = doc.getData();
         officer.remove("password"); // Don't send password
+        officer.put("performance", performanceTracker.currentPerformance(officerId, officer.get("performance")));
         return officer;
     }
 
@@ -110,7 +182,7 @@ public class AdminService {
         
         // Hash password
         String password = (String) officerData.get("password");
-        String hashedPassword = passwordEncoder.encode(password);
+        String hashedPassword = passwordHashingService.encode(PasswordHashingService.OFFICER, password);
 
         // Prepare officer data
         Map<String, Object> officer = new HashMap<>();
@@ -136,6 +208,8 @@ public class AdminService {
 
         // Save to Firestore
         firebaseService.createDocument(OFFICERS_COLLECTION, officerId, officer);
+        statsCounterService.recordCreated(OFFICERS_COLLECTION, "active");
+        officerDirectory.refresh();
 
         // Return without password
         officer.remove("password");
@@ -146,12 +220,6 @@ public class AdminService {
     public Map<String, Object> updateOfficer(String officerId, Map<String, Object> updates) 
             throws ExecutionException, InterruptedException {
         
-        DocumentSnapshot doc = firebaseService.getDocument(OFFICERS_COLLECTION, officerId);
-        
-        if (!doc.exists()) {
-            throw new ResourceNotFoundException("Officer not found");
-        }
-
         // Remove fields that shouldn't be updated directly
         updates.remove("officerId");
         updates.remove("password");
@@ -160,90 +228,214 @@ public class AdminService {
         
         updates.put("updatedAt", LocalDateTime.now().toString());
 
-        firebaseService.updateDocument(OFFICERS_COLLECTION, officerId, updates);
+        // One store call returns the record before and after, so nothing is read around the write
+        UpdatedDocument result = firebaseService.updateAndGet(OFFICERS_COLLECTION, officerId, updates);
+        if (!result.exists()) {
+            throw new ResourceNotFoundException("Officer not found");
+        }
+
+        entityCache.invalidate(OFFICERS_COLLECTION, officerId);
+        if (updates.containsKey("status")) {
+            statsCounterService.recordStatusChange(OFFICERS_COLLECTION,
+                    result.getBefore().getString("status"), (String) updates.get("status"));
+            tokenRevocationList.updateFromStatus(officerId, (String) updates.get("status"));
+        }
+        if (updates.containsKey("status") || updates.containsKey("department")) {
+            officerDirectory.refresh();
+        }
 
         // Return updated officer
-        DocumentSnapshot updated = firebaseService.getDocument(OFFICERS_COLLECTION, officerId);
-        Map<String, Object> officer = updated.getData();
+        Map<String, Object> officer = result.getAfter().getData();
         officer.remove("password");
         return officer;
     }
 
     // Delete Officer
     public void deleteOfficer(String officerId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = firebaseService.getDocument(OFFICERS_COLLECTION, officerId);
+        StoredDocument doc = firebaseService.getDocument(OFFICERS_COLLECTION, officerId);
         
         if (!doc.exists()) {
             throw new ResourceNotFoundException("Officer not found");
         }
 
         firebaseService.deleteDocument(OFFICERS_COLLECTION, officerId);
-    }
 
-    // Get All Citizens
-    public List<Map<String, Object>> getAllCitizens() throws ExecutionException, InterruptedException {
-        List<DocumentSnapshot> docs = firebaseService.getAllDocuments(USERS_COLLECTION);
-        List<Map<String, Object>> citizens = new ArrayList<>();
-
-        for (DocumentSnapshot doc : docs) {
-            if (doc.exists()) {
-                Map<String, Object> citizen = doc.getData();
-                citizen.remove("password"); // Don't send password
-                citizens.add(citizen);
-            }
-        }
+        entityCache.invalidate(OFFICERS_COLLECTION, officerId);
+        statsCounterService.recordDeleted(OFFICERS_COLLECTION, doc.getString("status"));
+        tokenRevocationList.revoke(officerId);
+        performanceTracker.forget(officerId);
+        officerDirectory.refresh();
+    }
 
-        return citizens;
+    // Get a page of citizens
+    public PagedResult<Map<String, Object>> getAllCitizens(ListQueryRequest request)
+            throws ExecutionException, InterruptedException {
+        PagedResult<Map<String, Object>> page = ListQueries.toResult(firebaseService.queryPage(
+                ListQueries.newestFirst(USERS_COLLECTION, "status", "updatedAt", request)));
+        page.getItems().forEach(citizen -> citizen.remove("password")); // Don't send password
+        return page;
     }
 
     // Block/Unblock Citizen
     public Map<String, Object> updateCitizenStatus(String userId, String status) 
             throws ExecutionException, InterruptedException {
         
-        DocumentSnapshot doc = firebaseService.getDocument(USERS_COLLECTION, userId);
-        
-        if (!doc.exists()) {
-            throw new ResourceNotFoundException("Citizen not found");
-        }
-
         Map<String, Object> updates = new HashMap<>();
         updates.put("status", status);
         updates.put("updatedAt", LocalDateTime.now().toString());
 
-        firebaseService.updateDocument(USERS_COLLECTION, userId, updates);
+        UpdatedDocument result = firebaseService.updateAndGet(USERS_COLLECTION, userId, updates);
+        if (!result.exists()) {
+            throw new ResourceNotFoundException("Citizen not found");
+        }
+
+        entityCache.invalidate(USERS_COLLECTION, userId);
+        statsCounterService.recordStatusChange(USERS_COLLECTION, result.getBefore().getString("status"), status);
+        tokenRevocationList.updateFromStatus(userId, status);
 
         // Return updated citizen
-        DocumentSnapshot updated = firebaseService.getDocument(USERS_COLLECTION, userId);
-        Map<String, Object> citizen = updated.getData();
+        Map<String, Object> citizen = result.getAfter().getData();
         citizen.remove("password");
         return citizen;
     }
 
-    // Get All Applications (Admin view)
-    public List<Map<String, Object>> getAllApplications() throws ExecutionException, InterruptedException {
-        List<DocumentSnapshot> docs = firebaseService.getAllDocuments(APPLICATIONS_COLLECTION);
-        List<Map<String, Object>> applications = new ArrayList<>();
+    // Get a page of applications (Admin view)
+    public PagedResult<Map<String, Object>> getAllApplications(ListQueryRequest request)
+            throws ExecutionException, InterruptedException {
+        return ListQueries.toResult(firebaseService.queryPage(
+                ListQueries.newestFirst(APPLICATIONS_COLLECTION, "status", "updatedAt", request)));
+    }
+
+    // Get a page of complaints (Admin view)
+    public PagedResult<Map<String, Object>> getAllComplaints(ListQueryRequest request)
+            throws ExecutionException, InterruptedException {
+        return ListQueries.toResult(firebaseService.queryPage(
+                ListQueries.newestFirst(COMPLAINTS_COLLECTION, "status", "updatedAt", request)));
+    }
+
+    // Bulk import officers (json or csv)
+    public Map<String, Object> importOfficers(String format, String body, String createdBy)
+            throws ExecutionException, InterruptedException {
+        return bulkImportService.importOfficers(format, body, createdBy);
+    }
+
+    // Bulk import historical applications (json or csv)
+    public Map<String, Object> importApplications(String format, String body)
+            throws ExecutionException, InterruptedException {
+        return bulkImportService.importApplications(format, body);
+    }
+
+    // Get All Schemes (as currently loaded by the rule engine)
+    public List<Scheme> getSchemes() {
+        return schemeRuleEngine.getSchemes();
+    }
+
+    // Create or Replace Scheme, then reload so new profiles are evaluated against it immediately
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> saveScheme(String schemeId, Scheme scheme) throws ExecutionException, InterruptedException {
+        scheme.setSchemeId(schemeId);
+        schemeRuleEngine.validate(scheme);
+
+        Map<String, Object> data = objectMapper.convertValue(scheme, Map.class);
+        firebaseService.createDocument(SchemeRuleEngine.SCHEMES_COLLECTION, schemeId, data);
+
+        return reloadSchemes();
+    }
+
+    // Reload Scheme Catalogue
+    public Map<String, Object> reloadSchemes() {
+        boolean changed = schemeRuleEngine.reload();
+        Map<String, Object> result = new HashMap<>(schemeRuleEngine.getStats());
+        result.put("changed", changed);
+        return result;
+    }
+
+    // Re-evaluate Stored Profiles against the current rules; resume continues a checkpointed run
+    public Map<String, Object> recomputeEligibility(boolean resume) throws ExecutionException, InterruptedException {
+        boolean started = eligibilityRecomputeJob.start(resume);
+        Map<String, Object> result = new HashMap<>(eligibilityRecomputeJob.getStatus());
+        result.put("started", started);
+        return result;
+    }
+
+    public Map<String, Object> getRecomputeStatus() throws ExecutionException, InterruptedException {
+        return eligibilityRecomputeJob.getStatus();
+    }
+
+    // Count Citizens Eligible for all (or any) of the Schemes, optionally within some states
+    public Map<String, Object> countEligibleCitizens(List<String> schemeIds, String match, List<String> states) {
+        return schemeEligibilityIndex.count(requireSchemes(schemeIds), matchAll(match), states);
+    }
 
-        for (DocumentSnapshot doc : docs) {
+    // Page Through Eligible Citizens; rows are the stored profiles
+    public PagedResult<Map<String, Object>> getEligibleCitizens(List<String> schemeIds, String match, List<String> states,
+                                                                String cursor, int limit)
+            throws ExecutionException, InterruptedException {
+        if (limit < 1 || limit > 500) {
+            throw new IllegalArgumentException("limit must be between 1 and 500");
+        }
+        SchemeEligibilityIndex.Page page = schemeEligibilityIndex.page(requireSchemes(schemeIds), matchAll(match),
+                states, cursor, limit);
+        // The page's profiles come back from one batched read (cached ones aside), not one read each
+        List<Map<String, Object>> profiles = new ArrayList<>();
+        for (StoredDocument doc : entityCache.getDocuments("citizen_profiles", page.getProfileIds())) {
             if (doc.exists()) {
-                applications.add(doc.getData());
+                profiles.add(doc.getData());
             }
         }
+        return new PagedResult<>(profiles, page.getNextCursor());
+    }
 
-        return applications;
+    public Map<String, Object> getEligibilityIndexStats() {
+        return schemeEligibilityIndex.getStats();
     }
 
-    // Get All Complaints (Admin view)
-    public List<Map<String, Object>> getAllComplaints() throws ExecutionException, InterruptedException {
-        List<DocumentSnapshot> docs = firebaseService.getAllDocuments(COMPLAINTS_COLLECTION);
-        List<Map<String, Object>> complaints = new ArrayList<>();
+    // Assign a department's queued complaints to its active officers, up to their lease limit
+    public Map<String, Object> distributeComplaints(String department, String strategy)
+            throws ExecutionException, InterruptedException {
+        if (department == null || department.isBlank()) {
+            throw new IllegalArgumentException("department is required");
+        }
+        AssignmentStrategy resolved;
+        try {
+            resolved = strategy == null ? AssignmentStrategy.LEAST_LOADED
+                    : AssignmentStrategy.valueOf(strategy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("strategy must be least_loaded or round_robin");
+        }
+        return complaintWorkQueue.distribute(department, resolved);
+    }
 
-        for (DocumentSnapshot doc : docs) {
-            if (doc.exists()) {
-                complaints.add(doc.getData());
-            }
+    public Map<String, Object> getWorkQueueStats() {
+        return complaintWorkQueue.getStats();
+    }
+
+    // Composite indexes the list queries rely on, as firestore.indexes.json
+    public Map<String, Object> getStorageIndexConfig() {
+        return IndexCatalog.firestoreConfig();
+    }
+
+    private static List<String> requireSchemes(List<String> schemeIds) {
+        if (schemeIds == null || schemeIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one scheme id is required");
+        }
+        return schemeIds;
+    }
+
+    private static boolean matchAll(String match) {
+        if ("all".equalsIgnoreCase(match)) {
+            return true;
+        }
+        if ("any".equalsIgnoreCase(match)) {
+            return false;
         }
+        throw new IllegalArgumentException("match must be all or any");
+    }
 
-        return complaints;
+    public Map<String, Object> cancelRecompute() throws ExecutionException, InterruptedException {
+        boolean cancelled = eligibilityRecomputeJob.cancel();
+        Map<String, Object> result = new HashMap<>(eligibilityRecomputeJob.getStatus());
+        result.put("cancelRequested", cancelled);
+        return result;
     }
 }
@@ -1,16 +1,23 @@
 package com.onegov.service;
 
-import com.google.cloud.firestore.DocumentSnapshot;
 import com.onegov.dto.request.ApplicationRequest;
 import com.onegov.exception.ResourceNotFoundException;
 import com.onegov.model.Application;
 import com.onegov.model.OfficerInfo;
 import com.onegov.model.TimelineEntry;
+import com.onegov.service.event.ApplicationStatusChanged;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.storage.UpdatedDocument;
+import com.onegov.service.storage.WriteOperation;
+import com.onegov.service.timeline.ApplicationTimelineStore;
+import com.onegov.util.TrackingIdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
@@ -20,11 +27,35 @@ public class ApplicationService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Autowired
+    private AsyncFirebaseService asyncFirebaseService;
+
+    @Autowired
+    private StatsCounterService statsCounterService;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private TrackingIdGenerator trackingIdGenerator;
+
+    @Autowired
+    private TrackingIndex trackingIndex;
+
+    @Autowired
+    private ApplicationTimelineStore timelineStore;
+
+    @Autowired
+    private VersionedUpdater versionedUpdater;
+
     private static final String APPLICATIONS_COLLECTION = "applications";
 
     public Application submitApplication(ApplicationRequest request) throws ExecutionException, InterruptedException {
         String applicationId = UUID.randomUUID().toString();
-        String trackingId = "APP" + System.currentTimeMillis();
+        String trackingId = trackingIdGenerator.nextId("APP");
 
         Application application = new Application();
         application.setApplicationId(applicationId);
@@ -48,31 +79,78 @@ public class ApplicationService {
         timeline.add(initialEntry);
         application.setTimeline(timeline);
 
-        // Save to Firestore
+        // Save to Firestore; the first timeline entry goes into the timeline sub-collection in the same batch
         Map<String, Object> appData = convertToMap(application);
-        firebaseService.createDocument(APPLICATIONS_COLLECTION, applicationId, appData);
+        firebaseService.writeBatch(List.of(
+                WriteOperation.set(APPLICATIONS_COLLECTION, applicationId, appData),
+                timelineStore.appendOperation(applicationId, initialEntry)));
+        trackingIndex.register(trackingId, APPLICATIONS_COLLECTION, applicationId);
+        statsCounterService.recordCreated(APPLICATIONS_COLLECTION, application.getStatus());
 
         return application;
     }
 
     public Application getApplicationById(String applicationId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = firebaseService.getDocument(APPLICATIONS_COLLECTION, applicationId);
+        StoredDocument doc = entityCache.getDocument(APPLICATIONS_COLLECTION, applicationId);
         
         if (!doc.exists()) {
             throw new ResourceNotFoundException("Application not found");
         }
 
-        return convertToApplication(doc);
+        return withTimeline(doc);
     }
 
     public Application getApplicationByTrackingId(String trackingId) throws ExecutionException, InterruptedException {
-        var docs = firebaseService.queryDocuments(APPLICATIONS_COLLECTION, "trackingId", trackingId);
+        StoredDocument doc = entityCache.findByTrackingId(APPLICATIONS_COLLECTION, trackingId);
         
-        if (docs.isEmpty()) {
+        if (!doc.exists()) {
             throw new ResourceNotFoundException("Application not found");
         }
 
-        return convertToApplication(docs.get(0));
+        return withTimeline(doc);
+    }
+
+    // Non-blocking variants for controllers that return the future directly
+    public CompletableFuture<Application> getApplicationByIdAsync(String id) {
+        return entityCache.getDocumentAsync(APPLICATIONS_COLLECTION, id)
+                .thenCompose(doc -> {
+                    if (!doc.exists()) {
+                        throw new ResourceNotFoundException("Application not found");
+                    }
+                    return withTimelineAsync(doc);
+                });
+    }
+
+    public CompletableFuture<Application> getApplicationByTrackingIdAsync(String trackingId) {
+        return entityCache.findByTrackingIdAsync(APPLICATIONS_COLLECTION, trackingId)
+                .thenCompose(doc -> {
+                    if (!doc.exists()) {
+                        throw new ResourceNotFoundException("Application not found");
+                    }
+                    return withTimelineAsync(doc);
+                });
+    }
+
+    // Single reads carry the timeline; lists leave it null so they don't fan out per application
+    private Application withTimeline(StoredDocument doc) throws ExecutionException, InterruptedException {
+        Application app = convertToApplication(doc);
+        app.setTimeline(timelineStore.load(doc));
+        return app;
+    }
+
+    private CompletableFuture<Application> withTimelineAsync(StoredDocument doc) {
+        Application app = convertToApplication(doc);
+        return timelineStore.loadAsync(doc).thenApply(timeline -> {
+            app.setTimeline(timeline);
+            return app;
+        });
+    }
+
+    public CompletableFuture<List<Application>> getUserApplicationsAsync(String userId) {
+        return asyncFirebaseService.queryDocumentsAsync(APPLICATIONS_COLLECTION, "userId", userId)
+                .thenApply(docs -> docs.stream()
+                        .map(this::convertToApplication)
+                        .collect(Collectors.toList()));
     }
 
     public List<Application> getUserApplications(String userId) throws ExecutionException, InterruptedException {
@@ -85,32 +163,28 @@ public class ApplicationService {
 
     public Application updateApplicationStatus(String applicationId, String status, String officerName, String officerId) 
             throws ExecutionException, InterruptedException {
-        Application application = getApplicationById(applicationId);
-        
-        application.setStatus(status);
-        application.setUpdatedAt(LocalDateTime.now());
-
         // Add timeline entry
         TimelineEntry entry = new TimelineEntry();
         entry.setStage(getStageFromStatus(status));
         entry.setStatus("completed");
         entry.setTimestamp(LocalDateTime.now());
         entry.setOfficer(new OfficerInfo(officerName, officerId));
-        
-        List<TimelineEntry> timeline = application.getTimeline();
-        if (timeline == null) {
-            timeline = new ArrayList<>();
-        }
-        timeline.add(entry);
-        application.setTimeline(timeline);
 
-        // Update in Firestore
         Map<String, Object> updates = new HashMap<>();
         updates.put("status", status);
         updates.put("updatedAt", LocalDateTime.now().toString());
-        updates.put("timeline", convertTimelineToMap(timeline));
 
-        firebaseService.updateDocument(APPLICATIONS_COLLECTION, applicationId, updates);
+        // Status and the new timeline entry are committed together, and only if nobody changed the
+        // application since it was read
+        UpdatedDocument updated = versionedUpdater.update(APPLICATIONS_COLLECTION, applicationId, null, "status",
+                "Application not found", current -> updates,
+                List.of(timelineStore.appendOperation(applicationId, entry)));
+        String previousStatus = updated.getBefore().getString("status");
+        // The response carries the whole timeline, including the entry just added, like a single read
+        Application application = withTimeline(updated.getAfter());
+        eventBus.publish(new ApplicationStatusChanged(applicationId, application.getUserId(),
+                application.getTrackingId(), previousStatus, status, null,
+                Objects.toString(application.getSubmittedAt(), null)));
 
         return application;
     }
@@ -126,7 +200,7 @@ public class ApplicationService {
         }
     }
 
-    private Map<String, Object> convertToMap(Application app) {
+    Map<String, Object> convertToMap(Application app) {
         Map<String, Object> map = new HashMap<>();
         map.put("applicationId", app.getApplicationId());
         map.put("userId", app.getUserId());
@@ -138,27 +212,12 @@ public class ApplicationService {
         map.put("updatedAt", app.getUpdatedAt().toString());
         map.put("documents", app.getDocuments());
         map.put("formData", app.getFormData());
-        map.put("timeline", convertTimelineToMap(app.getTimeline()));
+        map.put("version", app.getVersion());
+        // The timeline lives in its own sub-collection, see ApplicationTimelineStore
         return map;
     }
 
-    private List<Map<String, Object>> convertTimelineToMap(List<TimelineEntry> timeline) {
-        return timeline.stream().map(entry -> {
-            Map<String, Object> map = new HashMap<>();
-            map.put("stage", entry.getStage());
-            map.put("status", entry.getStatus());
-            map.put("timestamp", entry.getTimestamp().toString());
-            if (entry.getOfficer() != null) {
-                Map<String, String> officer = new HashMap<>();
-                officer.put("name", entry.getOfficer().getName());
-                officer.put("id", entry.getOfficer().getId());
-                map.put("officer", officer);
-            }
-            return map;
-        }).collect(Collectors.toList());
-    }
-
-    private Application convertToApplication(DocumentSnapshot doc) {
+    Application convertToApplication(StoredDocument doc) {
         Application app = new Application();
         app.setApplicationId(doc.getString("applicationId"));
         app.setUserId(doc.getString("userId"));
@@ -170,7 +229,8 @@ public class ApplicationService {
         app.setUpdatedAt(LocalDateTime.parse(doc.getString("updatedAt")));
         app.setDocuments((List<String>) doc.get("documents"));
         app.setFormData((Map<String, Object>) doc.get("formData"));
-        // Timeline conversion would go here
+        app.setVersion(doc.getVersion());
+        // Timeline is hydrated separately by the single-application reads
         return app;
     }
 }
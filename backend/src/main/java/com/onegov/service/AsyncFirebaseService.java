@@ -0,0 +1,19 @@
+package com.onegov.service;
+
+import com.onegov.service.storage.StoredDocument;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking view of the persistence port. Futures complete on the storage
+ * client's callback thread, so no request thread waits on network I/O.
+ * Storage failures complete the future with an ExecutionException, the same
+ * type the blocking FirebaseService throws.
+ */
+public interface AsyncFirebaseService {
+
+    CompletableFuture<StoredDocument> getDocumentAsync(String collection, String documentId);
+
+    CompletableFuture<List<StoredDocument>> queryDocumentsAsync(String collection, String field, Object value);
+}
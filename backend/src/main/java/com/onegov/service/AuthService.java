@@ -1,6 +1,5 @@
 package com.onegov.service;
 
-import com.google.cloud.firestore.DocumentSnapshot;
 import com.onegov.dto.request.AdminLoginRequest;
 import com.onegov.dto.request.LoginRequest;
 import com.onegov.dto.request.OfficerLoginRequest;
@@ -12,9 +11,9 @@ import com.onegov.exception.ResourceNotFoundException;
 import com.onegov.model.Admin;
 import com.onegov.model.Officer;
 import com.onegov.model.User;
+import com.onegov.service.storage.StoredDocument;
 import com.onegov.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -30,11 +29,20 @@ public class AuthService {
     private FirebaseService firebaseService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private StatsCounterService statsCounterService;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private WriteBehindQueue writeBehindQueue;
+
     private static final String USERS_COLLECTION = "users";
     private static final String OFFICERS_COLLECTION = "officers";
     private static final String ADMINS_COLLECTION = "admins";
@@ -51,7 +59,7 @@ public class AuthService {
         User user = new User();
         user.setUserId(userId);
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashingService.encode(PasswordHashingService.CITIZEN, request.getPassword()));
         user.setName(request.getName());
         user.setPhone(request.getPhone());
         user.setRole(request.getRole());
@@ -66,10 +74,12 @@ public class AuthService {
         userData.put("name", user.getName());
         userData.put("phone", user.getPhone());
         userData.put("role", user.getRole());
+        userData.put("status", "active");
         userData.put("createdAt", user.getCreatedAt().toString());
         userData.put("updatedAt", user.getUpdatedAt().toString());
 
         firebaseService.createDocument(USERS_COLLECTION, userId, userData);
+        statsCounterService.recordCreated(USERS_COLLECTION, "active");
 
         // Generate JWT token
         String token = jwtUtil.generateToken(userId, user.getEmail(), user.getRole());
@@ -88,13 +98,15 @@ public class AuthService {
             throw new ResourceNotFoundException("User not found");
         }
 
-        DocumentSnapshot userDoc = users.get(0);
+        StoredDocument userDoc = users.get(0);
         String storedPassword = userDoc.getString("password");
 
         // Verify password
-        if (!passwordEncoder.matches(request.getPassword(), storedPassword)) {
+        if (!passwordHashingService.matches(request.getPassword(), storedPassword)) {
             throw new RuntimeException("Invalid credentials");
         }
+        upgradePasswordHash(USERS_COLLECTION, userDoc.getId(), PasswordHashingService.CITIZEN,
+                request.getPassword(), storedPassword);
 
         // Create user object
         User user = new User();
@@ -111,7 +123,7 @@ public class AuthService {
     }
 
     public User getUserById(String userId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot userDoc = firebaseService.getDocument(USERS_COLLECTION, userId);
+        StoredDocument userDoc = entityCache.getDocument(USERS_COLLECTION, userId);
         
         if (!userDoc.exists()) {
             throw new ResourceNotFoundException("User not found");
@@ -141,11 +153,11 @@ public class AuthService {
             throw new ResourceNotFoundException("Officer not found");
         }
 
-        DocumentSnapshot officerDoc = officers.get(0);
+        StoredDocument officerDoc = officers.get(0);
         String storedPassword = officerDoc.getString("password");
 
         // Verify password
-        if (!passwordEncoder.matches(request.getPassword(), storedPassword)) {
+        if (!passwordHashingService.matches(request.getPassword(), storedPassword)) {
             throw new RuntimeException("Invalid credentials");
         }
 
@@ -154,6 +166,8 @@ public class AuthService {
         if (!"active".equals(status)) {
             throw new RuntimeException("Officer account is inactive");
         }
+        upgradePasswordHash(OFFICERS_COLLECTION, officerDoc.getId(), PasswordHashingService.OFFICER,
+                request.getPassword(), storedPassword);
 
         // Create officer object
         Officer officer = new Officer();
@@ -173,7 +187,7 @@ public class AuthService {
     }
 
     public Officer getOfficerById(String officerId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot officerDoc = firebaseService.getDocument(OFFICERS_COLLECTION, officerId);
+        StoredDocument officerDoc = entityCache.getDocument(OFFICERS_COLLECTION, officerId);
         
         if (!officerDoc.exists()) {
             throw new ResourceNotFoundException("Officer not found");
@@ -201,13 +215,15 @@ public class AuthService {
             throw new ResourceNotFoundException("Admin not found");
         }
 
-        DocumentSnapshot adminDoc = admins.get(0);
+        StoredDocument adminDoc = admins.get(0);
         String storedPassword = adminDoc.getString("password");
 
         // Verify password
-        if (!passwordEncoder.matches(request.getPassword(), storedPassword)) {
+        if (!passwordHashingService.matches(request.getPassword(), storedPassword)) {
             throw new RuntimeException("Invalid credentials");
         }
+        upgradePasswordHash(ADMINS_COLLECTION, adminDoc.getId(), PasswordHashingService.ADMIN,
+                request.getPassword(), storedPassword);
 
         // Create admin object
         Admin admin = new Admin();
@@ -218,10 +234,10 @@ public class AuthService {
         admin.setRole(adminDoc.getString("role"));
         admin.setLastLogin(LocalDateTime.now());
 
-        // Update last login in Firestore
+        // Last login is informational; defer the write so login doesn't wait on it
         Map<String, Object> updates = new HashMap<>();
         updates.put("lastLogin", admin.getLastLogin().toString());
-        firebaseService.updateDocument(ADMINS_COLLECTION, admin.getAdminId(), updates);
+        writeBehindQueue.enqueue(ADMINS_COLLECTION, admin.getAdminId(), updates);
 
         // Generate JWT token with role
         String token = jwtUtil.generateToken(admin.getAdminId(), admin.getEmail(), "ADMIN");
@@ -230,7 +246,7 @@ public class AuthService {
     }
 
     public Admin getAdminById(String adminId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot adminDoc = firebaseService.getDocument(ADMINS_COLLECTION, adminId);
+        StoredDocument adminDoc = entityCache.getDocument(ADMINS_COLLECTION, adminId);
         
         if (!adminDoc.exists()) {
             throw new ResourceNotFoundException("Admin not found");
@@ -245,4 +261,22 @@ public class AuthService {
 
         return admin;
     }
+
+    // Re-hash with the currently configured cost after a successful login, off the request path
+    private void upgradePasswordHash(String collection, String documentId, String accountType,
+                                     String rawPassword, String storedPassword) {
+        if (!passwordHashingService.needsRehash(accountType, storedPassword)) {
+            return;
+        }
+        passwordHashingService.rehashInBackground(accountType, rawPassword, newHash -> {
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("password", newHash);
+            try {
+                firebaseService.updateDocument(collection, documentId, updates);
+                entityCache.invalidate(collection, documentId);
+            } catch (ExecutionException | InterruptedException e) {
+                System.err.println("Failed to store upgraded password hash: " + e.getMessage());
+            }
+        });
+    }
 }
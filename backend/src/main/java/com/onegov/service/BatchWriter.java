@@ -0,0 +1,168 @@
+package com.onegov.service;
+
+import com.onegov.exception.VersionConflictException;
+import com.onegov.service.storage.WriteOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Groups single writes into store batches. A session buffers operations and commits
+ * a chunk when it reaches the batch size or has been open longer than the flush interval;
+ * a failed chunk is retried with backoff, and if it still fails its documents (as
+ * collection/id) are reported in the result while the remaining chunks carry on. Writes
+ * that only make sense together go in with addAll, which keeps them in one chunk so they
+ * commit or fail as a unit. A conditional write that loses its check fails the whole chunk,
+ * so a conflicting chunk is not retried but split into its groups, each committed on its own;
+ * the groups that conflict again are reported by isConflicted and the others land.
+ */
+@Component
+public class BatchWriter {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Value("${batch.max-size:500}")
+    private int maxSize;
+
+    @Value("${batch.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${batch.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${batch.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    private static String key(String collection, String documentId) {
+        return collection + "/" + documentId;
+    }
+
+    public Session openSession() {
+        return new Session(Math.min(maxSize, firebaseService.getMaxBatchSize()));
+    }
+
+    // Not thread-safe: one producer per session
+    public final class Session implements AutoCloseable {
+
+        private final int chunkSize;
+        private final List<List<WriteOperation>> pending = new ArrayList<>();
+        private int pendingSize;
+        private final long startedAt = System.currentTimeMillis();
+        private long oldestPendingAt;
+
+        private long written;
+        private int chunks;
+        private int retries;
+        private final Set<String> failedIds = new LinkedHashSet<>();
+        private final Set<String> conflictedIds = new LinkedHashSet<>();
+        private final List<String> errors = new ArrayList<>();
+
+        private Session(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public void add(WriteOperation operation) throws InterruptedException {
+            addAll(List.of(operation));
+        }
+
+        // All of group lands in the same chunk: the pending chunk is flushed first if group would not fit
+        public void addAll(List<WriteOperation> group) throws InterruptedException {
+            if (group.size() > chunkSize) {
+                throw new IllegalArgumentException("A group of " + group.size()
+                        + " writes does not fit in one batch of " + chunkSize);
+            }
+            if (pendingSize + group.size() > chunkSize) {
+                flush();
+            }
+            if (pending.isEmpty()) {
+                oldestPendingAt = System.currentTimeMillis();
+            }
+            pending.add(group);
+            pendingSize += group.size();
+            if (pendingSize >= chunkSize || System.currentTimeMillis() - oldestPendingAt >= flushIntervalMs) {
+                flush();
+            }
+        }
+
+        public void flush() throws InterruptedException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<List<WriteOperation>> groups = new ArrayList<>(pending);
+            pending.clear();
+            pendingSize = 0;
+            chunks++;
+            commitWithRetry(groups);
+        }
+
+        private void commitWithRetry(List<List<WriteOperation>> groups) throws InterruptedException {
+            List<WriteOperation> chunk = new ArrayList<>();
+            groups.forEach(chunk::addAll);
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    firebaseService.writeBatch(chunk);
+                    written += chunk.size();
+                    return;
+                } catch (VersionConflictException e) {
+                    if (groups.size() == 1) {
+                        chunk.forEach(operation -> conflictedIds.add(
+                                key(operation.getCollection(), operation.getDocumentId())));
+                        return;
+                    }
+                    for (List<WriteOperation> group : groups) {
+                        commitWithRetry(List.of(group));
+                    }
+                    return;
+                } catch (ExecutionException | RuntimeException e) {
+                    if (attempt >= maxRetries) {
+                        chunk.forEach(operation -> failedIds.add(
+                                key(operation.getCollection(), operation.getDocumentId())));
+                        errors.add(e.getMessage());
+                        System.err.println("Batch of " + chunk.size() + " writes failed after "
+                                + (attempt + 1) + " attempts: " + e.getMessage());
+                        return;
+                    }
+                    retries++;
+                    Thread.sleep(retryBackoffMs << attempt);
+                }
+            }
+        }
+
+        // Document ids repeat across collections (an application and its tracking index entry), so both are needed
+        public boolean isFailed(String collection, String documentId) {
+            return failedIds.contains(key(collection, documentId));
+        }
+
+        // Lost a version/update-time check: someone else changed the document, so nothing of its group was written
+        public boolean isConflicted(String collection, String documentId) {
+            return conflictedIds.contains(key(collection, documentId));
+        }
+
+        public Map<String, Object> getResult() {
+            Map<String, Object> result = new HashMap<>();
+            result.put("written", written);
+            result.put("failed", failedIds.size());
+            result.put("failedIds", new ArrayList<>(failedIds));
+            result.put("conflicted", conflictedIds.size());
+            result.put("errors", new ArrayList<>(errors));
+            result.put("chunks", chunks);
+            result.put("retries", retries);
+            result.put("elapsedMs", System.currentTimeMillis() - startedAt);
+            return result;
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            flush();
+        }
+    }
+}
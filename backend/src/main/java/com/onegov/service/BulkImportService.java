@@ -0,0 +1,401 @@
+package com.onegov.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onegov.model.OfficerInfo;
+import com.onegov.model.TimelineEntry;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.storage.WriteOperation;
+import com.onegov.service.timeline.ApplicationTimelineStore;
+import com.onegov.util.CsvReader;
+import com.onegov.util.TrackingIdGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Admin bulk import of officers and historical applications from JSON arrays or CSV
+ * (header row required). Valid rows are written through BatchWriter; invalid rows are
+ * skipped and reported with their row number.
+ */
+@Service
+public class BulkImportService {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private BatchWriter batchWriter;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private StatsCounterService statsCounterService;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private TrackingIdGenerator trackingIdGenerator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationTimelineStore timelineStore;
+
+    private static final String OFFICERS_COLLECTION = "officers";
+    private static final String APPLICATIONS_COLLECTION = "applications";
+
+    // Only the first rejections are listed; the count covers all of them
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    // Application rows whose supplied ids are checked against the store together, with one read per id kind
+    private static final int EXISTENCE_CHECK_ROWS = 100;
+
+    public Map<String, Object> importOfficers(String format, String body, String createdBy)
+            throws ExecutionException, InterruptedException {
+        List<Map<String, Object>> records = parseRecords(format, body);
+
+        Set<String> knownEmails = new HashSet<>();
+        Set<String> knownIds = new HashSet<>();
+        for (StoredDocument doc : firebaseService.getAllDocuments(OFFICERS_COLLECTION)) {
+            knownIds.add(doc.getId());
+            String email = doc.getString("email");
+            if (email != null) {
+                knownEmails.add(email.toLowerCase(Locale.ROOT));
+            }
+        }
+
+        // Every row is validated and its password hashed before anything is queued. If the hashing pool is
+        // saturated (HashingOverloadedException, 429) the import fails having written nothing, not half a file
+        ImportReport report = new ImportReport(records.size());
+        List<Map<String, Object>> officers = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            Map<String, Object> record = records.get(i);
+            String email = text(record, "email");
+            String name = text(record, "name");
+            if (email == null || name == null) {
+                report.reject(i, "email and name are required");
+                continue;
+            }
+            // Migrations may carry an existing BCrypt hash; plain passwords are hashed here
+            String passwordHash = text(record, "passwordHash");
+            String password = text(record, "password");
+            boolean hashed = passwordHash != null && passwordHash.startsWith("$2");
+            if (!hashed && password == null) {
+                report.reject(i, "password or passwordHash is required");
+                continue;
+            }
+            String suppliedId = text(record, "officerId");
+            if (suppliedId != null && !knownIds.add(suppliedId)) {
+                report.reject(i, "officer " + suppliedId + " already exists");
+                continue;
+            }
+            if (!knownEmails.add(email.toLowerCase(Locale.ROOT))) {
+                report.reject(i, "officer with email " + email + " already exists");
+                continue;
+            }
+            if (!hashed) {
+                passwordHash = passwordHashingService.encode(PasswordHashingService.OFFICER, password);
+            }
+
+            String officerId = Optional.ofNullable(suppliedId)
+                    .orElse("officer-" + UUID.randomUUID().toString().substring(0, 8));
+            String status = Optional.ofNullable(text(record, "status")).orElse("active");
+
+            Map<String, Object> officer = new HashMap<>();
+            officer.put("officerId", officerId);
+            officer.put("name", name);
+            officer.put("email", email);
+            officer.put("password", passwordHash);
+            officer.put("phone", text(record, "phone"));
+            officer.put("department", text(record, "department"));
+            officer.put("designation", text(record, "designation"));
+            officer.put("role", Optional.ofNullable(text(record, "role")).orElse("officer"));
+            officer.put("status", status);
+            officer.put("createdBy", createdBy);
+            officer.put("createdAt", LocalDateTime.now().toString());
+            officer.put("updatedAt", LocalDateTime.now().toString());
+
+            Map<String, Object> performance = new HashMap<>();
+            performance.put("totalProcessed", 0);
+            performance.put("avgResponseTime", 0.0);
+            performance.put("rating", 0.0);
+            officer.put("performance", performance);
+            officers.add(officer);
+        }
+
+        Map<String, String> statusById = new LinkedHashMap<>();
+        try (BatchWriter.Session session = batchWriter.openSession()) {
+            for (Map<String, Object> officer : officers) {
+                String officerId = (String) officer.get("officerId");
+                session.add(WriteOperation.set(OFFICERS_COLLECTION, officerId, officer));
+                statusById.put(officerId, (String) officer.get("status"));
+            }
+            session.close();
+            return report.complete(OFFICERS_COLLECTION, statusById, session);
+        }
+    }
+
+    public Map<String, Object> importApplications(String format, String body)
+            throws ExecutionException, InterruptedException {
+        List<Map<String, Object>> records = parseRecords(format, body);
+
+        ImportReport report = new ImportReport(records.size());
+        Map<String, String> statusById = new LinkedHashMap<>();
+        Set<String> seenIds = new HashSet<>();
+        Set<String> seenTrackingIds = new HashSet<>();
+        List<PendingApplication> pending = new ArrayList<>();
+        try (BatchWriter.Session session = batchWriter.openSession()) {
+            for (int i = 0; i < records.size(); i++) {
+                Map<String, Object> record = records.get(i);
+                String userId = text(record, "userId");
+                String schemeId = text(record, "schemeId");
+                String schemeName = text(record, "schemeName");
+                if (userId == null || schemeId == null || schemeName == null) {
+                    report.reject(i, "userId, schemeId and schemeName are required");
+                    continue;
+                }
+
+                LocalDateTime submittedAt;
+                LocalDateTime updatedAt;
+                try {
+                    submittedAt = Optional.ofNullable(text(record, "submittedAt"))
+                            .map(LocalDateTime::parse).orElse(LocalDateTime.now());
+                    updatedAt = Optional.ofNullable(text(record, "updatedAt"))
+                            .map(LocalDateTime::parse).orElse(submittedAt);
+                } catch (DateTimeParseException e) {
+                    report.reject(i, "submittedAt/updatedAt must be ISO local date-times");
+                    continue;
+                }
+
+                Map<String, Object> formData;
+                try {
+                    formData = mapValue(record.get("formData"));
+                } catch (JsonProcessingException e) {
+                    report.reject(i, "formData is not a JSON object");
+                    continue;
+                }
+
+                // Supplied ids must be new: a SET would silently replace the existing application or
+                // repoint its tracking id, and the row would be counted twice. Repeats within the file are
+                // caught here; ids already stored are checked by queueApplications
+                String suppliedId = text(record, "applicationId");
+                if (suppliedId != null && !seenIds.add(suppliedId)) {
+                    report.reject(i, "application " + suppliedId + " already exists");
+                    continue;
+                }
+                String suppliedTrackingId = text(record, "trackingId");
+                if (suppliedTrackingId != null && !seenTrackingIds.add(suppliedTrackingId)) {
+                    report.reject(i, "tracking id " + suppliedTrackingId + " is already in use");
+                    continue;
+                }
+
+                String applicationId = Optional.ofNullable(suppliedId)
+                        .orElse(UUID.randomUUID().toString());
+                String trackingId = Optional.ofNullable(suppliedTrackingId)
+                        .orElse(trackingIdGenerator.nextId("APP"));
+                String status = Optional.ofNullable(text(record, "status")).orElse("submitted");
+
+                TimelineEntry entry = new TimelineEntry("Submitted", "completed", submittedAt,
+                        new OfficerInfo("System", "system"));
+
+                Map<String, Object> application = new HashMap<>();
+                application.put("applicationId", applicationId);
+                application.put("userId", userId);
+                application.put("trackingId", trackingId);
+                application.put("schemeName", schemeName);
+                application.put("schemeId", schemeId);
+                application.put("status", status);
+                application.put("submittedAt", submittedAt.toString());
+                application.put("updatedAt", updatedAt.toString());
+                application.put("documents", listValue(record.get("documents")));
+                application.put("formData", formData);
+
+                Map<String, Object> indexEntry = new HashMap<>();
+                indexEntry.put("collection", APPLICATIONS_COLLECTION);
+                indexEntry.put("documentId", applicationId);
+
+                pending.add(new PendingApplication(i, suppliedId, suppliedTrackingId, status, List.of(
+                        WriteOperation.set(APPLICATIONS_COLLECTION, applicationId, application),
+                        timelineStore.appendOperation(applicationId, entry),
+                        WriteOperation.set(TrackingIndex.INDEX_COLLECTION, trackingId, indexEntry))));
+                if (pending.size() == EXISTENCE_CHECK_ROWS) {
+                    queueApplications(pending, report, statusById, session);
+                }
+            }
+            queueApplications(pending, report, statusById, session);
+            session.close();
+            return report.complete(APPLICATIONS_COLLECTION, statusById, session);
+        }
+    }
+
+    // Rejects the pending rows whose supplied application or tracking id is already stored, looking all of
+    // them up in two reads, and queues the rest
+    private void queueApplications(List<PendingApplication> pending, ImportReport report,
+                                   Map<String, String> statusById, BatchWriter.Session session)
+            throws ExecutionException, InterruptedException {
+        List<String> suppliedIds = new ArrayList<>();
+        List<String> suppliedTrackingIds = new ArrayList<>();
+        for (PendingApplication row : pending) {
+            if (row.suppliedId != null) {
+                suppliedIds.add(row.suppliedId);
+            }
+            if (row.suppliedTrackingId != null) {
+                suppliedTrackingIds.add(row.suppliedTrackingId);
+            }
+        }
+        Set<String> existingIds = existing(APPLICATIONS_COLLECTION, suppliedIds);
+        Set<String> existingTrackingIds = existing(TrackingIndex.INDEX_COLLECTION, suppliedTrackingIds);
+
+        for (PendingApplication row : pending) {
+            if (row.suppliedId != null && existingIds.contains(row.suppliedId)) {
+                report.reject(row.index, "application " + row.suppliedId + " already exists");
+                continue;
+            }
+            if (row.suppliedTrackingId != null && existingTrackingIds.contains(row.suppliedTrackingId)) {
+                report.reject(row.index, "tracking id " + row.suppliedTrackingId + " is already in use");
+                continue;
+            }
+            // One chunk for all three: a row is either fully imported (trackable, with its timeline) or not at all
+            session.addAll(row.writes);
+            statusById.put(row.writes.get(0).getDocumentId(), row.status);
+        }
+        pending.clear();
+    }
+
+    private Set<String> existing(String collection, List<String> ids) throws ExecutionException, InterruptedException {
+        Set<String> existing = new HashSet<>();
+        if (ids.isEmpty()) {
+            return existing;
+        }
+        for (StoredDocument doc : firebaseService.getDocuments(collection, ids)) {
+            if (doc.exists()) {
+                existing.add(doc.getId());
+            }
+        }
+        return existing;
+    }
+
+    private List<Map<String, Object>> parseRecords(String format, String body) {
+        if (body == null || body.isBlank()) {
+            return new ArrayList<>();
+        }
+        if ("csv".equalsIgnoreCase(format)) {
+            List<Map<String, Object>> records = new ArrayList<>();
+            for (Map<String, String> row : CsvReader.read(body)) {
+                records.add(new LinkedHashMap<>(row));
+            }
+            return records;
+        }
+        if ("json".equalsIgnoreCase(format)) {
+            try {
+                return objectMapper.readValue(body, new TypeReference<List<Map<String, Object>>>() {});
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Body must be a JSON array of objects: " + e.getOriginalMessage());
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + format + " (use json or csv)");
+    }
+
+    private static String text(Map<String, Object> record, String field) {
+        Object value = record.get(field);
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    // CSV cells hold the object as a JSON string
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> mapValue(Object value) throws JsonProcessingException {
+        if (value instanceof Map) {
+            return (Map<String, Object>) value;
+        }
+        if (value == null || value.toString().isBlank()) {
+            return new HashMap<>();
+        }
+        return objectMapper.readValue(value.toString(), new TypeReference<Map<String, Object>>() {});
+    }
+
+    // CSV cells hold lists separated by ';'
+    private static List<Object> listValue(Object value) {
+        if (value instanceof List) {
+            return new ArrayList<>((List<?>) value);
+        }
+        List<Object> items = new ArrayList<>();
+        if (value != null) {
+            for (String item : value.toString().split(";")) {
+                if (!item.isBlank()) {
+                    items.add(item.trim());
+                }
+            }
+        }
+        return items;
+    }
+
+    private static final class PendingApplication {
+        private final int index;
+        private final String suppliedId;
+        private final String suppliedTrackingId;
+        private final String status;
+        private final List<WriteOperation> writes;
+
+        PendingApplication(int index, String suppliedId, String suppliedTrackingId, String status,
+                           List<WriteOperation> writes) {
+            this.index = index;
+            this.suppliedId = suppliedId;
+            this.suppliedTrackingId = suppliedTrackingId;
+            this.status = status;
+            this.writes = writes;
+        }
+    }
+
+    private final class ImportReport {
+        private final int received;
+        private int rejected;
+        private final List<Map<String, Object>> rejections = new ArrayList<>();
+
+        ImportReport(int received) {
+            this.received = received;
+        }
+
+        void reject(int index, String reason) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                Map<String, Object> rejection = new HashMap<>();
+                rejection.put("row", index + 1);
+                rejection.put("reason", reason);
+                rejections.add(rejection);
+            }
+        }
+
+        // Counters and cache only reflect rows whose chunk actually committed
+        Map<String, Object> complete(String collection, Map<String, String> statusById, BatchWriter.Session session) {
+            int imported = 0;
+            for (Map.Entry<String, String> row : statusById.entrySet()) {
+                if (!session.isFailed(collection, row.getKey())) {
+                    imported++;
+                    statsCounterService.recordCreated(collection, row.getValue());
+                    entityCache.invalidate(collection, row.getKey());
+                }
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("received", received);
+            result.put("imported", imported);
+            result.put("rejected", rejected);
+            result.put("rejections", rejections);
+            result.put("failedWrites", statusById.size() - imported);
+            result.put("batch", session.getResult());
+            return result;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.onegov.service;
 
-import com.google.cloud.firestore.DocumentSnapshot;
 import com.onegov.dto.request.ComplaintRequest;
 import com.onegov.exception.ResourceNotFoundException;
 import com.onegov.model.Complaint;
+import com.onegov.service.event.ComplaintStatusChanged;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.workqueue.ComplaintWorkQueue;
+import com.onegov.util.TrackingIdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -11,7 +15,9 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
@@ -21,17 +27,42 @@ public class ComplaintService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Autowired
+    private AsyncFirebaseService asyncFirebaseService;
+
+    @Autowired
+    private StatsCounterService statsCounterService;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private TrackingIdGenerator trackingIdGenerator;
+
+    @Autowired
+    private TrackingIndex trackingIndex;
+
+    @Autowired
+    private ComplaintWorkQueue complaintWorkQueue;
+
+    @Autowired
+    private VersionedUpdater versionedUpdater;
+
     private static final String COMPLAINTS_COLLECTION = "complaints";
 
     public Complaint fileComplaint(ComplaintRequest request) throws ExecutionException, InterruptedException {
         String complaintId = UUID.randomUUID().toString();
-        String trackingId = "CMP" + System.currentTimeMillis();
+        String trackingId = trackingIdGenerator.nextId("CMP");
 
         Complaint complaint = new Complaint();
         complaint.setComplaintId(complaintId);
         complaint.setUserId(request.getUserId());
         complaint.setTrackingId(trackingId);
         complaint.setType(request.getType());
+        complaint.setDepartment(ComplaintWorkQueue.departmentFor(request.getType()));
         complaint.setCategory(request.getCategory());
         complaint.setDescription(request.getDescription());
         complaint.setStatus("submitted");
@@ -41,12 +72,16 @@ public class ComplaintService {
 
         Map<String, Object> complaintData = convertToMap(complaint);
         firebaseService.createDocument(COMPLAINTS_COLLECTION, complaintId, complaintData);
+        trackingIndex.register(trackingId, COMPLAINTS_COLLECTION, complaintId);
+        statsCounterService.recordCreated(COMPLAINTS_COLLECTION, complaint.getStatus());
+        complaintWorkQueue.enqueue(complaintId, complaint.getDepartment(), complaint.getPriority(),
+                complaint.getCreatedAt().toString());
 
         return complaint;
     }
 
     public Complaint getComplaintById(String complaintId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = firebaseService.getDocument(COMPLAINTS_COLLECTION, complaintId);
+        StoredDocument doc = entityCache.getDocument(COMPLAINTS_COLLECTION, complaintId);
         
         if (!doc.exists()) {
             throw new ResourceNotFoundException("Complaint not found");
@@ -56,13 +91,41 @@ public class ComplaintService {
     }
 
     public Complaint getComplaintByTrackingId(String trackingId) throws ExecutionException, InterruptedException {
-        var docs = firebaseService.queryDocuments(COMPLAINTS_COLLECTION, "trackingId", trackingId);
+        StoredDocument doc = entityCache.findByTrackingId(COMPLAINTS_COLLECTION, trackingId);
         
-        if (docs.isEmpty()) {
+        if (!doc.exists()) {
             throw new ResourceNotFoundException("Complaint not found");
         }
 
-        return convertToComplaint(docs.get(0));
+        return convertToComplaint(doc);
+    }
+
+    // Non-blocking variants for controllers that return the future directly
+    public CompletableFuture<Complaint> getComplaintByIdAsync(String id) {
+        return entityCache.getDocumentAsync(COMPLAINTS_COLLECTION, id)
+                .thenApply(doc -> {
+                    if (!doc.exists()) {
+                        throw new ResourceNotFoundException("Complaint not found");
+                    }
+                    return convertToComplaint(doc);
+                });
+    }
+
+    public CompletableFuture<Complaint> getComplaintByTrackingIdAsync(String trackingId) {
+        return entityCache.findByTrackingIdAsync(COMPLAINTS_COLLECTION, trackingId)
+                .thenApply(doc -> {
+                    if (!doc.exists()) {
+                        throw new ResourceNotFoundException("Complaint not found");
+                    }
+                    return convertToComplaint(doc);
+                });
+    }
+
+    public CompletableFuture<List<Complaint>> getUserComplaintsAsync(String userId) {
+        return asyncFirebaseService.queryDocumentsAsync(COMPLAINTS_COLLECTION, "userId", userId)
+                .thenApply(docs -> docs.stream()
+                        .map(this::convertToComplaint)
+                        .collect(Collectors.toList()));
     }
 
     public List<Complaint> getUserComplaints(String userId) throws ExecutionException, InterruptedException {
@@ -75,42 +138,43 @@ public class ComplaintService {
 
     public Complaint updateComplaintStatus(String complaintId, String status, String resolution) 
             throws ExecutionException, InterruptedException {
-        Complaint complaint = getComplaintById(complaintId);
-        
-        complaint.setStatus(status);
-        complaint.setUpdatedAt(LocalDateTime.now());
-        
-        if (resolution != null) {
-            complaint.setResolution(resolution);
-            if (status.equals("resolved") || status.equals("closed")) {
-                complaint.setResolvedAt(LocalDateTime.now());
-            }
-        }
+        LocalDateTime now = LocalDateTime.now();
+        boolean resolves = resolution != null && (status.equals("resolved") || status.equals("closed"));
 
         Map<String, Object> updates = new HashMap<>();
         updates.put("status", status);
-        updates.put("updatedAt", LocalDateTime.now().toString());
+        updates.put("updatedAt", now.toString());
         if (resolution != null) {
             updates.put("resolution", resolution);
-            if (complaint.getResolvedAt() != null) {
-                updates.put("resolvedAt", complaint.getResolvedAt().toString());
+            if (resolves) {
+                updates.put("resolvedAt", now.toString());
             }
         }
 
-        firebaseService.updateDocument(COMPLAINTS_COLLECTION, complaintId, updates);
+        StoredDocument doc = versionedUpdater.update(COMPLAINTS_COLLECTION, complaintId, null, "status",
+                "Complaint not found", current -> updates).getBefore();
+        Complaint complaint = convertToComplaint(doc);
+        String previousStatus = complaint.getStatus();
+
+        complaint.setStatus(status);
+        complaint.setUpdatedAt(now);
+        complaint.setVersion(doc.getVersion() + 1);
+        if (resolution != null) {
+            complaint.setResolution(resolution);
+            if (resolves) {
+                complaint.setResolvedAt(now);
+            }
+        }
+        eventBus.publish(new ComplaintStatusChanged(complaintId, complaint.getUserId(), complaint.getTrackingId(),
+                previousStatus, status, null, Objects.toString(complaint.getCreatedAt(), null)));
 
         return complaint;
     }
 
+    // Goes through the work queue so the assignment is a lease like any claimed complaint
     public Complaint assignComplaint(String complaintId, String officerId) 
             throws ExecutionException, InterruptedException {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("assignedTo", officerId);
-        updates.put("status", "assigned");
-        updates.put("updatedAt", LocalDateTime.now().toString());
-
-        firebaseService.updateDocument(COMPLAINTS_COLLECTION, complaintId, updates);
-
+        complaintWorkQueue.assign(complaintId, officerId);
         return getComplaintById(complaintId);
     }
 
@@ -120,12 +184,14 @@ public class ComplaintService {
         map.put("userId", complaint.getUserId());
         map.put("trackingId", complaint.getTrackingId());
         map.put("type", complaint.getType());
+        map.put("department", complaint.getDepartment());
         map.put("category", complaint.getCategory());
         map.put("description", complaint.getDescription());
         map.put("status", complaint.getStatus());
         map.put("priority", complaint.getPriority());
         map.put("createdAt", complaint.getCreatedAt().toString());
         map.put("updatedAt", complaint.getUpdatedAt().toString());
+        map.put("version", complaint.getVersion());
         if (complaint.getAssignedTo() != null) {
             map.put("assignedTo", complaint.getAssignedTo());
         }
@@ -138,18 +204,20 @@ public class ComplaintService {
         return map;
     }
 
-    private Complaint convertToComplaint(DocumentSnapshot doc) {
+    private Complaint convertToComplaint(StoredDocument doc) {
         Complaint complaint = new Complaint();
         complaint.setComplaintId(doc.getString("complaintId"));
         complaint.setUserId(doc.getString("userId"));
         complaint.setTrackingId(doc.getString("trackingId"));
         complaint.setType(doc.getString("type"));
+        complaint.setDepartment(doc.getString("department"));
         complaint.setCategory(doc.getString("category"));
         complaint.setDescription(doc.getString("description"));
         complaint.setStatus(doc.getString("status"));
         complaint.setPriority(doc.getString("priority"));
         complaint.setCreatedAt(LocalDateTime.parse(doc.getString("createdAt")));
         complaint.setUpdatedAt(LocalDateTime.parse(doc.getString("updatedAt")));
+        complaint.setVersion(doc.getVersion());
         if (doc.getString("assignedTo") != null) {
             complaint.setAssignedTo(doc.getString("assignedTo"));
         }
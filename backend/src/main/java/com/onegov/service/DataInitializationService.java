@@ -1,8 +1,11 @@
 package com.onegov.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onegov.model.Scheme;
+import com.onegov.service.eligibility.SchemeRuleEngine;
+import com.onegov.service.storage.WriteOperation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -17,7 +20,16 @@ public class DataInitializationService implements CommandLineRunner {
     private FirebaseService firebaseService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private BatchWriter batchWriter;
+
+    @Autowired
+    private SchemeRuleEngine schemeRuleEngine;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     private static final String OFFICERS_COLLECTION = "officers";
     private static final String ADMINS_COLLECTION = "admins";
@@ -25,12 +37,16 @@ public class DataInitializationService implements CommandLineRunner {
     @Override
     public void run(String... args) throws Exception {
         System.out.println("Checking if demo data needs to be initialized...");
-        initializeDemoOfficers();
-        initializeDemoAdmins();
+        // Seed rows are collected and committed as batches instead of one round-trip each
+        try (BatchWriter.Session session = batchWriter.openSession()) {
+            initializeDemoOfficers(session);
+            initializeDemoAdmins(session);
+            initializeSchemes(session);
+        }
         System.out.println("Demo data initialization complete!");
     }
 
-    private void initializeDemoOfficers() throws ExecutionException, InterruptedException {
+    private void initializeDemoOfficers(BatchWriter.Session session) throws ExecutionException, InterruptedException {
         // Check if officers already exist
         var existingOfficers = firebaseService.queryDocuments(OFFICERS_COLLECTION, "email", "rajesh.kumar@gov.in");
         if (!existingOfficers.isEmpty()) {
@@ -41,25 +57,25 @@ public class DataInitializationService implements CommandLineRunner {
         System.out.println("Creating demo officers...");
 
         // Officer 1: Dr. Rajesh Kumar (Health)
-        createOfficer("officer-1", "Dr. Rajesh Kumar", "rajesh.kumar@gov.in", 
+        createOfficer(session, "officer-1", "Dr. Rajesh Kumar", "rajesh.kumar@gov.in", 
                      "9876543210", "health", "Health Officer", "officer", "admin-1");
 
         // Officer 2: Priya Sharma (Education)
-        createOfficer("officer-2", "Priya Sharma", "priya.sharma@gov.in", 
+        createOfficer(session, "officer-2", "Priya Sharma", "priya.sharma@gov.in", 
                      "9876543211", "education", "Senior Education Officer", "senior-officer", "admin-1");
 
         // Officer 3: Amit Singh (Revenue)
-        createOfficer("officer-3", "Amit Singh", "amit.singh@gov.in", 
+        createOfficer(session, "officer-3", "Amit Singh", "amit.singh@gov.in", 
                      "9876543212", "revenue", "Revenue Officer", "officer", "admin-1");
 
         // Officer 4: Sunita Verma (General)
-        createOfficer("officer-4", "Sunita Verma", "sunita.verma@gov.in", 
+        createOfficer(session, "officer-4", "Sunita Verma", "sunita.verma@gov.in", 
                      "9876543213", "general", "Head Officer", "head", "admin-1");
 
         System.out.println("Demo officers created successfully!");
     }
 
-    private void createOfficer(String officerId, String name, String email, String phone,
+    private void createOfficer(BatchWriter.Session session, String officerId, String name, String email, String phone,
                                String department, String designation, String role, String createdBy) 
             throws ExecutionException, InterruptedException {
         
@@ -67,7 +83,7 @@ public class DataInitializationService implements CommandLineRunner {
         officerData.put("officerId", officerId);
         officerData.put("name", name);
         officerData.put("email", email);
-        officerData.put("password", passwordEncoder.encode("officer123")); // Demo password
+        officerData.put("password", passwordHashingService.encode(PasswordHashingService.OFFICER, "officer123")); // Demo password
         officerData.put("phone", phone);
         officerData.put("department", department);
         officerData.put("designation", designation);
@@ -84,10 +100,10 @@ public class DataInitializationService implements CommandLineRunner {
         performance.put("rating", 0.0);
         officerData.put("performance", performance);
 
-        firebaseService.createDocument(OFFICERS_COLLECTION, officerId, officerData);
+        session.add(WriteOperation.set(OFFICERS_COLLECTION, officerId, officerData));
     }
 
-    private void initializeDemoAdmins() throws ExecutionException, InterruptedException {
+    private void initializeDemoAdmins(BatchWriter.Session session) throws ExecutionException, InterruptedException {
         // Check if admins already exist
         var existingAdmins = firebaseService.queryDocuments(ADMINS_COLLECTION, "email", "super.admin@onegov.in");
         if (!existingAdmins.isEmpty()) {
@@ -98,27 +114,42 @@ public class DataInitializationService implements CommandLineRunner {
         System.out.println("Creating demo admins...");
 
         // Admin 1: Super Admin
-        createAdmin("admin-1", "Super Admin", "super.admin@onegov.in", "9876543200", "super-admin");
+        createAdmin(session, "admin-1", "Super Admin", "super.admin@onegov.in", "9876543200", "super-admin");
 
         // Admin 2: Regular Admin
-        createAdmin("admin-2", "Admin User", "admin@onegov.in", "9876543201", "admin");
+        createAdmin(session, "admin-2", "Admin User", "admin@onegov.in", "9876543201", "admin");
 
         System.out.println("Demo admins created successfully!");
     }
 
-    private void createAdmin(String adminId, String name, String email, String phone, String role) 
+    private void createAdmin(BatchWriter.Session session, String adminId, String name, String email, String phone, String role) 
             throws ExecutionException, InterruptedException {
         
         Map<String, Object> adminData = new HashMap<>();
         adminData.put("adminId", adminId);
         adminData.put("name", name);
         adminData.put("email", email);
-        adminData.put("password", passwordEncoder.encode("admin123")); // Demo password
+        adminData.put("password", passwordHashingService.encode(PasswordHashingService.ADMIN, "admin123")); // Demo password
         adminData.put("phone", phone);
         adminData.put("role", role);
         adminData.put("createdAt", LocalDateTime.now().toString());
         adminData.put("lastLogin", LocalDateTime.now().toString());
 
-        firebaseService.createDocument(ADMINS_COLLECTION, adminId, adminData);
+        session.add(WriteOperation.set(ADMINS_COLLECTION, adminId, adminData));
+    }
+
+    // The scheme catalogue starts from the bundled definitions; admins edit it from then on
+    @SuppressWarnings("unchecked")
+    private void initializeSchemes(BatchWriter.Session session) throws Exception {
+        if (!firebaseService.getAllDocuments(SchemeRuleEngine.SCHEMES_COLLECTION).isEmpty()) {
+            System.out.println("Schemes already exist. Skipping initialization.");
+            return;
+        }
+
+        System.out.println("Creating default schemes...");
+        for (Scheme scheme : schemeRuleEngine.readDefaults()) {
+            Map<String, Object> schemeData = objectMapper.convertValue(scheme, Map.class);
+            session.add(WriteOperation.set(SchemeRuleEngine.SCHEMES_COLLECTION, scheme.getSchemeId(), schemeData));
+        }
     }
 }
@@ -1,8 +1,10 @@
 package com.onegov.service;
 
-import com.google.cloud.firestore.DocumentSnapshot;
 import com.onegov.exception.ResourceNotFoundException;
 import com.onegov.model.Document;
+import com.onegov.service.event.DocumentVerificationChanged;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.storage.StoredDocument;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -10,6 +12,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
@@ -20,6 +23,15 @@ public class DocumentService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private VersionedUpdater versionedUpdater;
+
     private static final String DOCUMENTS_COLLECTION = "documents";
 
     public Document uploadDocument(String userId, String type, String fileName, String fileUrl, Long fileSize) 
@@ -43,7 +55,7 @@ public class DocumentService {
     }
 
     public Document getDocumentById(String documentId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = firebaseService.getDocument(DOCUMENTS_COLLECTION, documentId);
+        StoredDocument doc = entityCache.getDocument(DOCUMENTS_COLLECTION, documentId);
         
         if (!doc.exists()) {
             throw new ResourceNotFoundException("Document not found");
@@ -62,22 +74,29 @@ public class DocumentService {
 
     public void deleteDocument(String documentId) throws ExecutionException, InterruptedException {
         firebaseService.deleteDocument(DOCUMENTS_COLLECTION, documentId);
+        entityCache.invalidate(DOCUMENTS_COLLECTION, documentId);
     }
 
     public Document verifyDocument(String documentId, String verifiedBy, String status) 
             throws ExecutionException, InterruptedException {
-        Document document = getDocumentById(documentId);
-        
-        document.setVerificationStatus(status);
-        document.setVerifiedBy(verifiedBy);
-        document.setVerifiedAt(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
 
         Map<String, Object> updates = new HashMap<>();
         updates.put("verificationStatus", status);
         updates.put("verifiedBy", verifiedBy);
-        updates.put("verifiedAt", LocalDateTime.now().toString());
+        updates.put("verifiedAt", now.toString());
 
-        firebaseService.updateDocument(DOCUMENTS_COLLECTION, documentId, updates);
+        StoredDocument doc = versionedUpdater.update(DOCUMENTS_COLLECTION, documentId, null, "verificationStatus",
+                "Document not found", current -> updates).getBefore();
+        Document document = convertToDocument(doc);
+        String previousStatus = document.getVerificationStatus();
+
+        document.setVerificationStatus(status);
+        document.setVerifiedBy(verifiedBy);
+        document.setVerifiedAt(now);
+        document.setVersion(doc.getVersion() + 1);
+        eventBus.publish(new DocumentVerificationChanged(documentId, document.getUserId(), previousStatus, status,
+                null, Objects.toString(document.getUploadedAt(), null)));
 
         return document;
     }
@@ -96,10 +115,11 @@ public class DocumentService {
             map.put("verifiedBy", doc.getVerifiedBy());
             map.put("verifiedAt", doc.getVerifiedAt().toString());
         }
+        map.put("version", doc.getVersion());
         return map;
     }
 
-    private Document convertToDocument(DocumentSnapshot doc) {
+    private Document convertToDocument(StoredDocument doc) {
         Document document = new Document();
         document.setDocumentId(doc.getString("documentId"));
         document.setUserId(doc.getString("userId"));
@@ -109,6 +129,7 @@ public class DocumentService {
         document.setFileSize(doc.getLong("fileSize"));
         document.setVerificationStatus(doc.getString("verificationStatus"));
         document.setUploadedAt(LocalDateTime.parse(doc.getString("uploadedAt")));
+        document.setVersion(doc.getVersion());
         if (doc.getString("verifiedBy") != null) {
             document.setVerifiedBy(doc.getString("verifiedBy"));
             document.setVerifiedAt(LocalDateTime.parse(doc.getString("verifiedAt")));
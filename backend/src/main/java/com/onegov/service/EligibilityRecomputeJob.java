@@ -0,0 +1,469 @@
+package com.onegov.service;
+
+import com.onegov.exception.VersionConflictException;
+import com.onegov.model.CitizenProfile;
+import com.onegov.service.eligibility.SchemeRuleEngine;
+import com.onegov.service.event.Backpressure;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.event.SchemeCatalogueChanged;
+import com.onegov.service.storage.DocumentPage;
+import com.onegov.service.storage.DocumentQuery;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.storage.WriteOperation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Re-evaluates every citizen profile against the current scheme catalogue after its rules
+ * change. Profiles are streamed one page at a time in document id order (only the fields the
+ * rules read), each page is evaluated on a fork-join pool and only profiles whose
+ * eligibleSchemes actually differ are written back, in batches. Each write is conditional on
+ * the profile being unchanged since the page was read; a profile saved in the meantime already
+ * carries a fresh result from ProfileService, so it is skipped and counted as a conflict, not
+ * overwritten or re-indexed with stale data. After every page the cursor
+ * and counters go to jobCheckpoints/eligibility-recompute, so a restarted or cancelled run
+ * continues where it stopped as long as the rules are still the same. If the rules change
+ * mid-run the job starts over from the first profile with the new version.
+ * Every instance hears about a catalogue change, so the checkpoint doubles as a lease: a run
+ * claims it with a version-conditional write and renews it with every checkpoint, and another
+ * instance only starts once the lease has lapsed (recompute.lease-ms). An instance whose
+ * checkpoint write loses the version check has been taken over and stops.
+ */
+@Component
+public class EligibilityRecomputeJob {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private BatchWriter batchWriter;
+
+    @Autowired
+    private SchemeRuleEngine schemeRuleEngine;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private SchemeEligibilityIndex schemeEligibilityIndex;
+
+    private static final String PROFILES_COLLECTION = "citizen_profiles";
+    private static final String CHECKPOINTS_COLLECTION = "jobCheckpoints";
+    private static final String JOB_ID = "eligibility-recompute";
+
+    // Everything RuleCompiler can read, plus the stored result to diff against and the version the write checks
+    private static final List<String> PROFILE_FIELDS = List.of("age", "income", "gender", "category",
+            "occupation", "state", "hasBPLCard", "isMinority", "hasDisability", "isStudent", "isFarmer",
+            "eligibleSchemes", StoredDocument.VERSION_FIELD);
+
+    private static final int LOG_EVERY_PAGES = 20;
+
+    private final int pageSize;
+    private final boolean autoOnChange;
+    private final long leaseMs;
+    // Per process, so a restarted instance does not mistake its old lease for its own
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ForkJoinPool evaluationPool;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "eligibility-recompute");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean cancelRequested;
+    private volatile Progress progress;
+    // Version of the checkpoint as this instance last wrote it; runner thread only
+    private long checkpointVersion;
+
+    public EligibilityRecomputeJob(@Value("${recompute.page-size:500}") int pageSize,
+                                   @Value("${recompute.parallelism:0}") int parallelism,
+                                   @Value("${recompute.auto-on-change:true}") boolean autoOnChange,
+                                   @Value("${recompute.lease-ms:120000}") long leaseMs) {
+        this.pageSize = pageSize;
+        this.autoOnChange = autoOnChange;
+        this.leaseMs = leaseMs;
+        this.evaluationPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!autoOnChange) {
+            return;
+        }
+        eventBus.subscribe("eligibility-recompute", SchemeCatalogueChanged.class, event -> {
+            // The first compile at startup replaces nothing the profiles were evaluated against
+            if (!"empty".equals(event.getPreviousVersion())) {
+                start(true);
+            }
+        }, Backpressure.DROP_NEWEST, 16);
+    }
+
+    // Picks up a run that was interrupted by a shutdown
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        try {
+            StoredDocument checkpoint = firebaseService.getDocument(CHECKPOINTS_COLLECTION, JOB_ID);
+            if (checkpoint.exists() && "running".equals(checkpoint.getString("status"))) {
+                System.out.println("Eligibility recompute: resuming interrupted run");
+                start(true);
+            }
+        } catch (Exception e) {
+            System.err.println("Eligibility recompute: could not read checkpoint: " + e.getMessage());
+        }
+    }
+
+    // Takes over a run whose instance died holding the lease; the run resumes from its checkpoint
+    @Scheduled(fixedDelayString = "${recompute.lease-ms:120000}", initialDelayString = "${recompute.lease-ms:120000}")
+    public void resumeAbandoned() {
+        if (running.get()) {
+            return;
+        }
+        try {
+            StoredDocument checkpoint = firebaseService.getDocument(CHECKPOINTS_COLLECTION, JOB_ID);
+            if (checkpoint.exists() && "running".equals(checkpoint.getString("status"))
+                    && !leasedElsewhere(checkpoint)) {
+                System.out.println("Eligibility recompute: lease of " + checkpoint.getString("leaseOwner")
+                        + " lapsed, taking over");
+                start(true);
+            }
+        } catch (Exception e) {
+            System.err.println("Eligibility recompute: could not read checkpoint: " + e.getMessage());
+        }
+    }
+
+    // Returns false when a run is already in progress; that run restarts by itself if the rules changed
+    public boolean start(boolean resume) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        cancelRequested = false;
+        runner.execute(() -> {
+            try {
+                run(resume);
+            } catch (VersionConflictException e) {
+                // Another instance claimed the checkpoint; it carries on and this one must not write over it
+                System.out.println("Eligibility recompute: taken over by another instance, stopping");
+                progress = null;
+            } catch (Exception e) {
+                fail(e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean cancel() {
+        if (!running.get()) {
+            return false;
+        }
+        cancelRequested = true;
+        return true;
+    }
+
+    private void run(boolean resume) throws ExecutionException, InterruptedException {
+        String version = schemeRuleEngine.getVersion();
+        StoredDocument checkpoint = readOrCreateCheckpoint();
+        Progress current = resume ? fromCheckpoint(checkpoint, version) : null;
+        if (current != null && "completed".equals(current.status)) {
+            System.out.println("Eligibility recompute: rules " + version + " already applied");
+            progress = current;
+            return;
+        }
+        if (leasedElsewhere(checkpoint)) {
+            System.out.println("Eligibility recompute: running on " + checkpoint.getString("leaseOwner")
+                    + " for rules " + checkpoint.getString("rulesVersion") + ", not starting here");
+            return;
+        }
+        // The claim: the first checkpoint write below only lands if nobody wrote since this read
+        checkpointVersion = checkpoint.getVersion();
+        if (current == null) {
+            current = new Progress(version, null);
+        }
+        current.status = "running";
+        current.resumedAt = System.currentTimeMillis();
+        current.scannedSinceResume = 0;
+        progress = current;
+        saveCheckpoint(current);
+        System.out.println("Eligibility recompute: " + (current.cursor == null ? "starting" : "resuming")
+                + " for rules " + version);
+
+        BatchWriter.Session session = batchWriter.openSession();
+        int pages = 0;
+        while (true) {
+            if (cancelRequested) {
+                current.status = "cancelled";
+                break;
+            }
+            String latest = schemeRuleEngine.getVersion();
+            if (!latest.equals(current.rulesVersion)) {
+                System.out.println("Eligibility recompute: rules changed to " + latest + ", starting over");
+                current = new Progress(latest, current.startedAt);
+                current.status = "running";
+                current.resumedAt = System.currentTimeMillis();
+                progress = current;
+            }
+
+            DocumentPage page = firebaseService.queryPage(DocumentQuery.of(PROFILES_COLLECTION)
+                    .select(PROFILE_FIELDS)
+                    .limit(pageSize)
+                    .startAfter(current.cursor));
+            List<StoredDocument> documents = page.getDocuments();
+
+            List<Change> changes = evaluationPool.submit(() -> documents.parallelStream()
+                    .map(this::reevaluate)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList())).get();
+            for (Change change : changes) {
+                session.add(WriteOperation.updateIfUnchanged(PROFILES_COLLECTION, change.read,
+                        Map.of("eligibleSchemes", change.eligibleSchemes)));
+            }
+            // The checkpoint may only move past writes that have been committed
+            session.flush();
+            for (Change change : changes) {
+                if (session.isConflicted(PROFILES_COLLECTION, change.profileId)) {
+                    current.conflicts++;
+                } else if (session.isFailed(PROFILES_COLLECTION, change.profileId)) {
+                    current.failedWrites++;
+                } else {
+                    current.changed++;
+                    schemeEligibilityIndex.index(change.profileId, change.state, change.eligibleSchemes);
+                }
+                entityCache.invalidate(PROFILES_COLLECTION, change.profileId);
+            }
+            current.scanned += documents.size();
+            current.scannedSinceResume += documents.size();
+            current.cursor = page.getNextCursor();
+            pages++;
+
+            // A change that lands during the last page would otherwise be lost; its event found us running
+            if (current.cursor == null && schemeRuleEngine.getVersion().equals(current.rulesVersion)) {
+                current.status = "completed";
+                current.completedAt = LocalDateTime.now().toString();
+                break;
+            }
+            saveCheckpoint(current);
+            if (pages % LOG_EVERY_PAGES == 0) {
+                System.out.println("Eligibility recompute: " + current.scanned + " scanned, " + current.changed
+                        + " changed, " + Math.round(current.profilesPerSecond()) + " profiles/s");
+            }
+        }
+        current.finishedAt = System.currentTimeMillis();
+        saveCheckpoint(current);
+        System.out.println("Eligibility recompute " + current.status + ": " + current.scanned + " scanned, "
+                + current.changed + " changed, " + current.conflicts + " conflicts, " + current.failedWrites
+                + " failed writes, "
+                + Math.round(current.profilesPerSecond()) + " profiles/s");
+    }
+
+    // Null when the stored result already matches; order is not significant
+    private Change reevaluate(StoredDocument doc) {
+        List<String> eligible = schemeRuleEngine.evaluate(toProfile(doc));
+        Object stored = doc.get("eligibleSchemes");
+        if (stored instanceof List && new HashSet<>((List<?>) stored).equals(new HashSet<>(eligible))) {
+            return null;
+        }
+        return new Change(doc, eligible);
+    }
+
+    private CitizenProfile toProfile(StoredDocument doc) {
+        CitizenProfile profile = new CitizenProfile();
+        Long age = doc.getLong("age");
+        profile.setAge(age != null ? age.intValue() : null);
+        profile.setIncome(doc.getLong("income"));
+        profile.setGender(doc.getString("gender"));
+        profile.setCategory(doc.getString("category"));
+        profile.setOccupation(doc.getString("occupation"));
+        profile.setState(doc.getString("state"));
+        profile.setHasBPLCard(doc.getBoolean("hasBPLCard"));
+        profile.setIsMinority(doc.getBoolean("isMinority"));
+        profile.setHasDisability(doc.getBoolean("hasDisability"));
+        profile.setIsStudent(doc.getBoolean("isStudent"));
+        profile.setIsFarmer(doc.getBoolean("isFarmer"));
+        return profile;
+    }
+
+    // Only a checkpoint for the same rules can be resumed; anything else starts from the beginning
+    private Progress fromCheckpoint(String version) throws ExecutionException, InterruptedException {
+        return fromCheckpoint(firebaseService.getDocument(CHECKPOINTS_COLLECTION, JOB_ID), version);
+    }
+
+    private Progress fromCheckpoint(StoredDocument checkpoint, String version) {
+        if (!checkpoint.exists() || !version.equals(checkpoint.getString("rulesVersion"))) {
+            return null;
+        }
+        Progress restored = new Progress(version, checkpoint.getString("startedAt"));
+        restored.status = checkpoint.getString("status");
+        restored.cursor = checkpoint.getString("cursor");
+        restored.scanned = longValue(checkpoint.getLong("scanned"));
+        restored.changed = longValue(checkpoint.getLong("changed"));
+        restored.conflicts = longValue(checkpoint.getLong("conflicts"));
+        restored.failedWrites = longValue(checkpoint.getLong("failedWrites"));
+        restored.completedAt = checkpoint.getString("completedAt");
+        return restored;
+    }
+
+    // Conditional writes need a document to update; two instances creating it at once is fine, since
+    // the claim that follows only lets one of them through
+    private StoredDocument readOrCreateCheckpoint() throws ExecutionException, InterruptedException {
+        StoredDocument checkpoint = firebaseService.getDocument(CHECKPOINTS_COLLECTION, JOB_ID);
+        if (checkpoint.exists()) {
+            return checkpoint;
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("status", "idle");
+        data.put("updatedAt", LocalDateTime.now().toString());
+        firebaseService.createDocument(CHECKPOINTS_COLLECTION, JOB_ID, data);
+        return firebaseService.getDocument(CHECKPOINTS_COLLECTION, JOB_ID);
+    }
+
+    private boolean leasedElsewhere(StoredDocument checkpoint) {
+        Long leaseExpiresAt = checkpoint.getLong("leaseExpiresAt");
+        return leaseExpiresAt != null && leaseExpiresAt > System.currentTimeMillis()
+                && !instanceId.equals(checkpoint.getString("leaseOwner"));
+    }
+
+    // Renews the lease while running and gives it up otherwise; throws VersionConflictException if
+    // another instance wrote the checkpoint since this one last did
+    private void saveCheckpoint(Progress current) throws ExecutionException, InterruptedException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("status", current.status);
+        data.put("rulesVersion", current.rulesVersion);
+        data.put("cursor", current.cursor);
+        data.put("scanned", current.scanned);
+        data.put("changed", current.changed);
+        data.put("conflicts", current.conflicts);
+        data.put("failedWrites", current.failedWrites);
+        data.put("startedAt", current.startedAt);
+        data.put("completedAt", current.completedAt);
+        data.put("lastError", current.lastError);
+        data.put("updatedAt", LocalDateTime.now().toString());
+        data.put("leaseOwner", instanceId);
+        data.put("leaseExpiresAt", "running".equals(current.status) ? System.currentTimeMillis() + leaseMs : 0L);
+        checkpointVersion = firebaseService.updateDocumentIfVersion(CHECKPOINTS_COLLECTION, JOB_ID,
+                checkpointVersion, data).getAfter().getVersion();
+    }
+
+    private void fail(Exception e) {
+        System.err.println("Eligibility recompute failed: " + e.getMessage());
+        Progress current = progress;
+        if (current == null) {
+            return;
+        }
+        current.status = "failed";
+        current.finishedAt = System.currentTimeMillis();
+        current.lastError = e.getMessage();
+        try {
+            // The cursor still points after the last committed page, so a resume picks up from there
+            saveCheckpoint(current);
+        } catch (Exception checkpointError) {
+            System.err.println("Eligibility recompute: could not save checkpoint: " + checkpointError.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatus() throws ExecutionException, InterruptedException {
+        Progress current = progress;
+        if (current == null) {
+            current = fromCheckpoint(schemeRuleEngine.getVersion());
+        }
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        status.put("currentRulesVersion", schemeRuleEngine.getVersion());
+        status.put("pageSize", pageSize);
+        status.put("parallelism", evaluationPool.getParallelism());
+        if (current != null) {
+            status.put("status", current.status);
+            status.put("rulesVersion", current.rulesVersion);
+            status.put("scanned", current.scanned);
+            status.put("changed", current.changed);
+            status.put("conflicts", current.conflicts);
+            status.put("failedWrites", current.failedWrites);
+            status.put("startedAt", current.startedAt);
+            status.put("completedAt", current.completedAt);
+            status.put("lastError", current.lastError);
+            status.put("profilesPerSecond", Math.round(current.profilesPerSecond()));
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // The checkpoint stays "running", so the next start resumes from it
+        cancelRequested = true;
+        runner.shutdownNow();
+        evaluationPool.shutdownNow();
+    }
+
+    private static long longValue(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private static final class Change {
+        final StoredDocument read;
+        final String profileId;
+        final String state;
+        final List<String> eligibleSchemes;
+
+        Change(StoredDocument read, List<String> eligibleSchemes) {
+            this.read = read;
+            this.profileId = read.getId();
+            this.state = read.getString("state");
+            this.eligibleSchemes = eligibleSchemes;
+        }
+    }
+
+    // Written by the runner thread only; getStatus reads it without locking, so figures may lag a page
+    private static final class Progress {
+        final String rulesVersion;
+        final String startedAt;
+        volatile String status;
+        volatile String cursor;
+        volatile long scanned;
+        volatile long changed;
+        volatile long conflicts;
+        volatile long failedWrites;
+        volatile String completedAt;
+        volatile String lastError;
+        volatile long resumedAt;
+        volatile long scannedSinceResume;
+        volatile long finishedAt;
+
+        Progress(String rulesVersion, String startedAt) {
+            this.rulesVersion = rulesVersion;
+            this.startedAt = startedAt != null ? startedAt : LocalDateTime.now().toString();
+        }
+
+        // Throughput of this process's share of the run, so time spent before a restart doesn't count
+        double profilesPerSecond() {
+            if (resumedAt == 0) {
+                return 0.0;
+            }
+            long elapsedMs = (finishedAt > 0 ? finishedAt : System.currentTimeMillis()) - resumedAt;
+            return elapsedMs <= 0 ? 0.0 : scannedSinceResume * 1000.0 / elapsedMs;
+        }
+    }
+}
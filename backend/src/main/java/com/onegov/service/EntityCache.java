@@ -0,0 +1,264 @@
+package com.onegov.service;
+
+import com.onegov.service.storage.StoredDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache for single-document lookups, keyed by collection + id.
+ * Each collection gets its own LRU segment with a bounded size and its own TTL.
+ * Only existing documents are cached, so creates never need an invalidation;
+ * every update/delete path calls invalidate() after its write.
+ * The cache is per JVM: other instances see a change once the TTL expires.
+ */
+@Component
+public class EntityCache {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private AsyncFirebaseService asyncFirebaseService;
+
+    @Autowired
+    private TrackingIndex trackingIndex;
+
+    private static final String TRACKING_SEGMENT_SUFFIX = "#trackingId";
+    private static final String DOCUMENT_ID_FIELD = "documentId";
+
+    private final int maxEntriesPerCollection;
+    private final long defaultTtlNanos;
+    private final long trackingTtlNanos;
+    private final Map<String, Long> ttlNanosByCollection = new HashMap<>();
+    private final ConcurrentHashMap<String, Segment> segments = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public EntityCache(@Value("${cache.max-entries-per-collection:10000}") int maxEntriesPerCollection,
+                       @Value("${cache.default-ttl-seconds:30}") long defaultTtlSeconds,
+                       @Value("${cache.tracking-ttl-seconds:3600}") long trackingTtlSeconds,
+                       @Value("${cache.ttl-seconds:}") String ttlOverrides) {
+        this.maxEntriesPerCollection = maxEntriesPerCollection;
+        this.defaultTtlNanos = TimeUnit.SECONDS.toNanos(defaultTtlSeconds);
+        this.trackingTtlNanos = TimeUnit.SECONDS.toNanos(trackingTtlSeconds);
+        // Format: collection:seconds,collection:seconds
+        for (String override : ttlOverrides.split(",")) {
+            String[] parts = override.trim().split(":");
+            if (parts.length == 2) {
+                ttlNanosByCollection.put(parts[0].trim(), TimeUnit.SECONDS.toNanos(Long.parseLong(parts[1].trim())));
+            }
+        }
+    }
+
+    public StoredDocument getDocument(String collection, String id)
+            throws ExecutionException, InterruptedException {
+        Segment segment = segment(collection);
+        StoredDocument cached = segment.get(id);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        long version = segment.version();
+        StoredDocument loaded = firebaseService.getDocument(collection, id);
+        segment.putIfUnchanged(id, loaded, version);
+        return loaded;
+    }
+
+    // Several documents in the order given: cached ones are served from the cache and the rest are read
+    // together in one store call
+    public List<StoredDocument> getDocuments(String collection, List<String> ids)
+            throws ExecutionException, InterruptedException {
+        Segment segment = segment(collection);
+        StoredDocument[] documents = new StoredDocument[ids.size()];
+        List<String> missed = new ArrayList<>();
+        List<Integer> missedAt = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            StoredDocument cached = segment.get(ids.get(i));
+            if (cached != null) {
+                hits.increment();
+                documents[i] = cached;
+            } else {
+                misses.increment();
+                missed.add(ids.get(i));
+                missedAt.add(i);
+            }
+        }
+        if (!missed.isEmpty()) {
+            long version = segment.version();
+            List<StoredDocument> loaded = firebaseService.getDocuments(collection, missed);
+            for (int i = 0; i < loaded.size(); i++) {
+                segment.putIfUnchanged(missed.get(i), loaded.get(i), version);
+                documents[missedAt.get(i)] = loaded.get(i);
+            }
+        }
+        return Arrays.asList(documents);
+    }
+
+    public CompletableFuture<StoredDocument> getDocumentAsync(String collection, String id) {
+        Segment segment = segment(collection);
+        StoredDocument cached = segment.get(id);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        misses.increment();
+        long version = segment.version();
+        return asyncFirebaseService.getDocumentAsync(collection, id).thenApply(loaded -> {
+            segment.putIfUnchanged(id, loaded, version);
+            return loaded;
+        });
+    }
+
+    // A tracking id never moves to another document, so only the trackingId -> id mapping is
+    // cached here; the document itself goes through the regular, invalidated id cache
+    public StoredDocument findByTrackingId(String collection, String trackingId)
+            throws ExecutionException, InterruptedException {
+        String documentId = cachedDocumentId(collection, trackingId);
+        if (documentId == null) {
+            misses.increment();
+            documentId = trackingIndex.resolve(collection, trackingId);
+            if (documentId == null) {
+                return StoredDocument.missing(trackingId);
+            }
+            rememberDocumentId(collection, trackingId, documentId);
+        }
+        return getDocument(collection, documentId);
+    }
+
+    public CompletableFuture<StoredDocument> findByTrackingIdAsync(String collection, String trackingId) {
+        String documentId = cachedDocumentId(collection, trackingId);
+        if (documentId != null) {
+            return getDocumentAsync(collection, documentId);
+        }
+        misses.increment();
+        return trackingIndex.resolveAsync(collection, trackingId).thenCompose(resolved -> {
+            if (resolved == null) {
+                return CompletableFuture.completedFuture(StoredDocument.missing(trackingId));
+            }
+            rememberDocumentId(collection, trackingId, resolved);
+            return getDocumentAsync(collection, resolved);
+        });
+    }
+
+    private String cachedDocumentId(String collection, String trackingId) {
+        StoredDocument mapping = segment(collection + TRACKING_SEGMENT_SUFFIX).get(trackingId);
+        return mapping != null ? mapping.getString(DOCUMENT_ID_FIELD) : null;
+    }
+
+    private void rememberDocumentId(String collection, String trackingId, String documentId) {
+        segment(collection + TRACKING_SEGMENT_SUFFIX).put(trackingId,
+                new StoredDocument(trackingId, Map.of(DOCUMENT_ID_FIELD, documentId)));
+    }
+
+    public void invalidate(String collection, String id) {
+        invalidations.increment();
+        segment(collection).remove(id);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        Map<String, Integer> sizes = new HashMap<>();
+        segments.forEach((collection, segment) -> sizes.put(collection, segment.size()));
+        stats.put("sizeByCollection", sizes);
+        return stats;
+    }
+
+    private Segment segment(String collection) {
+        return segments.computeIfAbsent(collection, c -> new Segment(c.endsWith(TRACKING_SEGMENT_SUFFIX)
+                ? trackingTtlNanos
+                : ttlNanosByCollection.getOrDefault(c, defaultTtlNanos)));
+    }
+
+    private static final class Entry {
+        final StoredDocument document;
+        final long expiresAt;
+
+        Entry(StoredDocument document, long expiresAt) {
+            this.document = document;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // LRU segment; the version counter stops a load that raced with an invalidation from re-caching old data
+    private final class Segment {
+        private final long ttlNanos;
+        private long version;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntriesPerCollection) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        Segment(long ttlNanos) {
+            this.ttlNanos = ttlNanos;
+        }
+
+        synchronized StoredDocument get(String id) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAt >= 0) {
+                entries.remove(id);
+                expirations.increment();
+                return null;
+            }
+            return entry.document;
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        synchronized void putIfUnchanged(String id, StoredDocument document, long expectedVersion) {
+            if (document == null || !document.exists() || ttlNanos <= 0 || version != expectedVersion) {
+                return;
+            }
+            entries.put(id, new Entry(document, System.nanoTime() + ttlNanos));
+        }
+
+        synchronized void put(String id, StoredDocument document) {
+            putIfUnchanged(id, document, version);
+        }
+
+        synchronized void remove(String id) {
+            version++;
+            entries.remove(id);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.onegov.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onegov.exception.StreamLimitExceededException;
+import com.onegov.service.storage.DocumentPage;
+import com.onegov.service.storage.DocumentQuery;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.util.CsvWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Admin exports of whole collections as NDJSON or CSV. Rows are read a page at a time in
+ * document id order (equality filters only, so no composite index is needed) and written
+ * straight to the response stream, which is flushed after every page: memory stays at one
+ * page however many rows there are. Exports hold a request thread for their whole run, so
+ * only export.max-concurrent may run at once. The slot is taken in prepare() so the caller can
+ * still answer 429, and given back exactly once by release(): from writeTo() when the body runs,
+ * or by the caller when it never does.
+ */
+@Service
+public class ExportService {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final int pageSize;
+    private final long timeoutMs;
+    private final Semaphore running;
+
+    private static final Map<String, Dataset> DATASETS = Map.of(
+            "applications", new Dataset("applications",
+                    List.of("applicationId", "trackingId", "userId", "schemeId", "schemeName", "status",
+                            "submittedAt", "updatedAt"),
+                    Set.of("timelineArchive")),
+            "complaints", new Dataset("complaints",
+                    List.of("complaintId", "trackingId", "userId", "type", "category", "priority", "status",
+                            "assignedTo", "createdAt", "updatedAt", "resolvedAt"),
+                    Set.of()),
+            "citizens", new Dataset("users",
+                    List.of("userId", "name", "email", "phone", "status", "createdAt", "updatedAt"),
+                    Set.of("password")));
+
+    public ExportService(@Value("${export.page-size:500}") int pageSize,
+                         @Value("${export.max-concurrent:2}") int maxConcurrent,
+                         @Value("${export.timeout-ms:3600000}") long timeoutMs) {
+        this.pageSize = pageSize;
+        this.timeoutMs = timeoutMs;
+        this.running = new Semaphore(maxConcurrent);
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    // Validates everything up front so errors can still be answered with a status code
+    public Export prepare(String dataset, String format, List<String> fields, String status, String department,
+                          boolean gzip) {
+        Dataset source = DATASETS.get(dataset);
+        if (source == null) {
+            throw new IllegalArgumentException("Unknown export: " + dataset + " (applications, complaints, citizens)");
+        }
+        String resolvedFormat = format == null ? "ndjson" : format.toLowerCase(Locale.ROOT);
+        if (!resolvedFormat.equals("ndjson") && !resolvedFormat.equals("csv")) {
+            throw new IllegalArgumentException("format must be ndjson or csv");
+        }
+        for (String field : fields) {
+            if (source.excluded.contains(field)) {
+                throw new IllegalArgumentException("Field " + field + " cannot be exported");
+            }
+        }
+        // CSV needs a fixed header, so it falls back to the dataset's usual columns
+        List<String> columns = !fields.isEmpty() ? fields
+                : resolvedFormat.equals("csv") ? source.defaultColumns : List.of();
+        DocumentQuery query = DocumentQuery.of(source.collection)
+                .whereEqualTo("status", status)
+                .whereEqualTo("department", department)
+                .limit(pageSize)
+                .select(columns);
+
+        if (!running.tryAcquire()) {
+            throw new StreamLimitExceededException("Too many exports running, try again later");
+        }
+        return new Export(dataset, resolvedFormat, columns, source.excluded, query, gzip);
+    }
+
+    public final class Export {
+        private final String dataset;
+        private final String format;
+        private final List<String> columns;
+        private final Set<String> excluded;
+        private final DocumentQuery query;
+        private final boolean gzip;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Export(String dataset, String format, List<String> columns, Set<String> excluded,
+                       DocumentQuery query, boolean gzip) {
+            this.dataset = dataset;
+            this.format = format;
+            this.columns = columns;
+            this.excluded = excluded;
+            this.query = query;
+            this.gzip = gzip;
+        }
+
+        // Gives the export slot back; safe to call any number of times from any thread
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                running.release();
+            }
+        }
+
+        public String getContentType() {
+            return format.equals("csv") ? "text/csv; charset=UTF-8" : "application/x-ndjson";
+        }
+
+        public boolean isGzip() {
+            return gzip;
+        }
+
+        public String getFilename() {
+            return dataset + "-" + LocalDate.now() + (format.equals("csv") ? ".csv" : ".ndjson") + (gzip ? ".gz" : "");
+        }
+
+        // Releases the export slot however the body ends, including a client that disconnects mid-stream
+        public void writeTo(OutputStream target) throws IOException {
+            long started = System.currentTimeMillis();
+            long rows = 0;
+            try {
+                OutputStream body = gzip ? new GZIPOutputStream(target, 64 * 1024) : target;
+                Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), 64 * 1024);
+                if (format.equals("csv")) {
+                    CsvWriter.writeRow(out, columns);
+                }
+                String cursor = null;
+                do {
+                    DocumentPage page = firebaseService.queryPage(query.startAfter(cursor));
+                    for (StoredDocument doc : page.getDocuments()) {
+                        if (doc.exists()) {
+                            writeRow(out, doc);
+                            rows++;
+                        }
+                    }
+                    out.flush();
+                    cursor = page.getNextCursor();
+                } while (cursor != null);
+                out.flush();
+                if (body instanceof GZIPOutputStream) {
+                    ((GZIPOutputStream) body).finish();
+                }
+                System.out.println("Export " + dataset + ": " + rows + " rows as " + format + " in "
+                        + (System.currentTimeMillis() - started) + "ms");
+            } catch (ExecutionException e) {
+                throw new IOException("Export " + dataset + " failed after " + rows + " rows: " + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Export " + dataset + " interrupted after " + rows + " rows", e);
+            } finally {
+                release();
+            }
+        }
+
+        private void writeRow(Writer out, StoredDocument doc) throws IOException {
+            if (format.equals("csv")) {
+                List<Object> cells = new ArrayList<>(columns.size());
+                for (String column : columns) {
+                    Object value = doc.get(column);
+                    // Nested values (formData, documents, ...) go into one cell as JSON
+                    cells.add(value instanceof Map || value instanceof List ? toJson(value) : value);
+                }
+                CsvWriter.writeRow(out, cells);
+                return;
+            }
+            Map<String, Object> row = new HashMap<>();
+            if (columns.isEmpty()) {
+                row.putAll(doc.getData());
+                excluded.forEach(row::remove);
+            } else {
+                for (String column : columns) {
+                    row.put(column, doc.get(column));
+                }
+            }
+            out.write(toJson(row));
+            out.write('\n');
+        }
+
+        private String toJson(Object value) throws JsonProcessingException {
+            return objectMapper.writeValueAsString(value);
+        }
+    }
+
+    private static final class Dataset {
+        final String collection;
+        final List<String> defaultColumns;
+        final Set<String> excluded;
+
+        Dataset(String collection, List<String> defaultColumns, Set<String> excluded) {
+            this.collection = collection;
+            this.defaultColumns = defaultColumns;
+            this.excluded = excluded;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.onegov.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent storage reads concurrently so a multi-collection view
+ * costs roughly its slowest read instead of the sum of all reads.
+ * A read that fails, times out or cannot be queued is reported as stale;
+ * it never fails the whole fan-out.
+ */
+@Component
+public class FanOutExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final long defaultTimeoutMs;
+
+    public FanOutExecutor(@Value("${fanout.threads:16}") int threads,
+                          @Value("${fanout.queue-capacity:256}") int queueCapacity,
+                          @Value("${fanout.timeout-ms:3000}") long defaultTimeoutMs) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "fan-out-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    public <T> Result<T> invokeAll(Map<String, Callable<T>> tasks) {
+        return invokeAll(tasks, defaultTimeoutMs);
+    }
+
+    // All tasks share one deadline, measured from submission
+    public <T> Result<T> invokeAll(Map<String, Callable<T>> tasks, long timeoutMs) {
+        Map<String, Future<T>> futures = new LinkedHashMap<>();
+        Set<String> stale = new LinkedHashSet<>();
+        for (Map.Entry<String, Callable<T>> task : tasks.entrySet()) {
+            try {
+                futures.put(task.getKey(), executor.submit(task.getValue()));
+            } catch (RejectedExecutionException e) {
+                stale.add(task.getKey());
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Map<String, T> values = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<T>> future : futures.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                values.put(future.getKey(), future.getValue().get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.getValue().cancel(true);
+                stale.add(future.getKey());
+            } catch (ExecutionException e) {
+                System.err.println("Fan-out read " + future.getKey() + " failed: " + e.getCause());
+                stale.add(future.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.getValue().cancel(true);
+                stale.add(future.getKey());
+            }
+        }
+        return new Result<>(values, stale);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public static class Result<T> {
+        private final Map<String, T> values;
+        private final Set<String> stale;
+
+        Result(Map<String, T> values, Set<String> stale) {
+            this.values = Collections.unmodifiableMap(values);
+            this.stale = Collections.unmodifiableSet(stale);
+        }
+
+        public T get(String key) {
+            return values.get(key);
+        }
+
+        public boolean isStale(String key) {
+            return stale.contains(key);
+        }
+
+        public Set<String> getStale() {
+            return stale;
+        }
+    }
+}
@@ -1,78 +1,90 @@
 package com.onegov.service;
 
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.DocumentReference;
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.QuerySnapshot;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
+import com.onegov.service.storage.DocumentPage;
+import com.onegov.service.storage.DocumentQuery;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.storage.UpdatedDocument;
+import com.onegov.service.storage.WriteOperation;
 
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 
-@Service
-public class FirebaseService {
-
-    @Autowired
-    private Firestore firestore;
+/**
+ * Persistence port used by every service.
+ * Implementations: FirestoreStorageAdapter (default) and
+ * InMemoryStorageEngine (Spring profile "memory").
+ */
+public interface FirebaseService {
 
     // Create document
-    public String createDocument(String collection, String documentId, Map<String, Object> data) 
-            throws ExecutionException, InterruptedException {
-        firestore.collection(collection).document(documentId).set(data).get();
-        return documentId;
-    }
+    String createDocument(String collection, String documentId, Map<String, Object> data)
+            throws ExecutionException, InterruptedException;
 
     // Get document by ID
-    public DocumentSnapshot getDocument(String collection, String documentId) 
-            throws ExecutionException, InterruptedException {
-        return firestore.collection(collection).document(documentId).get().get();
-    }
+    StoredDocument getDocument(String collection, String documentId)
+            throws ExecutionException, InterruptedException;
+
+    // Get several documents by ID in one round trip, in the order given; missing ones come back with exists() false
+    List<StoredDocument> getDocuments(String collection, List<String> documentIds)
+            throws ExecutionException, InterruptedException;
 
     // Get all documents in collection
-    public List<DocumentSnapshot> getAllDocuments(String collection) 
-            throws ExecutionException, InterruptedException {
-        QuerySnapshot querySnapshot = firestore.collection(collection).get().get();
-        return querySnapshot.getDocuments().stream()
-                .map(doc -> (DocumentSnapshot) doc)
-                .collect(Collectors.toList());
-    }
+    List<StoredDocument> getAllDocuments(String collection)
+            throws ExecutionException, InterruptedException;
 
     // Query documents by field
-    public List<DocumentSnapshot> queryDocuments(String collection, String field, Object value) 
-            throws ExecutionException, InterruptedException {
-        QuerySnapshot querySnapshot = firestore.collection(collection)
-                .whereEqualTo(field, value)
-                .get()
-                .get();
-        return querySnapshot.getDocuments().stream()
-                .map(doc -> (DocumentSnapshot) doc)
-                .collect(Collectors.toList());
-    }
+    List<StoredDocument> queryDocuments(String collection, String field, Object value)
+            throws ExecutionException, InterruptedException;
+
+    // Query one page: equality filters, orderBy, startAfter cursor, limit and projection
+    DocumentPage queryPage(DocumentQuery query)
+            throws ExecutionException, InterruptedException;
 
     // Update document
-    public void updateDocument(String collection, String documentId, Map<String, Object> updates) 
+    void updateDocument(String collection, String documentId, Map<String, Object> updates)
+            throws ExecutionException, InterruptedException;
+
+    // Update and return the document before and after. The after view is the before view merged with the
+    // updates, so a write landing between the two is not reflected in it.
+    // A missing document is left alone and comes back with exists() false
+    UpdatedDocument updateAndGet(String collection, String documentId, Map<String, Object> updates)
+            throws ExecutionException, InterruptedException;
+
+    // Update only if the stored version is still expectedVersion, bumping it; VersionConflictException otherwise.
+    // Returns the document before and after
+    UpdatedDocument updateDocumentIfVersion(String collection, String documentId, long expectedVersion,
+                                 Map<String, Object> updates)
+            throws ExecutionException, InterruptedException;
+
+    // Same check against a document as it was read. Firestore checks the read's update time inside the write
+    // itself (one call, no read); elsewhere this is the version check above
+    default UpdatedDocument updateDocumentIfUnchanged(String collection, StoredDocument read,
+                                                      Map<String, Object> updates)
             throws ExecutionException, InterruptedException {
-        firestore.collection(collection).document(documentId).update(updates).get();
+        return updateDocumentIfVersion(collection, read.getId(), read.getVersion(), updates);
     }
 
     // Delete document
-    public void deleteDocument(String collection, String documentId) 
-            throws ExecutionException, InterruptedException {
-        firestore.collection(collection).document(documentId).delete().get();
+    void deleteDocument(String collection, String documentId)
+            throws ExecutionException, InterruptedException;
+
+    // Apply writes atomically as one batch; at most getMaxBatchSize() operations.
+    // Conditional updates in the batch fail the whole batch with VersionConflictException
+    void writeBatch(List<WriteOperation> operations)
+            throws ExecutionException, InterruptedException;
+
+    // Largest batch the store accepts in one commit
+    default int getMaxBatchSize() {
+        return 500;
     }
 
     // Check if document exists
-    public boolean documentExists(String collection, String documentId) 
+    default boolean documentExists(String collection, String documentId)
             throws ExecutionException, InterruptedException {
-        DocumentSnapshot document = getDocument(collection, documentId);
-        return document.exists();
+        return getDocument(collection, documentId).exists();
     }
 
     // Generate unique ID
-    public String generateId(String collection) {
-        return firestore.collection(collection).document().getId();
-    }
+    String generateId(String collection);
 }
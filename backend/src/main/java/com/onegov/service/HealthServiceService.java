@@ -1,9 +1,12 @@
 package com.onegov.service;
 
-import com.google.cloud.firestore.DocumentSnapshot;
 import com.onegov.dto.request.HealthServiceRequest;
 import com.onegov.exception.ResourceNotFoundException;
 import com.onegov.model.HealthService;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.event.HealthServiceStatusChanged;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.util.TrackingIdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -11,6 +14,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
@@ -21,11 +25,29 @@ public class HealthServiceService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Autowired
+    private StatsCounterService statsCounterService;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private TrackingIdGenerator trackingIdGenerator;
+
+    @Autowired
+    private TrackingIndex trackingIndex;
+
+    @Autowired
+    private VersionedUpdater versionedUpdater;
+
     private static final String COLLECTION = "healthServices";
 
     public HealthService submitHealthService(HealthServiceRequest request) throws ExecutionException, InterruptedException {
         String serviceId = UUID.randomUUID().toString();
-        String trackingId = getTrackingPrefix(request.getServiceType()) + System.currentTimeMillis();
+        String trackingId = trackingIdGenerator.nextId(getTrackingPrefix(request.getServiceType()));
 
         HealthService healthService = new HealthService();
         healthService.setServiceId(serviceId);
@@ -39,12 +61,14 @@ public class HealthServiceService {
 
         Map<String, Object> data = convertToMap(healthService);
         firebaseService.createDocument(COLLECTION, serviceId, data);
+        trackingIndex.register(trackingId, COLLECTION, serviceId);
+        statsCounterService.recordCreated(COLLECTION, healthService.getStatus());
 
         return healthService;
     }
 
     public HealthService getServiceById(String serviceId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = firebaseService.getDocument(COLLECTION, serviceId);
+        StoredDocument doc = entityCache.getDocument(COLLECTION, serviceId);
         
         if (!doc.exists()) {
             throw new ResourceNotFoundException("Health service not found");
@@ -54,13 +78,13 @@ public class HealthServiceService {
     }
 
     public HealthService getServiceByTrackingId(String trackingId) throws ExecutionException, InterruptedException {
-        var docs = firebaseService.queryDocuments(COLLECTION, "trackingId", trackingId);
+        StoredDocument doc = entityCache.findByTrackingId(COLLECTION, trackingId);
         
-        if (docs.isEmpty()) {
+        if (!doc.exists()) {
             throw new ResourceNotFoundException("Health service not found");
         }
 
-        return convertToHealthService(docs.get(0));
+        return convertToHealthService(doc);
     }
 
     public List<HealthService> getUserServices(String userId) throws ExecutionException, InterruptedException {
@@ -73,30 +97,34 @@ public class HealthServiceService {
 
     public HealthService updateServiceStatus(String serviceId, String status, String certificateNumber) 
             throws ExecutionException, InterruptedException {
-        HealthService service = getServiceById(serviceId);
-        
-        service.setStatus(status);
-        service.setUpdatedAt(LocalDateTime.now());
-        
-        if (certificateNumber != null) {
-            service.setCertificateNumber(certificateNumber);
-        }
-        
-        if (status.equals("issued")) {
-            service.setIssuedAt(LocalDateTime.now());
-        }
+        LocalDateTime now = LocalDateTime.now();
 
         Map<String, Object> updates = new HashMap<>();
         updates.put("status", status);
-        updates.put("updatedAt", LocalDateTime.now().toString());
+        updates.put("updatedAt", now.toString());
         if (certificateNumber != null) {
             updates.put("certificateNumber", certificateNumber);
         }
-        if (service.getIssuedAt() != null) {
-            updates.put("issuedAt", service.getIssuedAt().toString());
+        if (status.equals("issued")) {
+            updates.put("issuedAt", now.toString());
         }
 
-        firebaseService.updateDocument(COLLECTION, serviceId, updates);
+        StoredDocument doc = versionedUpdater.update(COLLECTION, serviceId, null, "status",
+                "Health service not found", current -> updates).getBefore();
+        HealthService service = convertToHealthService(doc);
+        String previousStatus = service.getStatus();
+
+        service.setStatus(status);
+        service.setUpdatedAt(now);
+        service.setVersion(doc.getVersion() + 1);
+        if (certificateNumber != null) {
+            service.setCertificateNumber(certificateNumber);
+        }
+        if (status.equals("issued")) {
+            service.setIssuedAt(now);
+        }
+        eventBus.publish(new HealthServiceStatusChanged(serviceId, service.getUserId(), service.getTrackingId(),
+                previousStatus, status, null, Objects.toString(service.getSubmittedAt(), null)));
 
         return service;
     }
@@ -127,10 +155,11 @@ public class HealthServiceService {
         if (service.getIssuedAt() != null) {
             map.put("issuedAt", service.getIssuedAt().toString());
         }
+        map.put("version", service.getVersion());
         return map;
     }
 
-    private HealthService convertToHealthService(DocumentSnapshot doc) {
+    private HealthService convertToHealthService(StoredDocument doc) {
         HealthService service = new HealthService();
         service.setServiceId(doc.getString("serviceId"));
         service.setUserId(doc.getString("userId"));
@@ -140,6 +169,7 @@ public class HealthServiceService {
         service.setFormData((Map<String, Object>) doc.get("formData"));
         service.setSubmittedAt(LocalDateTime.parse(doc.getString("submittedAt")));
         service.setUpdatedAt(LocalDateTime.parse(doc.getString("updatedAt")));
+        service.setVersion(doc.getVersion());
         if (doc.getString("certificateNumber") != null) {
             service.setCertificateNumber(doc.getString("certificateNumber"));
         }
@@ -0,0 +1,57 @@
+package com.onegov.service;
+
+import com.onegov.dto.request.ListQueryRequest;
+import com.onegov.dto.response.PagedResult;
+import com.onegov.service.storage.DocumentPage;
+import com.onegov.service.storage.DocumentQuery;
+import com.onegov.service.storage.IndexCatalog;
+import com.onegov.service.storage.StoredDocument;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Shared translation of list endpoint parameters into paged storage queries
+final class ListQueries {
+
+    private ListQueries() {
+    }
+
+    // Newest first; status, department, userId and the from/to range are pushed into the query. Only the
+    // filters IndexCatalog declares for the collection are accepted (IllegalArgumentException, a 400,
+    // otherwise): Firestore fails any combination without a composite index
+    static DocumentQuery newestFirst(String collection, String statusField, String orderBy,
+                                     ListQueryRequest request) {
+        List<String> allowed = IndexCatalog.listFilters(collection);
+        Map<String, Object> filters = new LinkedHashMap<>();
+        filters.put(statusField, request.getStatus());
+        filters.put("department", request.getDepartment());
+        filters.put("userId", request.getUserId());
+        for (Map.Entry<String, Object> filter : filters.entrySet()) {
+            if (filter.getValue() != null && !allowed.contains(filter.getKey())) {
+                throw new IllegalArgumentException("Cannot filter " + collection + " by " + filter.getKey()
+                        + (allowed.isEmpty() ? "" : " (supported: " + String.join(", ", allowed) + ")"));
+            }
+        }
+        return DocumentQuery.of(collection)
+                .whereEqualTo(statusField, request.getStatus())
+                .whereEqualTo("department", request.getDepartment())
+                .whereEqualTo("userId", request.getUserId())
+                .orderBy(orderBy, true)
+                .whereBetween(orderBy, request.getFrom(), request.getTo())
+                .limit(request.resolveLimit())
+                .startAfter(request.getStartAfter())
+                .select(request.resolveFields());
+    }
+
+    static PagedResult<Map<String, Object>> toResult(DocumentPage page) {
+        List<Map<String, Object>> items = new ArrayList<>(page.getDocuments().size());
+        for (StoredDocument doc : page.getDocuments()) {
+            if (doc.exists()) {
+                items.add(doc.getData());
+            }
+        }
+        return new PagedResult<>(items, page.getNextCursor());
+    }
+}
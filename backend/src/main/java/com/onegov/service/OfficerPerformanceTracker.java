@@ -0,0 +1,282 @@
+package com.onegov.service;
+
+import com.onegov.service.event.Backpressure;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.event.StatusChangedEvent;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.util.TrackingIdGenerator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming per-officer performance built from the decisions officers make (status events
+ * carrying an acting officer), so nobody has to scan applications to rank officers. Each officer keeps a decision count and a
+ * submit-to-decision latency histogram. Every instance only counts the decisions it saw and
+ * writes them, through the write-behind queue, to its own share of the officer document
+ * (performance.shares.node&lt;tracking node id&gt;), so instances never overwrite each other's
+ * totals; reads add up all the shares, plus the totals written at the top of performance by
+ * versions that kept one rollup per officer. An instance picks its own share up again after a
+ * restart. Rating is left alone; it is not derived from decisions.
+ */
+@Component
+public class OfficerPerformanceTracker {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private WriteBehindQueue writeBehindQueue;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private TrackingIdGenerator trackingIdGenerator;
+
+    private static final String OFFICERS_COLLECTION = "officers";
+    private static final String SHARES_FIELD = "shares";
+
+    // Statuses that close an item, per collection; moving into one of these is a decision
+    private static final Map<String, Set<String>> DECISION_STATUSES = Map.of(
+            "applications", Set.of("approved", "rejected"),
+            "complaints", Set.of("resolved", "closed"),
+            "healthServices", Set.of("approved", "rejected", "issued"),
+            "documents", Set.of("verified", "rejected"));
+
+    // Upper bounds of the latency buckets in hours (1h .. 30d); the last bucket is open-ended
+    static final long[] BUCKET_BOUNDS_HOURS = {1, 4, 12, 24, 48, 72, 120, 168, 336, 720};
+
+    // This instance's share only; the other instances' shares are read from the officer document
+    private final Map<String, OfficerStats> stats = new ConcurrentHashMap<>();
+    private String shareKey;
+
+    @PostConstruct
+    public void subscribe() {
+        // tracking.node-id is already distinct per instance and stable across its restarts
+        shareKey = "node" + trackingIdGenerator.getNodeId();
+        eventBus.subscribe("officer-performance", StatusChangedEvent.class,
+                event -> recordTransition(event.getActorId(), event.getCollection(), event.getPreviousStatus(),
+                        event.getNewStatus(), event.getSubmittedAt()),
+                Backpressure.CALLER_RUNS);
+    }
+
+    // submittedAt is the item's ISO creation time; transitions without an officer are ignored
+    public void recordTransition(String officerId, String collection, String fromStatus, String toStatus,
+                                 String submittedAt) {
+        Set<String> decisions = DECISION_STATUSES.get(collection);
+        if (officerId == null || decisions == null || !decisions.contains(toStatus) || decisions.contains(fromStatus)) {
+            return;
+        }
+        Double hours = null;
+        if (submittedAt != null) {
+            try {
+                long minutes = Duration.between(LocalDateTime.parse(submittedAt), LocalDateTime.now()).toMinutes();
+                hours = Math.max(0, minutes) / 60.0;
+            } catch (DateTimeParseException e) {
+                // Count the decision without a latency sample
+            }
+        }
+        stats.computeIfAbsent(officerId, id -> new OfficerStats()).record(hours);
+    }
+
+    // Live performance for listings: the stored document's shares with this instance's own share swapped for
+    // its live counts. Falls back to the stored map for officers without any decisions
+    public Map<String, Object> currentPerformance(String officerId, Object stored) {
+        Map<String, Object> performance = new HashMap<>(stored instanceof Map ? castMap(stored) : Map.of());
+        Object shares = performance.remove(SHARES_FIELD);
+        OfficerStats own = stats.get(officerId);
+        if (own == null && !(shares instanceof Map)) {
+            return performance;
+        }
+        OfficerStats total = new OfficerStats();
+        total.seed(performance);
+        if (shares instanceof Map) {
+            castMap(shares).forEach((key, share) -> {
+                if (share instanceof Map && (own == null || !key.equals(shareKey))) {
+                    total.seed(castMap(share));
+                }
+            });
+        }
+        if (own != null) {
+            own.addTo(total);
+        }
+        performance.putAll(total.rollup());
+        return performance;
+    }
+
+    // Each instance replaces only its own share field, so concurrent flushes from other instances don't collide
+    @Scheduled(fixedDelayString = "${performance.flush-interval-ms:30000}",
+            initialDelayString = "${performance.flush-interval-ms:30000}")
+    public void flushRollups() {
+        stats.forEach((officerId, officerStats) -> {
+            Map<String, Object> share = officerStats.drainShare();
+            if (share == null) {
+                return;
+            }
+            writeBehindQueue.enqueue(OFFICERS_COLLECTION, officerId,
+                    Map.of("performance." + SHARES_FIELD + "." + shareKey, share));
+        });
+    }
+
+    // Seeds each officer from this instance's persisted share; seeds add onto anything recorded meanwhile
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPersistedRollups() {
+        try {
+            int loaded = 0;
+            for (StoredDocument doc : firebaseService.getAllDocuments(OFFICERS_COLLECTION)) {
+                Object performance = doc.get("performance");
+                Object shares = performance instanceof Map ? castMap(performance).get(SHARES_FIELD) : null;
+                Object share = shares instanceof Map ? castMap(shares).get(shareKey) : null;
+                if (share instanceof Map) {
+                    stats.computeIfAbsent(doc.getId(), id -> new OfficerStats()).seed(castMap(share));
+                    loaded++;
+                }
+            }
+            System.out.println("Officer performance: loaded " + shareKey + " shares for " + loaded + " officers");
+        } catch (Exception e) {
+            System.err.println("Officer performance: could not load rollups, starting from zero: " + e.getMessage());
+        }
+    }
+
+    public void forget(String officerId) {
+        stats.remove(officerId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static long longValue(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private static double doubleValue(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private static final class OfficerStats {
+        private long processed;
+        private long timed;
+        private double totalHours;
+        private final long[] buckets = new long[BUCKET_BOUNDS_HOURS.length + 1];
+        private boolean dirty;
+
+        synchronized void record(Double hours) {
+            processed++;
+            if (hours != null) {
+                timed++;
+                totalHours += hours;
+                buckets[bucketOf(hours)]++;
+            }
+            dirty = true;
+        }
+
+        synchronized void seed(Map<String, Object> performance) {
+            long seededProcessed = longValue(performance.get("totalProcessed"));
+            processed += seededProcessed;
+            Object histogram = performance.get("responseHistogram");
+            if (histogram instanceof List && ((List<?>) histogram).size() == buckets.length) {
+                List<?> counts = (List<?>) histogram;
+                for (int i = 0; i < buckets.length; i++) {
+                    long count = longValue(counts.get(i));
+                    buckets[i] += count;
+                    timed += count;
+                }
+                totalHours += doubleValue(performance.get("totalResponseHours"));
+            } else if (seededProcessed > 0) {
+                // Older documents only carry the average (in days)
+                timed += seededProcessed;
+                double hours = doubleValue(performance.get("avgResponseTime")) * 24;
+                totalHours += hours * seededProcessed;
+                buckets[bucketOf(hours)] += seededProcessed;
+            }
+        }
+
+        synchronized void addTo(OfficerStats target) {
+            target.processed += processed;
+            target.timed += timed;
+            target.totalHours += totalHours;
+            for (int i = 0; i < buckets.length; i++) {
+                target.buckets[i] += buckets[i];
+            }
+        }
+
+        // The raw counts seed() reads back; null when nothing changed since the last drain
+        synchronized Map<String, Object> drainShare() {
+            if (!dirty) {
+                return null;
+            }
+            dirty = false;
+            Map<String, Object> share = new HashMap<>();
+            share.put("totalProcessed", processed);
+            share.put("totalResponseHours", totalHours);
+            share.put("responseHistogram", histogram());
+            share.put("updatedAt", LocalDateTime.now().toString());
+            return share;
+        }
+
+        synchronized Map<String, Object> rollup() {
+            Map<String, Object> rollup = new HashMap<>();
+            rollup.put("totalProcessed", processed);
+            rollup.put("avgResponseTime", timed == 0 ? 0.0 : roundDays(totalHours / timed));
+            rollup.put("medianResponseTime", roundDays(percentileHours(0.5)));
+            rollup.put("p90ResponseTime", roundDays(percentileHours(0.9)));
+            rollup.put("totalResponseHours", totalHours);
+            rollup.put("responseHistogram", histogram());
+            return rollup;
+        }
+
+        private List<Long> histogram() {
+            List<Long> histogram = new ArrayList<>(buckets.length);
+            for (long count : buckets) {
+                histogram.add(count);
+            }
+            return histogram;
+        }
+
+        // Upper bound of the bucket holding the percentile; the open bucket reports the mean
+        private double percentileHours(double percentile) {
+            if (timed == 0) {
+                return 0.0;
+            }
+            long rank = (long) Math.ceil(percentile * timed);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_HOURS.length ? BUCKET_BOUNDS_HOURS[i] : totalHours / timed;
+                }
+            }
+            return totalHours / timed;
+        }
+
+        private static int bucketOf(double hours) {
+            for (int i = 0; i < BUCKET_BOUNDS_HOURS.length; i++) {
+                if (hours <= BUCKET_BOUNDS_HOURS[i]) {
+                    return i;
+                }
+            }
+            return BUCKET_BOUNDS_HOURS.length;
+        }
+
+        // The admin UI shows response times in days with one decimal
+        private static double roundDays(double hours) {
+            return Math.round(hours / 24 * 10) / 10.0;
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.onegov.service;
 
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.Query;
-import com.onegov.exception.ResourceNotFoundException;
+import com.onegov.dto.request.ListQueryRequest;
+import com.onegov.dto.response.PagedResult;
+import com.onegov.service.event.ApplicationStatusChanged;
+import com.onegov.service.event.ComplaintStatusChanged;
+import com.onegov.service.event.DocumentVerificationChanged;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.event.HealthServiceStatusChanged;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.storage.UpdatedDocument;
+import com.onegov.service.workqueue.ComplaintWorkQueue;
+import com.onegov.service.workqueue.OfficerDirectory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 @Service
@@ -15,129 +26,134 @@ public class OfficerService {
     @Autowired
     private FirebaseService firebaseService;
 
-    private static final String HEALTH_SERVICES_COLLECTION = "healthServices";
-    private static final String APPLICATIONS_COLLECTION = "applications";
-    private static final String COMPLAINTS_COLLECTION = "complaints";
-    private static final String DOCUMENTS_COLLECTION = "documents";
-
-    // Get Officer Dashboard Statistics
-    public Map<String, Object> getDashboardStats(String officerId) throws ExecutionException, InterruptedException {
-        Map<String, Object> stats = new HashMap<>();
-
-        // Get all health services
-        List<DocumentSnapshot> allHealthServices = firebaseService.getAllDocuments(HEALTH_SERVICES_COLLECTION);
-        
-        // Get all applications
-        List<DocumentSnapshot> allApplications = firebaseService.getAllDocuments(APPLICATIONS_COLLECTION);
-        
-        // Get all complaints
-        List<DocumentSnapshot> allComplaints = firebaseService.getAllDocuments(COMPLAINTS_COLLECTION);
+    @Autowired
+    private FanOutExecutor fanOutExecutor;
 
-        // Count by status
-        long pendingHealthServices = allHealthServices.stream()
-                .filter(doc -> "submitted".equals(doc.getString("status")))
-                .count();
-        
-        long pendingApplications = allApplications.stream()
-                .filter(doc -> "submitted".equals(doc.getString("status")))
-                .count();
-        
-        long pendingComplaints = allComplaints.stream()
-                .filter(doc -> "pending".equals(doc.getString("status")))
-                .count();
+    @Autowired
+    private EventBus eventBus;
 
-        long totalProcessed = allHealthServices.stream()
-                .filter(doc -> {
-                    String status = doc.getString("status");
-                    return "issued".equals(status) || "verified".equals(status);
-                })
-                .count();
+    @Autowired
+    private VersionedUpdater versionedUpdater;
 
-        stats.put("totalHealthServices", allHealthServices.size());
-        stats.put("pendingHealthServices", pendingHealthServices);
-        stats.put("totalApplications", allApplications.size());
-        stats.put("pendingApplications", pendingApplications);
-        stats.put("totalComplaints", allComplaints.size());
-        stats.put("pendingComplaints", pendingComplaints);
-        stats.put("totalProcessed", totalProcessed);
+    @Autowired
+    private ComplaintWorkQueue complaintWorkQueue;
 
-        return stats;
-    }
+    @Autowired
+    private OfficerDirectory officerDirectory;
 
-    // Get all health services (for officer to review)
-    public List<Map<String, Object>> getAllHealthServices() throws ExecutionException, InterruptedException {
-        List<DocumentSnapshot> docs = firebaseService.getAllDocuments(HEALTH_SERVICES_COLLECTION);
-        List<Map<String, Object>> services = new ArrayList<>();
+    @Autowired
+    private StatsCounterService statsCounterService;
 
-        for (DocumentSnapshot doc : docs) {
-            if (doc.exists()) {
-                Map<String, Object> service = doc.getData();
-                services.add(service);
-            }
-        }
+    private static final String HEALTH_SERVICES_COLLECTION = "healthServices";
+    private static final String APPLICATIONS_COLLECTION = "applications";
+    private static final String COMPLAINTS_COLLECTION = "complaints";
+    private static final String DOCUMENTS_COLLECTION = "documents";
 
-        return services;
+    // Last successful per-collection dashboard figures, served when a fresh read goes stale
+    private final Map<String, Map<String, Object>> lastDashboardStats = new ConcurrentHashMap<>();
+
+    // Get Status Counts for the list pages' summary cards, from the maintained counters (all departments)
+    public Map<String, Object> getStatusCounters() {
+        Map<String, Object> counters = new HashMap<>();
+        counters.put("totalApplications", statsCounterService.getTotal(APPLICATIONS_COLLECTION));
+        counters.put("applicationsByStatus", statsCounterService.getCountsByStatus(APPLICATIONS_COLLECTION));
+        counters.put("totalComplaints", statsCounterService.getTotal(COMPLAINTS_COLLECTION));
+        counters.put("complaintsByStatus", statsCounterService.getCountsByStatus(COMPLAINTS_COLLECTION));
+        return counters;
     }
 
-    // Get all applications (for officer to review)
-    public List<Map<String, Object>> getAllApplications() throws ExecutionException, InterruptedException {
-        List<DocumentSnapshot> docs = firebaseService.getAllDocuments(APPLICATIONS_COLLECTION);
-        List<Map<String, Object>> applications = new ArrayList<>();
+    // Get Officer Dashboard Statistics
+    // The three collection scans run in parallel; a scan that times out or fails is served
+    // from its last good value and listed under "staleStats" instead of failing the dashboard
+    public Map<String, Object> getDashboardStats(String officerId) throws ExecutionException, InterruptedException {
+        Map<String, Callable<Map<String, Object>>> reads = new LinkedHashMap<>();
+        reads.put(HEALTH_SERVICES_COLLECTION, () -> {
+            List<StoredDocument> allHealthServices = firebaseService.getAllDocuments(HEALTH_SERVICES_COLLECTION);
+            Map<String, Object> partial = new HashMap<>();
+            partial.put("totalHealthServices", allHealthServices.size());
+            partial.put("pendingHealthServices", countByStatus(allHealthServices, "submitted"));
+            partial.put("totalProcessed", countByStatus(allHealthServices, "issued")
+                    + countByStatus(allHealthServices, "verified"));
+            return partial;
+        });
+        reads.put(APPLICATIONS_COLLECTION, () -> {
+            List<StoredDocument> allApplications = firebaseService.getAllDocuments(APPLICATIONS_COLLECTION);
+            Map<String, Object> partial = new HashMap<>();
+            partial.put("totalApplications", allApplications.size());
+            partial.put("pendingApplications", countByStatus(allApplications, "submitted"));
+            return partial;
+        });
+        reads.put(COMPLAINTS_COLLECTION, () -> {
+            List<StoredDocument> allComplaints = firebaseService.getAllDocuments(COMPLAINTS_COLLECTION);
+            Map<String, Object> partial = new HashMap<>();
+            partial.put("totalComplaints", allComplaints.size());
+            partial.put("pendingComplaints", countByStatus(allComplaints, "pending"));
+            return partial;
+        });
+
+        FanOutExecutor.Result<Map<String, Object>> result = fanOutExecutor.invokeAll(reads);
 
-        for (DocumentSnapshot doc : docs) {
-            if (doc.exists()) {
-                Map<String, Object> app = doc.getData();
-                applications.add(app);
+        Map<String, Object> stats = new HashMap<>();
+        for (String collection : reads.keySet()) {
+            Map<String, Object> partial = result.get(collection);
+            if (partial != null) {
+                lastDashboardStats.put(collection, partial);
+            } else {
+                partial = lastDashboardStats.getOrDefault(collection, Collections.emptyMap());
             }
+            stats.putAll(partial);
         }
+        stats.put("staleStats", new ArrayList<>(result.getStale()));
 
-        return applications;
+        return stats;
     }
 
-    // Get all complaints (for officer to review)
-    public List<Map<String, Object>> getAllComplaints() throws ExecutionException, InterruptedException {
-        List<DocumentSnapshot> docs = firebaseService.getAllDocuments(COMPLAINTS_COLLECTION);
-        List<Map<String, Object>> complaints = new ArrayList<>();
-
-        for (DocumentSnapshot doc : docs) {
-            if (doc.exists()) {
-                Map<String, Object> complaint = doc.getData();
-                complaints.add(complaint);
-            }
-        }
+    private long countByStatus(List<StoredDocument> docs, String status) {
+        return docs.stream()
+                .filter(doc -> status.equals(doc.getString("status")))
+                .count();
+    }
 
-        return complaints;
+    // Get a page of health services (for officer to review)
+    public PagedResult<Map<String, Object>> getAllHealthServices(ListQueryRequest request)
+            throws ExecutionException, InterruptedException {
+        return ListQueries.toResult(firebaseService.queryPage(
+                ListQueries.newestFirst(HEALTH_SERVICES_COLLECTION, "status", "updatedAt", request)));
     }
 
-    // Get all documents for verification
-    public List<Map<String, Object>> getAllDocuments() throws ExecutionException, InterruptedException {
-        List<DocumentSnapshot> docs = firebaseService.getAllDocuments(DOCUMENTS_COLLECTION);
-        List<Map<String, Object>> documents = new ArrayList<>();
+    // Get a page of applications (for officer to review)
+    public PagedResult<Map<String, Object>> getAllApplications(ListQueryRequest request)
+            throws ExecutionException, InterruptedException {
+        return ListQueries.toResult(firebaseService.queryPage(
+                ListQueries.newestFirst(APPLICATIONS_COLLECTION, "status", "updatedAt", request)));
+    }
 
-        for (DocumentSnapshot doc : docs) {
-            if (doc.exists()) {
-                Map<String, Object> document = doc.getData();
-                documents.add(document);
-            }
+    // Get a page of complaints (for officer to review); officers see their own department unless they ask otherwise
+    public PagedResult<Map<String, Object>> getAllComplaints(ListQueryRequest request, String actingOfficerId)
+            throws ExecutionException, InterruptedException {
+        if (request.getDepartment() == null && officerDirectory.departmentOf(actingOfficerId) != null) {
+            request.setDepartment(officerDirectory.departmentOf(actingOfficerId));
         }
+        return ListQueries.toResult(firebaseService.queryPage(
+                ListQueries.newestFirst(COMPLAINTS_COLLECTION, "status", "updatedAt", request)));
+    }
 
-        return documents;
+    // Get a page of documents for verification (documents carry uploadedAt, not updatedAt)
+    public PagedResult<Map<String, Object>> getAllDocuments(ListQueryRequest request)
+            throws ExecutionException, InterruptedException {
+        return ListQueries.toResult(firebaseService.queryPage(
+                ListQueries.newestFirst(DOCUMENTS_COLLECTION, "verificationStatus", "uploadedAt", request)));
     }
 
     // Update health service status
     public Map<String, Object> updateHealthServiceStatus(String serviceId, String status, 
-                                                         String certificateNumber, String remarks) 
+                                                         String certificateNumber, String remarks,
+                                                         String actingOfficerId, Long expectedVersion) 
             throws ExecutionException, InterruptedException {
         
-        DocumentSnapshot doc = firebaseService.getDocument(HEALTH_SERVICES_COLLECTION, serviceId);
-        
-        if (!doc.exists()) {
-            throw new ResourceNotFoundException("Health service not found");
-        }
-
         Map<String, Object> updates = new HashMap<>();
         updates.put("status", status);
-        updates.put("updatedAt", new Date().toString());
+        updates.put("updatedAt", LocalDateTime.now().toString());
         
         if (certificateNumber != null && !certificateNumber.isEmpty()) {
             updates.put("certificateNumber", certificateNumber);
@@ -147,91 +163,85 @@ public class OfficerService {
             updates.put("remarks", remarks);
         }
 
-        firebaseService.updateDocument(HEALTH_SERVICES_COLLECTION, serviceId, updates);
+        UpdatedDocument updated = versionedUpdater.update(HEALTH_SERVICES_COLLECTION, serviceId, expectedVersion, "status",
+                "Health service not found", current -> updates);
+        StoredDocument doc = updated.getBefore();
+        eventBus.publish(new HealthServiceStatusChanged(serviceId, doc.getString("userId"), doc.getString("trackingId"),
+                doc.getString("status"), status, actingOfficerId, doc.getString("submittedAt")));
 
-        // Return updated document
-        DocumentSnapshot updated = firebaseService.getDocument(HEALTH_SERVICES_COLLECTION, serviceId);
-        return updated.getData();
+        return updated.getAfter().getData();
     }
 
     // Update application status
     public Map<String, Object> updateApplicationStatus(String applicationId, String status, 
-                                                       String officerName, String remarks) 
+                                                       String officerName, String remarks,
+                                                       String actingOfficerId, Long expectedVersion) 
             throws ExecutionException, InterruptedException {
         
-        DocumentSnapshot doc = firebaseService.getDocument(APPLICATIONS_COLLECTION, applicationId);
-        
-        if (!doc.exists()) {
-            throw new ResourceNotFoundException("Application not found");
-        }
-
         Map<String, Object> updates = new HashMap<>();
         updates.put("status", status);
-        updates.put("updatedAt", new Date().toString());
+        updates.put("updatedAt", LocalDateTime.now().toString());
         updates.put("assignedOfficer", officerName);
         
         if (remarks != null && !remarks.isEmpty()) {
             updates.put("remarks", remarks);
         }
 
-        firebaseService.updateDocument(APPLICATIONS_COLLECTION, applicationId, updates);
+        UpdatedDocument updated = versionedUpdater.update(APPLICATIONS_COLLECTION, applicationId, expectedVersion, "status",
+                "Application not found", current -> updates);
+        StoredDocument doc = updated.getBefore();
+        eventBus.publish(new ApplicationStatusChanged(applicationId, doc.getString("userId"), doc.getString("trackingId"),
+                doc.getString("status"), status, actingOfficerId, doc.getString("submittedAt")));
 
-        // Return updated document
-        DocumentSnapshot updated = firebaseService.getDocument(APPLICATIONS_COLLECTION, applicationId);
-        return updated.getData();
+        return updated.getAfter().getData();
     }
 
     // Update complaint status
     public Map<String, Object> updateComplaintStatus(String complaintId, String status, 
-                                                     String resolution, String officerName) 
+                                                     String resolution, String officerName,
+                                                     String actingOfficerId, Long expectedVersion) 
             throws ExecutionException, InterruptedException {
-        
-        DocumentSnapshot doc = firebaseService.getDocument(COMPLAINTS_COLLECTION, complaintId);
-        
-        if (!doc.exists()) {
-            throw new ResourceNotFoundException("Complaint not found");
-        }
+        complaintWorkQueue.checkHolder(complaintId, actingOfficerId);
 
         Map<String, Object> updates = new HashMap<>();
         updates.put("status", status);
-        updates.put("updatedAt", new Date().toString());
+        updates.put("updatedAt", LocalDateTime.now().toString());
         updates.put("assignedOfficer", officerName);
         
         if (resolution != null && !resolution.isEmpty()) {
             updates.put("resolution", resolution);
         }
 
-        firebaseService.updateDocument(COMPLAINTS_COLLECTION, complaintId, updates);
+        UpdatedDocument updated = versionedUpdater.update(COMPLAINTS_COLLECTION, complaintId, expectedVersion, "status",
+                "Complaint not found", current -> updates);
+        StoredDocument doc = updated.getBefore();
+        eventBus.publish(new ComplaintStatusChanged(complaintId, doc.getString("userId"), doc.getString("trackingId"),
+                doc.getString("status"), status, actingOfficerId, doc.getString("createdAt")));
 
-        // Return updated document
-        DocumentSnapshot updated = firebaseService.getDocument(COMPLAINTS_COLLECTION, complaintId);
-        return updated.getData();
+        return updated.getAfter().getData();
     }
 
     // Verify document
     public Map<String, Object> verifyDocument(String documentId, String verifiedBy, 
-                                             String status, String remarks) 
+                                             String status, String remarks,
+                                             String actingOfficerId, Long expectedVersion) 
             throws ExecutionException, InterruptedException {
         
-        DocumentSnapshot doc = firebaseService.getDocument(DOCUMENTS_COLLECTION, documentId);
-        
-        if (!doc.exists()) {
-            throw new ResourceNotFoundException("Document not found");
-        }
-
         Map<String, Object> updates = new HashMap<>();
         updates.put("verificationStatus", status);
         updates.put("verifiedBy", verifiedBy);
-        updates.put("verifiedAt", new Date().toString());
+        updates.put("verifiedAt", LocalDateTime.now().toString());
         
         if (remarks != null && !remarks.isEmpty()) {
             updates.put("remarks", remarks);
         }
 
-        firebaseService.updateDocument(DOCUMENTS_COLLECTION, documentId, updates);
+        UpdatedDocument updated = versionedUpdater.update(DOCUMENTS_COLLECTION, documentId, expectedVersion, "verificationStatus",
+                "Document not found", current -> updates);
+        StoredDocument doc = updated.getBefore();
+        eventBus.publish(new DocumentVerificationChanged(documentId, doc.getString("userId"),
+                doc.getString("verificationStatus"), status, actingOfficerId, doc.getString("uploadedAt")));
 
-        // Return updated document
-        DocumentSnapshot updated = firebaseService.getDocument(DOCUMENTS_COLLECTION, documentId);
-        return updated.getData();
+        return updated.getAfter().getData();
     }
 }
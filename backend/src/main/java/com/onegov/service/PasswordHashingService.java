@@ -0,0 +1,207 @@
+package com.onegov.service;
+
+import com.onegov.exception.HashingOverloadedException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs BCrypt on a dedicated bounded pool so a login storm queues here instead of
+ * pinning every request thread on CPU. When the queue is full new work is refused
+ * immediately with HashingOverloadedException (mapped to 429).
+ * Cost is configured per account type; hashes made with a different cost are
+ * re-hashed after the next successful login.
+ */
+@Service
+public class PasswordHashingService {
+
+    public static final String CITIZEN = "citizen";
+    public static final String OFFICER = "officer";
+    public static final String ADMIN = "admin";
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final Map<String, BCryptPasswordEncoder> encoders = new HashMap<>();
+    private final Map<String, Integer> costs = new HashMap<>();
+
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder rehashes = new LongAdder();
+
+    public PasswordHashingService(@Value("${auth.hashing.threads:0}") int threads,
+                                  @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${auth.hashing.timeout-ms:10000}") long timeoutMs,
+                                  @Value("${auth.bcrypt.cost.citizen:10}") int citizenCost,
+                                  @Value("${auth.bcrypt.cost.officer:12}") int officerCost,
+                                  @Value("${auth.bcrypt.cost.admin:12}") int adminCost) {
+        // Default to one thread per core: hashing is pure CPU work
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMs = timeoutMs;
+        configure(CITIZEN, citizenCost);
+        configure(OFFICER, officerCost);
+        configure(ADMIN, adminCost);
+    }
+
+    private void configure(String accountType, int cost) {
+        costs.put(accountType, cost);
+        encoders.put(accountType, new BCryptPasswordEncoder(cost));
+    }
+
+    public String encode(String accountType, String rawPassword) {
+        BCryptPasswordEncoder encoder = encoder(accountType);
+        return run(() -> encoder.encode(rawPassword));
+    }
+
+    // Any encoder can check any BCrypt hash: the cost and salt are read from the hash itself
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        return run(() -> encoders.get(CITIZEN).matches(rawPassword, encodedPassword));
+    }
+
+    // True when the stored hash was made with a cost other than the one now configured
+    public boolean needsRehash(String accountType, String encodedPassword) {
+        Integer storedCost = costOf(encodedPassword);
+        return storedCost != null && !storedCost.equals(costs.get(accountType));
+    }
+
+    // Best effort after a successful login: hash with the current cost, then hand the new hash to the caller.
+    // Skipped silently when the pool is busy; the next login tries again.
+    public void rehashInBackground(String accountType, String rawPassword, Consumer<String> store) {
+        BCryptPasswordEncoder encoder = encoder(accountType);
+        long submittedAt = System.nanoTime();
+        try {
+            CompletableFuture.supplyAsync(() -> timed(submittedAt, () -> encoder.encode(rawPassword)), executor)
+                    .thenAccept(hash -> {
+                        store.accept(hash);
+                        rehashes.increment();
+                    })
+                    .exceptionally(e -> {
+                        System.err.println("Password rehash failed: " + e.getMessage());
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long count = hashes.sum();
+        stats.put("hashes", count);
+        stats.put("avgHashMs", count == 0 ? 0.0 : hashNanos.sum() / 1e6 / count);
+        stats.put("maxHashMs", maxHashNanos.get() / 1e6);
+        stats.put("avgQueueWaitMs", count == 0 ? 0.0 : queueWaitNanos.sum() / 1e6 / count);
+        stats.put("maxQueueWaitMs", maxQueueWaitNanos.get() / 1e6);
+        stats.put("rejections", rejections.sum());
+        stats.put("rehashes", rehashes.sum());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("poolSize", executor.getMaximumPoolSize());
+        stats.put("costs", new HashMap<>(costs));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timed(submittedAt, task));
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new HashingOverloadedException("Too many sign-in requests, please retry shortly");
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HashingOverloadedException("Too many sign-in requests, please retry shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    private <T> T timed(long submittedAt, Callable<T> task) {
+        long startedAt = System.nanoTime();
+        record(queueWaitNanos, maxQueueWaitNanos, startedAt - submittedAt);
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            hashes.increment();
+            record(hashNanos, maxHashNanos, System.nanoTime() - startedAt);
+        }
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    private BCryptPasswordEncoder encoder(String accountType) {
+        BCryptPasswordEncoder encoder = encoders.get(accountType);
+        if (encoder == null) {
+            throw new IllegalArgumentException("Unknown account type: " + accountType);
+        }
+        return encoder;
+    }
+
+    // BCrypt hashes look like $2a$10$<salt+hash>; the second field is the cost
+    private static Integer costOf(String encodedPassword) {
+        if (encodedPassword == null) {
+            return null;
+        }
+        String[] parts = encodedPassword.split("\\$");
+        if (parts.length < 4) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(parts[2]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
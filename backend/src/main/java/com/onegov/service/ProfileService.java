@@ -1,9 +1,10 @@
 package com.onegov.service;
 
-import com.google.cloud.firestore.DocumentSnapshot;
 import com.onegov.dto.request.ProfileRequest;
 import com.onegov.exception.ResourceNotFoundException;
 import com.onegov.model.CitizenProfile;
+import com.onegov.service.eligibility.SchemeRuleEngine;
+import com.onegov.service.storage.StoredDocument;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -17,6 +18,15 @@ public class ProfileService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private SchemeRuleEngine schemeRuleEngine;
+
+    @Autowired
+    private SchemeEligibilityIndex schemeEligibilityIndex;
+
     private static final String COLLECTION = "citizen_profiles";
 
     public CitizenProfile createOrUpdateProfile(ProfileRequest request) throws ExecutionException, InterruptedException {
@@ -25,12 +35,14 @@ public class ProfileService {
         
         String profileId;
         LocalDateTime createdAt;
+        Long nextVersion = null;
         
         if (!existingProfiles.isEmpty()) {
             // Update existing profile
-            DocumentSnapshot existingDoc = existingProfiles.get(0);
+            StoredDocument existingDoc = existingProfiles.get(0);
             profileId = existingDoc.getString("profileId");
             createdAt = LocalDateTime.parse(existingDoc.getString("createdAt"));
+            nextVersion = existingDoc.getVersion() + 1;
         } else {
             // Create new profile
             profileId = UUID.randomUUID().toString();
@@ -60,7 +72,14 @@ public class ProfileService {
         profile.setEligibleSchemes(eligibleSchemes);
 
         Map<String, Object> data = convertToMap(profile);
+        if (nextVersion != null) {
+            // Moves the version on, so a conditional write from an older read (the eligibility recompute) loses
+            data.put(StoredDocument.VERSION_FIELD, nextVersion);
+        }
         firebaseService.createDocument(COLLECTION, profileId, data);
+        // createDocument overwrites an existing profile, so drop any cached copy
+        entityCache.invalidate(COLLECTION, profileId);
+        schemeEligibilityIndex.index(profileId, profile.getState(), eligibleSchemes);
 
         return profile;
     }
@@ -76,7 +95,7 @@ public class ProfileService {
     }
 
     public CitizenProfile getProfileById(String profileId) throws ExecutionException, InterruptedException {
-        DocumentSnapshot doc = firebaseService.getDocument(COLLECTION, profileId);
+        StoredDocument doc = entityCache.getDocument(COLLECTION, profileId);
         
         if (!doc.exists()) {
             throw new ResourceNotFoundException("Profile not found");
@@ -85,50 +104,9 @@ public class ProfileService {
         return convertToProfile(doc);
     }
 
-    private List<String> calculateEligibleSchemes(CitizenProfile profile) {
-        List<String> eligible = new ArrayList<>();
-
-        // PM Kisan - Farmers with land
-        if (Boolean.TRUE.equals(profile.getIsFarmer())) {
-            eligible.add("pm-kisan");
-        }
-
-        // Ayushman Bharat - Income < 5 lakhs or BPL
-        if (profile.getIncome() < 500000 || Boolean.TRUE.equals(profile.getHasBPLCard())) {
-            eligible.add("ayushman-bharat");
-        }
-
-        // PM Scholarship - Students
-        if (Boolean.TRUE.equals(profile.getIsStudent())) {
-            eligible.add("pm-scholarship");
-        }
-
-        // Widow Pension - Female, age > 40
-        if ("Female".equalsIgnoreCase(profile.getGender()) && profile.getAge() > 40) {
-            eligible.add("widow-pension");
-        }
-
-        // Old Age Pension - Age > 60
-        if (profile.getAge() > 60) {
-            eligible.add("old-age-pension");
-        }
-
-        // SC/ST Scholarship
-        if ("SC".equals(profile.getCategory()) || "ST".equals(profile.getCategory())) {
-            eligible.add("sc-st-scholarship");
-        }
-
-        // Minority Scholarship
-        if (Boolean.TRUE.equals(profile.getIsMinority())) {
-            eligible.add("minority-scholarship");
-        }
-
-        // Disability Pension
-        if (Boolean.TRUE.equals(profile.getHasDisability())) {
-            eligible.add("disability-pension");
-        }
-
-        return eligible;
+    // Rules come from the scheme catalogue (Scheme.eligibilityCriteria), compiled by the engine
+    List<String> calculateEligibleSchemes(CitizenProfile profile) {
+        return schemeRuleEngine.evaluate(profile);
     }
 
     private Map<String, Object> convertToMap(CitizenProfile profile) {
@@ -153,7 +131,7 @@ public class ProfileService {
         return map;
     }
 
-    private CitizenProfile convertToProfile(DocumentSnapshot doc) {
+    private CitizenProfile convertToProfile(StoredDocument doc) {
         CitizenProfile profile = new CitizenProfile();
         profile.setProfileId(doc.getString("profileId"));
         profile.setUserId(doc.getString("userId"));
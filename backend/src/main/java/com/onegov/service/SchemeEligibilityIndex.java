@@ -0,0 +1,305 @@
+package com.onegov.service;
+
+import com.onegov.service.storage.DocumentPage;
+import com.onegov.service.storage.DocumentQuery;
+import com.onegov.service.storage.StoredDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory inverted index from scheme id to the citizen profiles currently eligible for it,
+ * for outreach queries ("eligible for pm-kisan in Bihar") that would otherwise scan every
+ * profile. Profiles are sharded by state; inside a shard each profile gets a small ordinal
+ * and every scheme is a bitmap over those ordinals, so counts, intersections and unions are
+ * word-wise bit operations. Ordinals are dense per shard, which keeps plain BitSets compact.
+ * Kept current by profile saves and the eligibility recompute job, and rebuilt from the
+ * store on startup (per instance, like the other in-memory views).
+ */
+@Component
+public class SchemeEligibilityIndex {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    private static final String PROFILES_COLLECTION = "citizen_profiles";
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    // Sorted so paging walks the shards in a stable order
+    private final Map<String, Shard> shards = new ConcurrentSkipListMap<>();
+    private final Map<String, String> shardOfProfile = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+    private volatile Set<String> updatedDuringRebuild;
+
+    // Replaces whatever was indexed for the profile; a null list just removes it
+    public void index(String profileId, String state, List<String> eligibleSchemes) {
+        Set<String> touched = updatedDuringRebuild;
+        if (touched != null) {
+            touched.add(profileId);
+        }
+        apply(profileId, state, eligibleSchemes);
+    }
+
+    public void remove(String profileId) {
+        index(profileId, null, null);
+    }
+
+    private void apply(String profileId, String state, List<String> eligibleSchemes) {
+        String key = shardKey(state);
+        // compute serializes updates of one profile, including moves between shards
+        shardOfProfile.compute(profileId, (id, previousKey) -> {
+            if (previousKey != null) {
+                shards.get(previousKey).remove(id);
+            }
+            if (eligibleSchemes == null) {
+                return null;
+            }
+            shards.computeIfAbsent(key, k -> new Shard()).add(id, eligibleSchemes);
+            return key;
+        });
+    }
+
+    // Profiles eligible for all (matchAll) or any of the schemes, per state shard
+    public Map<String, Object> count(List<String> schemeIds, boolean matchAll, List<String> states) {
+        long started = System.nanoTime();
+        Map<String, Long> byState = new TreeMap<>();
+        long total = 0;
+        for (Map.Entry<String, Shard> entry : selectShards(states).entrySet()) {
+            long count = entry.getValue().count(schemeIds, matchAll);
+            if (count > 0) {
+                byState.put(entry.getKey(), count);
+                total += count;
+            }
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("count", total);
+        result.put("byState", byState);
+        result.put("indexReady", ready);
+        result.put("tookMicros", (System.nanoTime() - started) / 1000);
+        return result;
+    }
+
+    // Profile ids in shard then ordinal order; nextCursor is null on the last page
+    public Page page(List<String> schemeIds, boolean matchAll, List<String> states, String cursor, int limit) {
+        String afterShard = null;
+        int afterOrdinal = -1;
+        if (cursor != null && !cursor.isEmpty()) {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            afterShard = decoded.substring(0, separator);
+            afterOrdinal = Integer.parseInt(decoded.substring(separator + 1));
+        }
+
+        List<String> ids = new ArrayList<>();
+        for (Map.Entry<String, Shard> entry : selectShards(states).entrySet()) {
+            int compared = afterShard == null ? 1 : entry.getKey().compareTo(afterShard);
+            if (compared < 0) {
+                continue;
+            }
+            int from = compared == 0 ? afterOrdinal + 1 : 0;
+            int last = entry.getValue().collect(schemeIds, matchAll, from, limit - ids.size(), ids);
+            if (ids.size() >= limit) {
+                String token = entry.getKey() + "|" + last;
+                return new Page(ids, Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(token.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        return new Page(ids, null);
+    }
+
+    private Map<String, Shard> selectShards(List<String> states) {
+        if (states == null || states.isEmpty()) {
+            return shards;
+        }
+        Map<String, Shard> selected = new TreeMap<>();
+        for (String state : states) {
+            Shard shard = shards.get(shardKey(state));
+            if (shard != null) {
+                selected.put(shardKey(state), shard);
+            }
+        }
+        return selected;
+    }
+
+    // Saves made while the rebuild runs win over the (possibly older) rows it reads
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        Set<String> touched = ConcurrentHashMap.newKeySet();
+        updatedDuringRebuild = touched;
+        try {
+            long indexed = 0;
+            String cursor = null;
+            do {
+                DocumentPage page = firebaseService.queryPage(DocumentQuery.of(PROFILES_COLLECTION)
+                        .select(List.of("state", "eligibleSchemes"))
+                        .limit(REBUILD_PAGE_SIZE)
+                        .startAfter(cursor));
+                for (StoredDocument doc : page.getDocuments()) {
+                    if (!touched.contains(doc.getId())) {
+                        apply(doc.getId(), doc.getString("state"), schemeList(doc.get("eligibleSchemes")));
+                        indexed++;
+                    }
+                }
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            ready = true;
+            System.out.println("Scheme eligibility index: " + indexed + " profiles in " + shards.size()
+                    + " state shards, built in " + (System.currentTimeMillis() - started) + "ms");
+        } catch (Exception e) {
+            System.err.println("Scheme eligibility index: rebuild failed, counts cover recent saves only: "
+                    + e.getMessage());
+        } finally {
+            updatedDuringRebuild = null;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<String, Integer> profilesByState = new LinkedHashMap<>();
+        long bitmapBytes = 0;
+        for (Map.Entry<String, Shard> entry : shards.entrySet()) {
+            profilesByState.put(entry.getKey(), entry.getValue().size());
+            bitmapBytes += entry.getValue().bitmapBytes();
+        }
+        stats.put("ready", ready);
+        stats.put("profiles", shardOfProfile.size());
+        stats.put("profilesByState", profilesByState);
+        stats.put("bitmapBytes", bitmapBytes);
+        return stats;
+    }
+
+    private static String shardKey(String state) {
+        return state == null ? "" : state.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> schemeList(Object value) {
+        return value instanceof List ? (List<String>) value : List.of();
+    }
+
+    public static final class Page {
+        private final List<String> profileIds;
+        private final String nextCursor;
+
+        Page(List<String> profileIds, String nextCursor) {
+            this.profileIds = profileIds;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<String> getProfileIds() {
+            return profileIds;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    // One state's profiles; freed ordinals are reused so the bitmaps stay dense
+    private static final class Shard {
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<String> profileIds = new ArrayList<>();
+        private final BitSet live = new BitSet();
+        private final Map<String, BitSet> bySchemes = new HashMap<>();
+
+        synchronized void add(String profileId, List<String> schemeIds) {
+            int ordinal = live.nextClearBit(0);
+            live.set(ordinal);
+            ordinals.put(profileId, ordinal);
+            if (ordinal == profileIds.size()) {
+                profileIds.add(profileId);
+            } else {
+                profileIds.set(ordinal, profileId);
+            }
+            for (String schemeId : schemeIds) {
+                bySchemes.computeIfAbsent(schemeId, k -> new BitSet()).set(ordinal);
+            }
+        }
+
+        synchronized void remove(String profileId) {
+            Integer ordinal = ordinals.remove(profileId);
+            if (ordinal == null) {
+                return;
+            }
+            live.clear(ordinal);
+            profileIds.set(ordinal, null);
+            for (BitSet members : bySchemes.values()) {
+                members.clear(ordinal);
+            }
+        }
+
+        synchronized long count(List<String> schemeIds, boolean matchAll) {
+            BitSet matches = combine(schemeIds, matchAll);
+            return matches == null ? 0 : matches.cardinality();
+        }
+
+        // Appends up to max ids from ordinal from onwards; returns the last ordinal taken
+        synchronized int collect(List<String> schemeIds, boolean matchAll, int from, int max, List<String> into) {
+            BitSet matches = combine(schemeIds, matchAll);
+            int last = from - 1;
+            if (matches == null) {
+                return last;
+            }
+            for (int ordinal = matches.nextSetBit(from); ordinal >= 0 && max > 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                into.add(profileIds.get(ordinal));
+                last = ordinal;
+                max--;
+            }
+            return last;
+        }
+
+        // Null when nothing can match; the result is a copy and safe to modify
+        private BitSet combine(List<String> schemeIds, boolean matchAll) {
+            BitSet result = null;
+            for (String schemeId : schemeIds) {
+                BitSet members = bySchemes.get(schemeId);
+                if (members == null) {
+                    if (matchAll) {
+                        return null;
+                    }
+                    continue;
+                }
+                if (result == null) {
+                    result = (BitSet) members.clone();
+                } else if (matchAll) {
+                    result.and(members);
+                } else {
+                    result.or(members);
+                }
+            }
+            return result;
+        }
+
+        synchronized int size() {
+            return ordinals.size();
+        }
+
+        synchronized long bitmapBytes() {
+            long bytes = live.size() / 8;
+            for (BitSet members : bySchemes.values()) {
+                bytes += members.size() / 8;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.onegov.service;
+
+import com.onegov.service.event.Backpressure;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.event.StatusChangedEvent;
+import com.onegov.service.storage.StoredDocument;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-collection and per-status totals for the dashboards, kept up to date
+ * by the create/update/delete paths so reading them never scans a collection.
+ * A periodic reconciliation recounts from the store and corrects any drift
+ * (failed writes, other instances, manual console edits).
+ */
+@Service
+public class StatsCounterService {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private FanOutExecutor fanOutExecutor;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Value("${stats.reconcile.timeout-ms:60000}")
+    private long reconcileTimeoutMs;
+
+    static final String OFFICERS_COLLECTION = "officers";
+    static final String USERS_COLLECTION = "users";
+    static final String APPLICATIONS_COLLECTION = "applications";
+    static final String COMPLAINTS_COLLECTION = "complaints";
+    static final String HEALTH_SERVICES_COLLECTION = "healthServices";
+
+    static final List<String> TRACKED_COLLECTIONS = List.of(
+            OFFICERS_COLLECTION, USERS_COLLECTION, APPLICATIONS_COLLECTION,
+            COMPLAINTS_COLLECTION, HEALTH_SERVICES_COLLECTION);
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private volatile Map<String, Object> lastReconciliation = Map.of();
+
+    // Status transitions arrive through the event bus; a full queue falls back to counting inline
+    @PostConstruct
+    public void subscribe() {
+        eventBus.subscribe("stats-counters", StatusChangedEvent.class, event -> {
+            if (TRACKED_COLLECTIONS.contains(event.getCollection())) {
+                recordStatusChange(event.getCollection(), event.getPreviousStatus(), event.getNewStatus());
+            }
+        }, Backpressure.CALLER_RUNS);
+    }
+
+    // Document created with the given initial status
+    public void recordCreated(String collection, String status) {
+        counter(totalKey(collection)).increment();
+        if (status != null) {
+            counter(statusKey(collection, status)).increment();
+        }
+    }
+
+    // Document removed; status is the one it had before deletion
+    public void recordDeleted(String collection, String status) {
+        counter(totalKey(collection)).decrement();
+        if (status != null) {
+            counter(statusKey(collection, status)).decrement();
+        }
+    }
+
+    public void recordStatusChange(String collection, String oldStatus, String newStatus) {
+        if (oldStatus != null && oldStatus.equals(newStatus)) {
+            return;
+        }
+        if (oldStatus != null) {
+            counter(statusKey(collection, oldStatus)).decrement();
+        }
+        if (newStatus != null) {
+            counter(statusKey(collection, newStatus)).increment();
+        }
+    }
+
+    public long getTotal(String collection) {
+        return value(totalKey(collection));
+    }
+
+    public long getCountByStatus(String collection, String status) {
+        return value(statusKey(collection, status));
+    }
+
+    // Every status counted for the collection; statuses that dropped back to zero are left out
+    public Map<String, Long> getCountsByStatus(String collection) {
+        String prefix = statusKey(collection, "");
+        Map<String, Long> counts = new TreeMap<>();
+        counters.forEach((key, adder) -> {
+            long count = adder.sum();
+            if (key.startsWith(prefix) && count > 0) {
+                counts.put(key.substring(prefix.length()), count);
+            }
+        });
+        return counts;
+    }
+
+    public Map<String, Object> getLastReconciliation() {
+        return lastReconciliation;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeCounters() throws ExecutionException, InterruptedException {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${stats.reconcile.interval-ms:600000}",
+            initialDelayString = "${stats.reconcile.interval-ms:600000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            System.err.println("Stats reconciliation failed: " + e.getMessage());
+        }
+    }
+
+    // Recount every tracked collection from the store (in parallel) and correct counters that drifted.
+    // A collection whose scan times out keeps its current counters until the next run. Runs one at a time,
+    // so two reconciliations cannot both apply a correction against the same snapshot.
+    public synchronized Map<String, Object> reconcile() throws ExecutionException, InterruptedException {
+        Map<String, Long> snapshot = new HashMap<>();
+        counters.forEach((key, adder) -> snapshot.put(key, adder.sum()));
+
+        Map<String, Callable<Map<String, Long>>> scans = new LinkedHashMap<>();
+        for (String collection : TRACKED_COLLECTIONS) {
+            scans.put(collection, () -> countCollection(collection, firebaseService.getAllDocuments(collection)));
+        }
+        FanOutExecutor.Result<Map<String, Long>> result = fanOutExecutor.invokeAll(scans, reconcileTimeoutMs);
+
+        Map<String, Long> actual = new HashMap<>();
+        for (String collection : TRACKED_COLLECTIONS) {
+            Map<String, Long> counts = result.get(collection);
+            if (counts != null) {
+                actual.putAll(counts);
+            }
+        }
+        return applyCounts(actual, snapshot, result.getStale());
+    }
+
+    Map<String, Long> countCollection(String collection, List<StoredDocument> docs) {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put(totalKey(collection), 0L);
+        for (StoredDocument doc : docs) {
+            if (!doc.exists()) {
+                continue;
+            }
+            counts.merge(totalKey(collection), 1L, Long::sum);
+            Object status = doc.get("status");
+            if (status != null) {
+                counts.merge(statusKey(collection, status.toString()), 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    // Corrects by the difference between the recount and the counters as they were before the scan began,
+    // so increments recorded while the scan ran are kept on top. Not exact: a write the scan already saw but
+    // whose increment came after the snapshot is counted twice, and the next run takes that back out.
+    synchronized Map<String, Object> applyCounts(Map<String, Long> actual, Map<String, Long> snapshot,
+                                                 Set<String> skippedCollections) {
+        Map<String, Long> drift = new HashMap<>();
+        for (Map.Entry<String, Long> entry : actual.entrySet()) {
+            long delta = entry.getValue() - snapshot.getOrDefault(entry.getKey(), 0L);
+            if (delta != 0) {
+                counter(entry.getKey()).add(delta);
+                drift.put(entry.getKey(), delta);
+            }
+        }
+        // Statuses that no longer exist in the store; ones first counted during the scan are left alone
+        for (Map.Entry<String, Long> entry : snapshot.entrySet()) {
+            String collection = entry.getKey().split(":", 2)[0];
+            if (!actual.containsKey(entry.getKey()) && !skippedCollections.contains(collection)) {
+                long stale = entry.getValue();
+                if (stale != 0) {
+                    counter(entry.getKey()).add(-stale);
+                    drift.put(entry.getKey(), -stale);
+                }
+            }
+        }
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("reconciledAt", LocalDateTime.now().toString());
+        report.put("driftDetected", !drift.isEmpty());
+        report.put("drift", drift);
+        report.put("skippedCollections", skippedCollections);
+        lastReconciliation = report;
+
+        if (!drift.isEmpty()) {
+            System.out.println("Stats counters drifted, corrected: " + drift);
+        }
+        return report;
+    }
+
+    private LongAdder counter(String key) {
+        return counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    private long value(String key) {
+        LongAdder adder = counters.get(key);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    private String totalKey(String collection) {
+        return collection;
+    }
+
+    private String statusKey(String collection, String status) {
+        return collection + ":" + status;
+    }
+}
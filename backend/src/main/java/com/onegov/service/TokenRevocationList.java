@@ -0,0 +1,95 @@
+package com.onegov.service;
+
+import com.onegov.service.storage.StoredDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of blocked citizens and inactive officers whose still-valid tokens must be refused.
+ * The authentication filter checks it in memory; the set is reloaded from the store
+ * periodically and updated immediately by the admin actions on this instance.
+ */
+@Component
+public class TokenRevocationList {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    private static final String USERS_COLLECTION = "users";
+    private static final String OFFICERS_COLLECTION = "officers";
+
+    private volatile Set<String> revokedIds = ConcurrentHashMap.newKeySet();
+
+    // Local changes made while a refresh is loading, replayed onto the reloaded set
+    private final Map<String, Boolean> changesDuringRefresh = new HashMap<>();
+
+    public boolean isRevoked(String subjectId) {
+        return subjectId != null && revokedIds.contains(subjectId);
+    }
+
+    public synchronized void revoke(String subjectId) {
+        revokedIds.add(subjectId);
+        changesDuringRefresh.put(subjectId, true);
+    }
+
+    public synchronized void restore(String subjectId) {
+        revokedIds.remove(subjectId);
+        changesDuringRefresh.put(subjectId, false);
+    }
+
+    // Citizens use active/blocked, officers active/inactive
+    public void updateFromStatus(String subjectId, String status) {
+        if ("blocked".equals(status) || "inactive".equals(status)) {
+            revoke(subjectId);
+        } else {
+            restore(subjectId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${auth.revocation.refresh-interval-ms:60000}",
+            initialDelayString = "${auth.revocation.refresh-interval-ms:60000}")
+    public void refresh() {
+        synchronized (this) {
+            changesDuringRefresh.clear();
+        }
+        try {
+            Set<String> reloaded = ConcurrentHashMap.newKeySet();
+            for (StoredDocument doc : firebaseService.queryDocuments(USERS_COLLECTION, "status", "blocked")) {
+                reloaded.add(doc.getId());
+            }
+            for (StoredDocument doc : firebaseService.queryDocuments(OFFICERS_COLLECTION, "status", "inactive")) {
+                reloaded.add(doc.getId());
+            }
+            synchronized (this) {
+                changesDuringRefresh.forEach((subjectId, revoked) -> {
+                    if (revoked) {
+                        reloaded.add(subjectId);
+                    } else {
+                        reloaded.remove(subjectId);
+                    }
+                });
+                revokedIds = reloaded;
+            }
+        } catch (Exception e) {
+            // Keep the previous list; a failed refresh must not unblock anyone
+            System.err.println("Token revocation refresh failed: " + e.getMessage());
+        }
+    }
+
+    public int size() {
+        return revokedIds.size();
+    }
+}
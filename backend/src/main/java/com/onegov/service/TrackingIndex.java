@@ -0,0 +1,66 @@
+package com.onegov.service;
+
+import com.onegov.service.storage.StoredDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * trackingId -> (collection, document id) index, stored one document per tracking id,
+ * so resolving a tracking id is a single key read instead of a whereEqualTo query.
+ * Records created before the index existed are found by the old query once and backfilled.
+ */
+@Component
+public class TrackingIndex {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private AsyncFirebaseService asyncFirebaseService;
+
+    static final String INDEX_COLLECTION = "trackingIndex";
+
+    // Called after the record itself is written; if this write is lost the fallback query still finds it
+    public void register(String trackingId, String collection, String documentId)
+            throws ExecutionException, InterruptedException {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("collection", collection);
+        entry.put("documentId", documentId);
+        firebaseService.createDocument(INDEX_COLLECTION, trackingId, entry);
+    }
+
+    // Document id for the tracking id, or null if it does not belong to this collection
+    public String resolve(String collection, String trackingId) throws ExecutionException, InterruptedException {
+        StoredDocument entry = firebaseService.getDocument(INDEX_COLLECTION, trackingId);
+        if (entry.exists()) {
+            return collection.equals(entry.getString("collection")) ? entry.getString("documentId") : null;
+        }
+
+        List<StoredDocument> docs = firebaseService.queryDocuments(collection, "trackingId", trackingId);
+        if (docs.isEmpty()) {
+            return null;
+        }
+        String documentId = docs.get(0).getId();
+        register(trackingId, collection, documentId);
+        return documentId;
+    }
+
+    // Same lookup without blocking; legacy records are resolved but not backfilled here
+    // because the write would run on the storage callback thread
+    public CompletableFuture<String> resolveAsync(String collection, String trackingId) {
+        return asyncFirebaseService.getDocumentAsync(INDEX_COLLECTION, trackingId).thenCompose(entry -> {
+            if (entry.exists()) {
+                return CompletableFuture.completedFuture(
+                        collection.equals(entry.getString("collection")) ? entry.getString("documentId") : null);
+            }
+            return asyncFirebaseService.queryDocumentsAsync(collection, "trackingId", trackingId)
+                    .thenApply(docs -> docs.isEmpty() ? null : docs.get(0).getId());
+        });
+    }
+}
@@ -0,0 +1,220 @@
+package com.onegov.service;
+
+import com.onegov.exception.ResourceNotFoundException;
+import com.onegov.exception.StreamLimitExceededException;
+import com.onegov.service.event.ApplicationStatusChanged;
+import com.onegov.service.event.Backpressure;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.event.StatusChangedEvent;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.timeline.ApplicationTimelineStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Server-Sent Event streams for citizens watching a tracking id or their own records.
+ * Streams are registered under "tracking:<id>" and "user:<id>" keys and fed by status
+ * events from the event bus, so a waiting page no longer polls the track endpoints.
+ * The current record is read (through the cache) only when someone is listening.
+ * Streams are per instance: behind a load balancer a client only sees changes made on
+ * the instance it is connected to, so route streams and writes alike or keep one node.
+ */
+@Component
+public class TrackingStreamRegistry {
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private ApplicationTimelineStore applicationTimelineStore;
+
+    private final int maxConnections;
+    private final int maxPerKey;
+    private final long timeoutMs;
+
+    private final Map<String, Set<SseEmitter>> streams = new ConcurrentHashMap<>();
+    private final AtomicInteger open = new AtomicInteger();
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+
+    public TrackingStreamRegistry(@Value("${sse.max-connections:5000}") int maxConnections,
+                                  @Value("${sse.max-per-key:10}") int maxPerKey,
+                                  @Value("${sse.timeout-ms:1800000}") long timeoutMs) {
+        this.maxConnections = maxConnections;
+        this.maxPerKey = maxPerKey;
+        this.timeoutMs = timeoutMs;
+    }
+
+    // Slow clients only cost this subscriber's queue; the oldest pending pushes are dropped first
+    @PostConstruct
+    public void subscribe() {
+        eventBus.subscribe("tracking-streams", StatusChangedEvent.class, this::push, Backpressure.DROP_OLDEST);
+    }
+
+    // Only existing tracking ids can be watched, so streams can't be opened for arbitrary keys
+    public SseEmitter openTrackingStream(String collection, String trackingId)
+            throws ExecutionException, InterruptedException {
+        StoredDocument doc = entityCache.findByTrackingId(collection, trackingId);
+        if (!doc.exists()) {
+            throw new ResourceNotFoundException("Tracking id not found");
+        }
+        return register(trackingKey(trackingId));
+    }
+
+    public SseEmitter openUserStream(String userId) {
+        return register(userKey(userId));
+    }
+
+    private SseEmitter register(String key) {
+        if (open.incrementAndGet() > maxConnections) {
+            open.decrementAndGet();
+            rejected.increment();
+            throw new StreamLimitExceededException("Too many open update streams, try again later");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        boolean[] added = new boolean[1];
+        streams.compute(key, (k, existing) -> {
+            Set<SseEmitter> set = existing != null ? existing : ConcurrentHashMap.newKeySet();
+            if (set.size() < maxPerKey) {
+                added[0] = set.add(emitter);
+            }
+            return set;
+        });
+        if (!added[0]) {
+            open.decrementAndGet();
+            rejected.increment();
+            throw new StreamLimitExceededException("Too many open update streams for this record");
+        }
+        emitter.onCompletion(() -> remove(key, emitter));
+        emitter.onTimeout(() -> remove(key, emitter));
+        emitter.onError(e -> remove(key, emitter));
+        opened.increment();
+        return emitter;
+    }
+
+    private void remove(String key, SseEmitter emitter) {
+        streams.computeIfPresent(key, (k, set) -> {
+            if (set.remove(emitter)) {
+                open.decrementAndGet();
+            }
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private void push(StatusChangedEvent event) {
+        List<String> keys = new ArrayList<>();
+        if (event.getTrackingId() != null && streams.containsKey(trackingKey(event.getTrackingId()))) {
+            keys.add(trackingKey(event.getTrackingId()));
+        }
+        if (event.getUserId() != null && streams.containsKey(userKey(event.getUserId()))) {
+            keys.add(userKey(event.getUserId()));
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> update = new HashMap<>();
+        update.put("collection", event.getCollection());
+        update.put("documentId", event.getDocumentId());
+        update.put("trackingId", event.getTrackingId());
+        update.put("previousStatus", event.getPreviousStatus());
+        update.put("status", event.getNewStatus());
+        update.put("occurredAt", event.getOccurredAt().toString());
+        try {
+            // Timeline, remarks and the like come from the record as stored after the change
+            StoredDocument doc = entityCache.getDocument(event.getCollection(), event.getDocumentId());
+            if (doc.exists()) {
+                Map<String, Object> record = doc.getData();
+                if (ApplicationStatusChanged.COLLECTION.equals(event.getCollection())) {
+                    // Application timelines are kept outside the document
+                    record.put("timeline", applicationTimelineStore.load(doc).stream()
+                            .map(ApplicationTimelineStore::toMap)
+                            .collect(Collectors.toList()));
+                }
+                update.put("record", record);
+            }
+        } catch (Exception e) {
+            System.err.println("Tracking stream: could not load " + event.getCollection() + "/"
+                    + event.getDocumentId() + ", pushing status only: " + e.getMessage());
+        }
+
+        for (String key : keys) {
+            send(key, () -> SseEmitter.event().name("status").data(update));
+        }
+    }
+
+    // Keeps idle connections open through proxies and finds dead clients
+    @Scheduled(fixedDelayString = "${sse.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        for (String key : streams.keySet()) {
+            send(key, () -> SseEmitter.event().comment("ping"));
+        }
+    }
+
+    private void send(String key, Supplier<SseEmitter.SseEventBuilder> event) {
+        Set<SseEmitter> emitters = streams.get(key);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(event.get());
+                sent.increment();
+            } catch (IOException | IllegalStateException e) {
+                sendFailures.increment();
+                remove(key, emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("openStreams", open.get());
+        stats.put("watchedKeys", streams.size());
+        stats.put("maxConnections", maxConnections);
+        stats.put("opened", opened.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("sent", sent.sum());
+        stats.put("sendFailures", sendFailures.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        streams.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        streams.clear();
+    }
+
+    private static String trackingKey(String trackingId) {
+        return "tracking:" + trackingId;
+    }
+
+    private static String userKey(String userId) {
+        return "user:" + userId;
+    }
+}
@@ -0,0 +1,137 @@
+package com.onegov.service;
+
+import com.onegov.exception.ResourceNotFoundException;
+import com.onegov.exception.VersionConflictException;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.storage.UpdatedDocument;
+import com.onegov.service.storage.WriteOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-modify-write of one record under its version number. The write only lands if nobody
+ * changed the record since it was read. If somebody did, the change is recomputed on a fresh
+ * read and tried again, as long as it still commutes with theirs: the guarded field (the
+ * status) is what it was when the change was decided, so only unrelated fields moved. After
+ * versioning.max-attempts tries, when the guarded field moved, or when the caller pinned the
+ * version it was shown, VersionConflictException carries the record as it is now. In the
+ * common case that is one cached read and one store call, with no read-back afterwards: on
+ * Firestore the check travels with the write as a precondition on the read's update time.
+ */
+@Component
+public class VersionedUpdater {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    private final int maxAttempts;
+
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    public VersionedUpdater(@Value("${versioning.max-attempts:3}") int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    // Returns the record as it was just before the update that landed, and as that update left it
+    public UpdatedDocument update(String collection, String documentId, Long expectedVersion, String guardField,
+                                  String notFoundMessage, Function<StoredDocument, Map<String, Object>> updates)
+            throws ExecutionException, InterruptedException {
+        return update(collection, documentId, expectedVersion, guardField, notFoundMessage, updates, List.of());
+    }
+
+    // Same, committing alongside (e.g. a timeline entry) in the same batch; those writes are reused on a retry
+    public UpdatedDocument update(String collection, String documentId, Long expectedVersion, String guardField,
+                                  String notFoundMessage, Function<StoredDocument, Map<String, Object>> updates,
+                                  List<WriteOperation> alongside)
+            throws ExecutionException, InterruptedException {
+        StoredDocument basis = null;
+        boolean basisFromCache = false;
+        for (int attempt = 1; ; attempt++) {
+            // The first read may come from the cache: a stale copy fails the version check and is read again.
+            // A pinned version is checked against the store, so a stale cache cannot fail it
+            boolean fromCache = basis == null && expectedVersion == null;
+            StoredDocument current = fromCache
+                    ? entityCache.getDocument(collection, documentId)
+                    : firebaseService.getDocument(collection, documentId);
+            if (!current.exists()) {
+                throw new ResourceNotFoundException(notFoundMessage);
+            }
+            if (basisFromCache) {
+                // Nobody decided anything on the cached copy, which may predate a status change that already
+                // happened; the first store read is the real basis, and the retry does not use up an attempt
+                basis = current;
+                basisFromCache = false;
+                attempt--;
+            } else if (basis == null) {
+                basis = current;
+                basisFromCache = fromCache;
+                if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                    throw conflict(current);
+                }
+            } else if (expectedVersion != null || attempt > maxAttempts
+                    || !Objects.equals(current.get(guardField), basis.get(guardField))) {
+                throw conflict(current);
+            }
+
+            Map<String, Object> changes = updates.apply(current);
+            try {
+                UpdatedDocument result;
+                if (alongside.isEmpty()) {
+                    result = firebaseService.updateDocumentIfUnchanged(collection, current, changes);
+                } else {
+                    List<WriteOperation> batch = new ArrayList<>(alongside.size() + 1);
+                    batch.add(WriteOperation.updateIfUnchanged(collection, current, changes));
+                    batch.addAll(alongside);
+                    firebaseService.writeBatch(batch);
+                    // The write was conditional on this exact version, so merging locally gives what was stored
+                    result = new UpdatedDocument(current,
+                            current.withUpdates(WriteOperation.versioned(changes, current.getVersion())));
+                }
+                entityCache.invalidate(collection, documentId);
+                return result;
+            } catch (VersionConflictException e) {
+                retried.incrementAndGet();
+            }
+        }
+    }
+
+    // Optional "version" from a request body; null means the caller did not pin one
+    public static Long parseVersion(String version) {
+        if (version == null || version.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(version.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("version must be a whole number");
+        }
+    }
+
+    public long getRetried() {
+        return retried.get();
+    }
+
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    private VersionConflictException conflict(StoredDocument current) {
+        conflicts.incrementAndGet();
+        return new VersionConflictException(
+                "This record was changed by someone else (now version " + current.getVersion()
+                        + "); review it and try again", current.getData());
+    }
+}
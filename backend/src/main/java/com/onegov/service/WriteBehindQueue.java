@@ -0,0 +1,301 @@
+package com.onegov.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onegov.service.storage.WriteOperation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deferred writes for fields nobody reads back immediately (lastLogin, performance rollups).
+ * Updates to the same document are merged field by field, last write wins, and flushed
+ * in batches every writebehind.flush-interval-ms. Every enqueue is appended to a local
+ * journal first, so pending updates are replayed after a restart or crash.
+ * Never use it for data a request has to see on its next read.
+ */
+@Component
+public class WriteBehindQueue {
+
+    @Autowired
+    private BatchWriter batchWriter;
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${writebehind.journal-path:data/write-behind.journal}")
+    private String journalPath;
+
+    @Value("${writebehind.max-attempts:5}")
+    private int maxAttempts;
+
+    // collection/documentId -> merged pending fields
+    private Map<String, Pending> pending = new LinkedHashMap<>();
+    private BufferedWriter journal;
+    private final Object flushLock = new Object();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushedDocuments = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder journalErrors = new LongAdder();
+
+    public void enqueue(String collection, String documentId, Map<String, Object> fields) {
+        synchronized (this) {
+            appendToJournal(collection, documentId, fields);
+            merge(collection, documentId, fields, 0);
+        }
+        enqueued.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${writebehind.flush-interval-ms:2000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Write-behind flush failed: " + e.getMessage());
+        }
+    }
+
+    // Swaps out the pending set and its journal, writes it, then drops the old journal.
+    // Anything that fails is merged back under newer values and re-journaled.
+    public void flush() throws InterruptedException, IOException {
+        synchronized (flushLock) {
+            Map<String, Pending> batch;
+            Path flushing = flushingPath();
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                closeJournal();
+                Files.move(journalFile(), flushing, StandardCopyOption.REPLACE_EXISTING);
+                openJournal();
+            }
+
+            BatchWriter.Session session = batchWriter.openSession();
+            try {
+                for (Pending update : batch.values()) {
+                    session.add(WriteOperation.update(update.collection, update.documentId, update.fields));
+                }
+                session.close();
+            } catch (InterruptedException | RuntimeException e) {
+                batch.values().forEach(update -> requeue(update, update.attempts));
+                Files.deleteIfExists(flushing);
+                throw e;
+            }
+
+            for (Pending update : batch.values()) {
+                if (session.isFailed(update.collection, update.documentId) && !retryAlone(update)) {
+                    continue;
+                }
+                flushedDocuments.increment();
+                entityCache.invalidate(update.collection, update.documentId);
+            }
+            Files.deleteIfExists(flushing);
+        }
+    }
+
+    // A chunk fails as a whole, e.g. when one of its documents was deleted; retry its members one by one
+    private boolean retryAlone(Pending update) {
+        try {
+            firebaseService.updateDocument(update.collection, update.documentId, update.fields);
+            return true;
+        } catch (Exception e) {
+            if (update.attempts + 1 >= maxAttempts) {
+                dropped.increment();
+                System.err.println("Dropping deferred update for " + update.collection + "/" + update.documentId
+                        + " after " + maxAttempts + " attempts: " + e.getMessage());
+            } else {
+                requeue(update, update.attempts + 1);
+            }
+            return false;
+        }
+    }
+
+    // Puts an unwritten update back; fields enqueued since the flush started take precedence
+    private synchronized void requeue(Pending update, int attempts) {
+        String key = key(update.collection, update.documentId);
+        Pending newer = pending.remove(key);
+        Pending requeued = new Pending(update.collection, update.documentId, attempts);
+        requeued.fields.putAll(update.fields);
+        if (newer != null) {
+            requeued.fields.putAll(newer.fields);
+        }
+        pending.put(key, requeued);
+        appendToJournal(requeued.collection, requeued.documentId, requeued.fields);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("pendingDocuments", pending.size());
+        }
+        stats.put("enqueued", enqueued.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("flushedDocuments", flushedDocuments.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("journalErrors", journalErrors.sum());
+        stats.put("journalPath", journalFile().toAbsolutePath().toString());
+        return stats;
+    }
+
+    // Replays a journal left by a previous run (including one that died mid-flush) and compacts it
+    @PostConstruct
+    public synchronized void recover() throws IOException {
+        Path journalFile = journalFile();
+        if (journalFile.getParent() != null) {
+            Files.createDirectories(journalFile.getParent());
+        }
+        int replayed = replay(flushingPath()) + replay(journalFile);
+
+        Path compacted = Paths.get(journalPath + ".compact");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (Pending update : pending.values()) {
+                writer.write(journalLine(update.collection, update.documentId, update.fields));
+                writer.newLine();
+            }
+        }
+        Files.move(compacted, journalFile, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(flushingPath());
+        openJournal();
+
+        if (replayed > 0) {
+            System.out.println("Write-behind: replayed " + replayed + " journaled updates for "
+                    + pending.size() + " documents");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("Write-behind flush on shutdown failed, journal kept: " + e.getMessage());
+        }
+        synchronized (this) {
+            closeJournal();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int replay(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int count = 0;
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                Map<String, Object> entry = objectMapper.readValue(line, Map.class);
+                merge((String) entry.get("collection"), (String) entry.get("documentId"),
+                        (Map<String, Object>) entry.get("fields"), 0);
+                count++;
+            } catch (IOException e) {
+                // A torn last line from a crash mid-append; everything before it is intact
+                System.err.println("Write-behind: skipping unreadable journal line in " + file);
+            }
+        }
+        return count;
+    }
+
+    private Pending merge(String collection, String documentId, Map<String, Object> fields, int attempts) {
+        String key = key(collection, documentId);
+        Pending existing = pending.get(key);
+        if (existing == null) {
+            existing = new Pending(collection, documentId, attempts);
+            pending.put(key, existing);
+        } else {
+            coalesced.increment();
+            existing.attempts = Math.max(existing.attempts, attempts);
+        }
+        existing.fields.putAll(fields);
+        return existing;
+    }
+
+    private void appendToJournal(String collection, String documentId, Map<String, Object> fields) {
+        try {
+            journal.write(journalLine(collection, documentId, fields));
+            journal.newLine();
+            journal.flush();
+        } catch (IOException e) {
+            // Keep serving; the update is still applied from memory, only crash safety is lost
+            journalErrors.increment();
+            System.err.println("Write-behind journal append failed: " + e.getMessage());
+        }
+    }
+
+    private String journalLine(String collection, String documentId, Map<String, Object> fields) throws IOException {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("collection", collection);
+        entry.put("documentId", documentId);
+        entry.put("fields", fields);
+        return objectMapper.writeValueAsString(entry);
+    }
+
+    private void openJournal() throws IOException {
+        journal = Files.newBufferedWriter(journalFile(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void closeJournal() {
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } catch (IOException e) {
+            journalErrors.increment();
+        }
+    }
+
+    private Path journalFile() {
+        return Paths.get(journalPath);
+    }
+
+    private Path flushingPath() {
+        return Paths.get(journalPath + ".flushing");
+    }
+
+    private static String key(String collection, String documentId) {
+        return collection + "/" + documentId;
+    }
+
+    private static final class Pending {
+        final String collection;
+        final String documentId;
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        int attempts;
+
+        Pending(String collection, String documentId, int attempts) {
+            this.collection = collection;
+            this.documentId = documentId;
+            this.attempts = attempts;
+        }
+    }
+}
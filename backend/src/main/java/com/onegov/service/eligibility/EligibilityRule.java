@@ -0,0 +1,12 @@
+package com.onegov.service.eligibility;
+
+import com.onegov.model.CitizenProfile;
+
+// A compiled eligibilityCriteria node; trees are built once by RuleCompiler and shared across threads
+@FunctionalInterface
+public interface EligibilityRule {
+
+    EligibilityRule ALWAYS = profile -> true;
+
+    boolean test(CitizenProfile profile);
+}
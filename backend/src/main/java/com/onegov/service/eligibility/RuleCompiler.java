@@ -0,0 +1,210 @@
+package com.onegov.service.eligibility;
+
+import com.onegov.model.CitizenProfile;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Turns a Scheme's eligibilityCriteria map into an EligibilityRule tree. Entries of a map
+ * are ANDed; "anyOf"/"allOf" take a list of criteria maps and "not" takes one. Every other
+ * key names a profile field:
+ * <pre>
+ *   numeric  (age, income)           {"gt": 40}, {"min": 18, "max": 35}, {"lt": 500000}, 60
+ *   boolean  (isFarmer, hasBPLCard,   true / false (a missing flag counts as false)
+ *             isStudent, isMinority,
+ *             hasDisability)
+ *   text     (gender, category,       "Female", ["SC", "ST"], {"in": [...]}, {"notIn": [...]}
+ *             occupation, state)      compared case-insensitively
+ * </pre>
+ * A missing numeric or text value never matches. Unknown fields or operators are rejected
+ * with IllegalArgumentException, so a bad scheme fails when it is saved, not when evaluated.
+ */
+public final class RuleCompiler {
+
+    private static final Map<String, Function<CitizenProfile, Long>> NUMERIC_FIELDS = Map.of(
+            "age", profile -> profile.getAge() == null ? null : profile.getAge().longValue(),
+            "income", CitizenProfile::getIncome);
+
+    private static final Map<String, Function<CitizenProfile, Boolean>> BOOLEAN_FIELDS = Map.of(
+            "isFarmer", CitizenProfile::getIsFarmer,
+            "hasBPLCard", CitizenProfile::getHasBPLCard,
+            "isStudent", CitizenProfile::getIsStudent,
+            "isMinority", CitizenProfile::getIsMinority,
+            "hasDisability", CitizenProfile::getHasDisability);
+
+    private static final Map<String, Function<CitizenProfile, String>> TEXT_FIELDS = Map.of(
+            "gender", CitizenProfile::getGender,
+            "category", CitizenProfile::getCategory,
+            "occupation", CitizenProfile::getOccupation,
+            "state", CitizenProfile::getState);
+
+    private RuleCompiler() {
+    }
+
+    public static EligibilityRule compile(Map<String, Object> criteria) {
+        if (criteria == null || criteria.isEmpty()) {
+            return EligibilityRule.ALWAYS;
+        }
+        EligibilityRule[] parts = new EligibilityRule[criteria.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : criteria.entrySet()) {
+            parts[i++] = compileEntry(entry.getKey(), entry.getValue());
+        }
+        return and(parts);
+    }
+
+    private static EligibilityRule compileEntry(String key, Object spec) {
+        switch (key) {
+            case "allOf":
+                return and(compileList(key, spec));
+            case "anyOf":
+                return or(compileList(key, spec));
+            case "not":
+                EligibilityRule inner = compile(asMap(key, spec));
+                return profile -> !inner.test(profile);
+            default:
+                return compileField(key, spec);
+        }
+    }
+
+    private static EligibilityRule compileField(String field, Object spec) {
+        Function<CitizenProfile, Long> numeric = NUMERIC_FIELDS.get(field);
+        if (numeric != null) {
+            return numericRule(field, numeric, spec);
+        }
+        Function<CitizenProfile, Boolean> flag = BOOLEAN_FIELDS.get(field);
+        if (flag != null) {
+            if (!(spec instanceof Boolean)) {
+                throw new IllegalArgumentException(field + " expects true or false");
+            }
+            boolean expected = (Boolean) spec;
+            return profile -> Boolean.TRUE.equals(flag.apply(profile)) == expected;
+        }
+        Function<CitizenProfile, String> text = TEXT_FIELDS.get(field);
+        if (text != null) {
+            return textRule(field, text, spec);
+        }
+        throw new IllegalArgumentException("Unknown eligibility field: " + field);
+    }
+
+    private static EligibilityRule numericRule(String field, Function<CitizenProfile, Long> value, Object spec) {
+        if (spec instanceof Number) {
+            long expected = ((Number) spec).longValue();
+            return profile -> {
+                Long actual = value.apply(profile);
+                return actual != null && actual == expected;
+            };
+        }
+        // Bounds collapse to one inclusive [low, high] interval
+        long low = Long.MIN_VALUE;
+        long high = Long.MAX_VALUE;
+        for (Map.Entry<String, Object> bound : asMap(field, spec).entrySet()) {
+            if (!(bound.getValue() instanceof Number)) {
+                throw new IllegalArgumentException(field + "." + bound.getKey() + " must be a number");
+            }
+            long limit = ((Number) bound.getValue()).longValue();
+            switch (bound.getKey()) {
+                case "min": low = Math.max(low, limit); break;
+                case "gt": low = Math.max(low, limit + 1); break;
+                case "max": high = Math.min(high, limit); break;
+                case "lt": high = Math.min(high, limit - 1); break;
+                default: throw new IllegalArgumentException("Unknown range operator for " + field + ": " + bound.getKey());
+            }
+        }
+        long min = low;
+        long max = high;
+        return profile -> {
+            Long actual = value.apply(profile);
+            return actual != null && actual >= min && actual <= max;
+        };
+    }
+
+    private static EligibilityRule textRule(String field, Function<CitizenProfile, String> value, Object spec) {
+        if (spec instanceof String) {
+            String expected = (String) spec;
+            return profile -> expected.equalsIgnoreCase(value.apply(profile));
+        }
+        if (spec instanceof List) {
+            return inSet(value, toSet(field, spec), true);
+        }
+        Map<String, Object> operators = asMap(field, spec);
+        if (operators.size() == 1 && operators.containsKey("in")) {
+            return inSet(value, toSet(field, operators.get("in")), true);
+        }
+        if (operators.size() == 1 && operators.containsKey("notIn")) {
+            return inSet(value, toSet(field, operators.get("notIn")), false);
+        }
+        throw new IllegalArgumentException(field + " expects a value, a list, {\"in\": [...]} or {\"notIn\": [...]}");
+    }
+
+    private static EligibilityRule inSet(Function<CitizenProfile, String> value, Set<String> values, boolean member) {
+        return profile -> {
+            String actual = value.apply(profile);
+            return actual != null && values.contains(actual.toLowerCase(Locale.ROOT)) == member;
+        };
+    }
+
+    private static Set<String> toSet(String field, Object spec) {
+        if (!(spec instanceof List)) {
+            throw new IllegalArgumentException(field + " expects a list of values");
+        }
+        Set<String> values = new HashSet<>();
+        for (Object item : (List<?>) spec) {
+            values.add(String.valueOf(item).toLowerCase(Locale.ROOT));
+        }
+        return values;
+    }
+
+    private static EligibilityRule[] compileList(String key, Object spec) {
+        if (!(spec instanceof List) || ((List<?>) spec).isEmpty()) {
+            throw new IllegalArgumentException(key + " expects a non-empty list of criteria");
+        }
+        List<?> items = (List<?>) spec;
+        EligibilityRule[] rules = new EligibilityRule[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            rules[i] = compile(asMap(key, items.get(i)));
+        }
+        return rules;
+    }
+
+    private static EligibilityRule and(EligibilityRule[] rules) {
+        if (rules.length == 1) {
+            return rules[0];
+        }
+        return profile -> {
+            for (EligibilityRule rule : rules) {
+                if (!rule.test(profile)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static EligibilityRule or(EligibilityRule[] rules) {
+        if (rules.length == 1) {
+            return rules[0];
+        }
+        return profile -> {
+            for (EligibilityRule rule : rules) {
+                if (rule.test(profile)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(String key, Object spec) {
+        if (!(spec instanceof Map)) {
+            throw new IllegalArgumentException(key + " expects an object");
+        }
+        return (Map<String, Object>) spec;
+    }
+}
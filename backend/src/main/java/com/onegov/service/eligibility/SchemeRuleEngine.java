@@ -0,0 +1,204 @@
+package com.onegov.service.eligibility;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.onegov.model.CitizenProfile;
+import com.onegov.model.Scheme;
+import com.onegov.service.FirebaseService;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.event.SchemeCatalogueChanged;
+import com.onegov.service.storage.StoredDocument;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Evaluates citizen profiles against the scheme catalogue. Scheme definitions live in the
+ * "schemes" collection (the bundled schemes/default-schemes.json until that is seeded); their
+ * eligibilityCriteria are compiled into rule trees once per catalogue version and swapped in
+ * atomically, so evaluation never touches the store or re-reads a criteria map.
+ * The catalogue is re-read every schemes.reload-interval-ms and right after admin edits.
+ */
+@Component
+public class SchemeRuleEngine {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EventBus eventBus;
+
+    public static final String SCHEMES_COLLECTION = "schemes";
+    private static final String DEFAULT_SCHEMES = "schemes/default-schemes.json";
+
+    private volatile Catalogue catalogue = new Catalogue(List.of(), new String[0], new EligibilityRule[0], "empty");
+
+    public List<String> evaluate(CitizenProfile profile) {
+        Catalogue current = catalogue;
+        List<String> eligible = new ArrayList<>();
+        for (int i = 0; i < current.rules.length; i++) {
+            if (current.rules[i].test(profile)) {
+                eligible.add(current.schemeIds[i]);
+            }
+        }
+        return eligible;
+    }
+
+    public List<Scheme> getSchemes() {
+        return catalogue.schemes;
+    }
+
+    // Identifies the compiled catalogue; changes whenever any scheme's criteria or active flag does
+    public String getVersion() {
+        return catalogue.version;
+    }
+
+    // Throws IllegalArgumentException with the reason when the criteria would not compile
+    public void validate(Scheme scheme) {
+        RuleCompiler.compile(scheme.getEligibilityCriteria());
+    }
+
+    // Bundled definitions first, so profiles saved during startup are evaluated too
+    @PostConstruct
+    public void loadDefaults() throws IOException {
+        load(readDefaults());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${schemes.reload-interval-ms:60000}",
+            initialDelayString = "${schemes.reload-interval-ms:60000}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    // Returns true when the catalogue changed
+    public boolean reload() {
+        try {
+            List<Scheme> schemes = new ArrayList<>();
+            for (StoredDocument doc : firebaseService.getAllDocuments(SCHEMES_COLLECTION)) {
+                Scheme scheme = objectMapper.convertValue(doc.getData(), Scheme.class);
+                if (scheme.getSchemeId() == null) {
+                    scheme.setSchemeId(doc.getId());
+                }
+                schemes.add(scheme);
+            }
+            if (schemes.isEmpty()) {
+                return false; // not seeded yet; keep the bundled defaults
+            }
+            return load(schemes);
+        } catch (ExecutionException | InterruptedException | IllegalArgumentException e) {
+            System.err.println("Scheme catalogue reload failed, keeping version " + catalogue.version + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Compiles active schemes and swaps them in if anything changed; schemes that don't compile are skipped
+    public synchronized boolean load(List<Scheme> schemes) {
+        String version = fingerprint(schemes);
+        Catalogue current = catalogue;
+        if (version.equals(current.version)) {
+            // Same rules; pick up edited names and descriptions without recompiling
+            catalogue = new Catalogue(List.copyOf(schemes), current.schemeIds, current.rules, version);
+            return false;
+        }
+        List<String> ids = new ArrayList<>();
+        List<EligibilityRule> rules = new ArrayList<>();
+        for (Scheme scheme : schemes) {
+            if (Boolean.FALSE.equals(scheme.getIsActive())) {
+                continue;
+            }
+            try {
+                rules.add(RuleCompiler.compile(scheme.getEligibilityCriteria()));
+                ids.add(scheme.getSchemeId());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Skipping scheme " + scheme.getSchemeId() + ": " + e.getMessage());
+            }
+        }
+        catalogue = new Catalogue(List.copyOf(schemes), ids.toArray(new String[0]),
+                rules.toArray(new EligibilityRule[0]), version);
+        System.out.println("Scheme catalogue " + version + ": " + ids.size() + " active schemes compiled");
+        eventBus.publish(new SchemeCatalogueChanged(current.version, version));
+        return true;
+    }
+
+    public List<Scheme> readDefaults() throws IOException {
+        try (InputStream in = new ClassPathResource(DEFAULT_SCHEMES).getInputStream()) {
+            return objectMapper.readValue(in, new TypeReference<List<Scheme>>() {});
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Catalogue current = catalogue;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("version", current.version);
+        stats.put("schemes", current.schemes.size());
+        stats.put("activeCompiled", current.rules.length);
+        return stats;
+    }
+
+    // Only fields that affect evaluation; renaming or re-describing a scheme is not a rule change.
+    // Entries are sorted by schemeId so the store's iteration order never changes the version, and the
+    // canonical JSON is hashed with SHA-256: the version keys recompute checkpoints across instances,
+    // so two different catalogues must not share one
+    private String fingerprint(List<Scheme> schemes) {
+        List<Map<String, Object>> relevant = new ArrayList<>();
+        for (Scheme scheme : schemes) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("schemeId", scheme.getSchemeId());
+            entry.put("active", !Boolean.FALSE.equals(scheme.getIsActive()));
+            entry.put("criteria", scheme.getEligibilityCriteria());
+            relevant.add(entry);
+        }
+        relevant.sort(Comparator.comparing(entry -> (String) entry.get("schemeId"),
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+        try {
+            byte[] canonical = objectMapper.writer()
+                    .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsBytes(relevant);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Scheme catalogue is not serializable: " + e.getMessage());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class Catalogue {
+        final List<Scheme> schemes;
+        final String[] schemeIds;
+        final EligibilityRule[] rules;
+        final String version;
+
+        Catalogue(List<Scheme> schemes, String[] schemeIds, EligibilityRule[] rules, String version) {
+            this.schemes = schemes;
+            this.schemeIds = schemeIds;
+            this.rules = rules;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.onegov.service.event;
+
+// An application's status changed (officer review or the applications API)
+public class ApplicationStatusChanged extends StatusChangedEvent {
+
+    public static final String COLLECTION = "applications";
+
+    public ApplicationStatusChanged(String documentId, String userId, String trackingId, String previousStatus,
+                                    String newStatus, String actorId, String submittedAt) {
+        super(COLLECTION, documentId, userId, trackingId, previousStatus, newStatus, actorId, submittedAt);
+    }
+}
@@ -0,0 +1,13 @@
+package com.onegov.service.event;
+
+// What publish does when a subscriber's queue is full
+public enum Backpressure {
+    // Wait up to events.block-timeout-ms for room, then drop the event for this subscriber
+    BLOCK,
+    // Discard the event being published
+    DROP_NEWEST,
+    // Discard the oldest queued event to make room
+    DROP_OLDEST,
+    // Run the handler on the publishing thread; nothing is lost, the publisher slows down
+    CALLER_RUNS
+}
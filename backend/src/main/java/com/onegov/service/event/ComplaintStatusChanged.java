@@ -0,0 +1,12 @@
+package com.onegov.service.event;
+
+// A complaint's status changed, including assignment
+public class ComplaintStatusChanged extends StatusChangedEvent {
+
+    public static final String COLLECTION = "complaints";
+
+    public ComplaintStatusChanged(String documentId, String userId, String trackingId, String previousStatus,
+                                  String newStatus, String actorId, String submittedAt) {
+        super(COLLECTION, documentId, userId, trackingId, previousStatus, newStatus, actorId, submittedAt);
+    }
+}
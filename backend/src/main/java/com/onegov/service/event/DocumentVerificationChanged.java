@@ -0,0 +1,12 @@
+package com.onegov.service.event;
+
+// A document's verification status changed; documents have no tracking id, submittedAt is uploadedAt
+public class DocumentVerificationChanged extends StatusChangedEvent {
+
+    public static final String COLLECTION = "documents";
+
+    public DocumentVerificationChanged(String documentId, String userId, String previousStatus, String newStatus,
+                                       String actorId, String uploadedAt) {
+        super(COLLECTION, documentId, userId, null, previousStatus, newStatus, actorId, uploadedAt);
+    }
+}
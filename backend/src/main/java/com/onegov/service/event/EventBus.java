@@ -0,0 +1,197 @@
+package com.onegov.service.event;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe for domain events. Every subscriber owns a bounded queue
+ * drained by its own thread, so a slow subscriber delays only itself and publishing costs
+ * the publisher one queue offer per interested subscriber. When a queue is full the
+ * subscriber's Backpressure policy decides. Delivery is in publish order per subscriber
+ * (CALLER_RUNS overflow excepted, so handlers must be thread-safe), at most once, and queued
+ * events are lost if the process dies; subscribers that must be exact need their own
+ * reconciliation, as the stats counters have.
+ */
+@Component
+public class EventBus {
+
+    private final int defaultCapacity;
+    private final long blockTimeoutMs;
+    private final long shutdownTimeoutMs;
+
+    private final List<Subscriber<?>> subscribers = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder publishNanos = new LongAdder();
+    private final AtomicLong maxPublishNanos = new AtomicLong();
+
+    public EventBus(@Value("${events.default-capacity:1024}") int defaultCapacity,
+                    @Value("${events.block-timeout-ms:50}") long blockTimeoutMs,
+                    @Value("${events.shutdown-timeout-ms:5000}") long shutdownTimeoutMs) {
+        this.defaultCapacity = defaultCapacity;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    public <T> void subscribe(String name, Class<T> eventType, Consumer<? super T> handler, Backpressure policy) {
+        subscribe(name, eventType, handler, policy, defaultCapacity);
+    }
+
+    public <T> void subscribe(String name, Class<T> eventType, Consumer<? super T> handler, Backpressure policy,
+                              int capacity) {
+        Subscriber<T> subscriber = new Subscriber<>(name, eventType, handler, policy, capacity);
+        subscribers.add(subscriber);
+        subscriber.worker.start();
+    }
+
+    // Hands the event to every subscriber of its type; only CALLER_RUNS and BLOCK can make this wait
+    public void publish(Object event) {
+        if (closed) {
+            return;
+        }
+        long start = System.nanoTime();
+        for (Subscriber<?> subscriber : subscribers) {
+            if (subscriber.eventType.isInstance(event)) {
+                subscriber.offer(event);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        published.increment();
+        publishNanos.add(elapsed);
+        maxPublishNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    public Map<String, Object> getStats() {
+        long count = published.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("published", count);
+        stats.put("avgPublishMicros", count == 0 ? 0.0 : publishNanos.sum() / 1000.0 / count);
+        stats.put("maxPublishMicros", maxPublishNanos.get() / 1000.0);
+        Map<String, Object> perSubscriber = new LinkedHashMap<>();
+        for (Subscriber<?> subscriber : subscribers) {
+            perSubscriber.put(subscriber.name, subscriber.stats());
+        }
+        stats.put("subscribers", perSubscriber);
+        return stats;
+    }
+
+    // Stops accepting events and lets each subscriber drain what it already has
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        closed = true;
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        for (Subscriber<?> subscriber : subscribers) {
+            while (!subscriber.queue.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            subscriber.worker.interrupt();
+            if (!subscriber.queue.isEmpty()) {
+                System.err.println("Event subscriber " + subscriber.name + " lost "
+                        + subscriber.queue.size() + " queued events on shutdown");
+            }
+        }
+    }
+
+    private final class Subscriber<T> {
+        private final String name;
+        private final Class<T> eventType;
+        private final Consumer<? super T> handler;
+        private final Backpressure policy;
+        private final BlockingQueue<Object> queue;
+        private final Thread worker;
+
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder ranOnCaller = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        Subscriber(String name, Class<T> eventType, Consumer<? super T> handler, Backpressure policy, int capacity) {
+            this.name = name;
+            this.eventType = eventType;
+            this.handler = handler;
+            this.policy = policy;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.worker = new Thread(this::drain, "events-" + name);
+            this.worker.setDaemon(true);
+        }
+
+        void offer(Object event) {
+            if (queue.offer(event)) {
+                return;
+            }
+            switch (policy) {
+                case BLOCK:
+                    try {
+                        if (!queue.offer(event, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                            dropped.increment();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped.increment();
+                    }
+                    break;
+                case DROP_NEWEST:
+                    dropped.increment();
+                    break;
+                case DROP_OLDEST:
+                    while (!queue.offer(event)) {
+                        if (queue.poll() != null) {
+                            dropped.increment();
+                        }
+                    }
+                    break;
+                case CALLER_RUNS:
+                    ranOnCaller.increment();
+                    handle(event);
+                    break;
+            }
+        }
+
+        private void drain() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    handle(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private void handle(Object event) {
+            try {
+                handler.accept(eventType.cast(event));
+                delivered.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+                System.err.println("Event subscriber " + name + " failed on " + event + ": " + e.getMessage());
+            }
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("eventType", eventType.getSimpleName());
+            stats.put("policy", policy.name());
+            stats.put("queued", queue.size());
+            stats.put("capacity", queue.size() + queue.remainingCapacity());
+            stats.put("delivered", delivered.sum());
+            stats.put("dropped", dropped.sum());
+            stats.put("ranOnCaller", ranOnCaller.sum());
+            stats.put("failed", failed.sum());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.onegov.service.event;
+
+// A health service request's status changed
+public class HealthServiceStatusChanged extends StatusChangedEvent {
+
+    public static final String COLLECTION = "healthServices";
+
+    public HealthServiceStatusChanged(String documentId, String userId, String trackingId, String previousStatus,
+                                      String newStatus, String actorId, String submittedAt) {
+        super(COLLECTION, documentId, userId, trackingId, previousStatus, newStatus, actorId, submittedAt);
+    }
+}
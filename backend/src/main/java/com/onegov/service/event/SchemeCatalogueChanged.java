@@ -0,0 +1,10 @@
+package com.onegov.service.event;
+
+import lombok.Value;
+
+// The compiled scheme catalogue was replaced with one whose rules differ
+@Value
+public class SchemeCatalogueChanged {
+    String previousVersion;
+    String version;
+}
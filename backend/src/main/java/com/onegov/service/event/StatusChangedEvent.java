@@ -0,0 +1,42 @@
+package com.onegov.service.event;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A record moved from one status to another. Published after the write is stored and
+ * the read cache invalidated, so subscribers see the new state when they read it back.
+ * actorId is the authenticated officer, or null when the change did not come from one.
+ */
+@Getter
+public abstract class StatusChangedEvent {
+
+    private final String collection;
+    private final String documentId;
+    private final String userId;
+    private final String trackingId;
+    private final String previousStatus;
+    private final String newStatus;
+    private final String actorId;
+    private final String submittedAt;
+    private final LocalDateTime occurredAt = LocalDateTime.now();
+
+    protected StatusChangedEvent(String collection, String documentId, String userId, String trackingId,
+                                 String previousStatus, String newStatus, String actorId, String submittedAt) {
+        this.collection = collection;
+        this.documentId = documentId;
+        this.userId = userId;
+        this.trackingId = trackingId;
+        this.previousStatus = previousStatus;
+        this.newStatus = newStatus;
+        this.actorId = actorId;
+        this.submittedAt = submittedAt;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + collection + "/" + documentId + " "
+                + previousStatus + " -> " + newStatus + "]";
+    }
+}
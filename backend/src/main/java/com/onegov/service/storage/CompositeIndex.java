@@ -0,0 +1,51 @@
+package com.onegov.service.storage;
+
+import java.util.List;
+
+/**
+ * One composite index: documents with the same values for the equality
+ * fields, kept in orderField order (ties by document id). Serves queries that
+ * filter on at least those fields and order (or range) on orderField.
+ */
+public final class CompositeIndex {
+
+    private final String collection;
+    private final List<String> equalityFields;
+    private final String orderField;
+    private final boolean descending;
+
+    private CompositeIndex(String collection, List<String> equalityFields, String orderField, boolean descending) {
+        this.collection = collection;
+        this.equalityFields = List.copyOf(equalityFields);
+        this.orderField = orderField;
+        this.descending = descending;
+    }
+
+    // descending is the direction the list endpoints ask for; the in-process engine scans either way
+    public static CompositeIndex of(String collection, List<String> equalityFields, String orderField,
+                                    boolean descending) {
+        return new CompositeIndex(collection, equalityFields, orderField, descending);
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public List<String> getEqualityFields() {
+        return equalityFields;
+    }
+
+    public String getOrderField() {
+        return orderField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    @Override
+    public String toString() {
+        return collection + "(" + String.join(",", equalityFields) + " | " + orderField
+                + (descending ? " desc" : " asc") + ")";
+    }
+}
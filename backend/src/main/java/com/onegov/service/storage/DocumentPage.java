@@ -0,0 +1,35 @@
+package com.onegov.service.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One page of query results; nextCursor is null on the last page
+public class DocumentPage {
+
+    private final List<StoredDocument> documents;
+    private final String nextCursor;
+
+    public DocumentPage(List<StoredDocument> documents, String nextCursor) {
+        this.documents = documents;
+        this.nextCursor = nextCursor;
+    }
+
+    // Builds a page from up to limit + 1 fetched rows; the extra row only signals that more exist
+    static DocumentPage fromFetched(List<StoredDocument> fetched, DocumentQuery query) {
+        if (fetched.size() <= query.getLimit()) {
+            return new DocumentPage(fetched, null);
+        }
+        List<StoredDocument> documents = new ArrayList<>(fetched.subList(0, query.getLimit()));
+        StoredDocument last = documents.get(documents.size() - 1);
+        Object orderValue = query.getOrderBy() != null ? last.get(query.getOrderBy()) : null;
+        return new DocumentPage(documents, new PageCursor(orderValue, last.getId()).encode());
+    }
+
+    public List<StoredDocument> getDocuments() {
+        return documents;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,136 @@
+package com.onegov.service.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Query pushed down to the storage adapter: equality filters, a range on
+ * one field, one orderBy field (ties broken by document id), a page size,
+ * a startAfter cursor and an optional field projection. As in Firestore the
+ * range must be on the orderBy field; without an orderBy it orders
+ * ascending by the range field. Which index serves it is up to the adapter,
+ * see IndexCatalog.
+ */
+public class DocumentQuery {
+
+    private final String collection;
+    private final Map<String, Object> equalities = new LinkedHashMap<>();
+    private String orderBy;
+    private boolean descending;
+    private String rangeField;
+    private Object rangeFrom;
+    private Object rangeTo;
+    private int limit = Integer.MAX_VALUE;
+    private PageCursor startAfter;
+    private List<String> fields = Collections.emptyList();
+
+    private DocumentQuery(String collection) {
+        this.collection = collection;
+    }
+
+    public static DocumentQuery of(String collection) {
+        return new DocumentQuery(collection);
+    }
+
+    // Null values are ignored so optional request filters can be passed straight through
+    public DocumentQuery whereEqualTo(String field, Object value) {
+        if (value != null) {
+            equalities.put(field, value);
+        }
+        return this;
+    }
+
+    // from is inclusive, to exclusive; a null bound is open, so optional request bounds pass straight through
+    public DocumentQuery whereBetween(String field, Object from, Object to) {
+        if (from == null && to == null) {
+            return this;
+        }
+        if (orderBy != null && !orderBy.equals(field)) {
+            throw new IllegalArgumentException("A range on " + field + " cannot be ordered by " + orderBy);
+        }
+        this.rangeField = field;
+        this.rangeFrom = from;
+        this.rangeTo = to;
+        return this;
+    }
+
+    public DocumentQuery orderBy(String field, boolean descending) {
+        if (rangeField != null && !rangeField.equals(field)) {
+            throw new IllegalArgumentException("A range on " + rangeField + " cannot be ordered by " + field);
+        }
+        this.orderBy = field;
+        this.descending = descending;
+        return this;
+    }
+
+    public DocumentQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public DocumentQuery startAfter(String cursorToken) {
+        this.startAfter = cursorToken != null && !cursorToken.isEmpty() ? PageCursor.decode(cursorToken) : null;
+        return this;
+    }
+
+    // The orderBy field is always fetched as well, the next cursor is built from it
+    public DocumentQuery select(List<String> fields) {
+        this.fields = fields != null ? new ArrayList<>(fields) : Collections.emptyList();
+        return this;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public Map<String, Object> getEqualities() {
+        return equalities;
+    }
+
+    public String getOrderBy() {
+        return orderBy != null ? orderBy : rangeField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public boolean hasRange() {
+        return rangeField != null;
+    }
+
+    public Object getRangeFrom() {
+        return rangeFrom;
+    }
+
+    public Object getRangeTo() {
+        return rangeTo;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public PageCursor getStartAfter() {
+        return startAfter;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public List<String> getProjection() {
+        if (fields.isEmpty()) {
+            return fields;
+        }
+        List<String> projection = new ArrayList<>(fields);
+        String order = getOrderBy();
+        if (order != null && !projection.contains(order)) {
+            projection.add(order);
+        }
+        return projection;
+    }
+}
@@ -0,0 +1,361 @@
+package com.onegov.service.storage;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.onegov.exception.VersionConflictException;
+import com.onegov.service.AsyncFirebaseService;
+import com.onegov.service.FirebaseService;
+import io.grpc.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Remote adapter: every call is a blocking Firestore round-trip
+@Service
+@Profile("!memory")
+public class FirestoreStorageAdapter implements FirebaseService, AsyncFirebaseService {
+
+    @Autowired
+    private Firestore firestore;
+
+    // Firestore rejects commits with more than 500 writes
+    private static final int MAX_BATCH_SIZE = 500;
+
+    @Override
+    public String createDocument(String collection, String documentId, Map<String, Object> data)
+            throws ExecutionException, InterruptedException {
+        firestore.collection(collection).document(documentId).set(data).get();
+        return documentId;
+    }
+
+    @Override
+    public StoredDocument getDocument(String collection, String documentId)
+            throws ExecutionException, InterruptedException {
+        return toStored(firestore.collection(collection).document(documentId).get().get());
+    }
+
+    @Override
+    public List<StoredDocument> getDocuments(String collection, List<String> documentIds)
+            throws ExecutionException, InterruptedException {
+        if (documentIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        CollectionReference ref = firestore.collection(collection);
+        DocumentReference[] refs = new DocumentReference[documentIds.size()];
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = ref.document(documentIds.get(i));
+        }
+        // getAll answers in the order asked for
+        return firestore.getAll(refs).get().stream()
+                .map(this::toStored)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<StoredDocument> getAllDocuments(String collection)
+            throws ExecutionException, InterruptedException {
+        QuerySnapshot querySnapshot = firestore.collection(collection).get().get();
+        return querySnapshot.getDocuments().stream()
+                .map(this::toStored)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<StoredDocument> queryDocuments(String collection, String field, Object value)
+            throws ExecutionException, InterruptedException {
+        QuerySnapshot querySnapshot = firestore.collection(collection)
+                .whereEqualTo(field, value)
+                .get()
+                .get();
+        return querySnapshot.getDocuments().stream()
+                .map(this::toStored)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public DocumentPage queryPage(DocumentQuery query) throws ExecutionException, InterruptedException {
+        Query firestoreQuery = firestore.collection(query.getCollection());
+        for (Map.Entry<String, Object> filter : query.getEqualities().entrySet()) {
+            firestoreQuery = firestoreQuery.whereEqualTo(filter.getKey(), filter.getValue());
+        }
+
+        if (query.hasRange()) {
+            if (query.getRangeFrom() != null) {
+                firestoreQuery = firestoreQuery.whereGreaterThanOrEqualTo(query.getOrderBy(), query.getRangeFrom());
+            }
+            if (query.getRangeTo() != null) {
+                firestoreQuery = firestoreQuery.whereLessThan(query.getOrderBy(), query.getRangeTo());
+            }
+        }
+
+        // Equality filters combined with orderBy need a composite index in Firestore (IndexCatalog lists them)
+        Query.Direction direction = query.isDescending() ? Query.Direction.DESCENDING : Query.Direction.ASCENDING;
+        if (query.getOrderBy() != null) {
+            firestoreQuery = firestoreQuery.orderBy(query.getOrderBy(), direction);
+        }
+        firestoreQuery = firestoreQuery.orderBy(FieldPath.documentId(), direction);
+
+        PageCursor cursor = query.getStartAfter();
+        if (cursor != null) {
+            firestoreQuery = query.getOrderBy() != null
+                    ? firestoreQuery.startAfter(cursor.getOrderValue(), cursor.getDocumentId())
+                    : firestoreQuery.startAfter(cursor.getDocumentId());
+        }
+        if (!query.getProjection().isEmpty()) {
+            firestoreQuery = firestoreQuery.select(query.getProjection().toArray(new String[0]));
+        }
+        if (query.getLimit() < Integer.MAX_VALUE) {
+            firestoreQuery = firestoreQuery.limit(query.getLimit() + 1);
+        }
+
+        List<StoredDocument> fetched = firestoreQuery.get().get().getDocuments().stream()
+                .map(this::toStored)
+                .collect(Collectors.toList());
+        return DocumentPage.fromFetched(fetched, query);
+    }
+
+    @Override
+    public void updateDocument(String collection, String documentId, Map<String, Object> updates)
+            throws ExecutionException, InterruptedException {
+        firestore.collection(collection).document(documentId).update(updates).get();
+    }
+
+    // A get and a plain update (two calls); the after view is the snapshot merged with the updates
+    // locally rather than read back. A transaction would cost begin, get and commit
+    @Override
+    public UpdatedDocument updateAndGet(String collection, String documentId, Map<String, Object> updates)
+            throws ExecutionException, InterruptedException {
+        DocumentReference ref = firestore.collection(collection).document(documentId);
+        DocumentSnapshot snapshot = ref.get().get();
+        if (!snapshot.exists()) {
+            return UpdatedDocument.missing(documentId);
+        }
+        ref.update(updates).get();
+        StoredDocument before = toStored(snapshot);
+        return new UpdatedDocument(before, before.withUpdates(updates));
+    }
+
+    // Read, compare and write in one transaction; Firestore reruns it if the document changes underneath.
+    // Only for callers that hold a version but no read, see updateDocumentIfUnchanged
+    @Override
+    public UpdatedDocument updateDocumentIfVersion(String collection, String documentId, long expectedVersion,
+                                                   Map<String, Object> updates)
+            throws ExecutionException, InterruptedException {
+        WriteOperation operation = WriteOperation.updateIfVersion(collection, documentId, expectedVersion, updates);
+        StoredDocument before = writeConditionally(List.of(operation)).get(0);
+        return new UpdatedDocument(before, before.withUpdates(WriteOperation.versioned(updates, expectedVersion)));
+    }
+
+    // One call: the update carries the read's update time as a precondition, so Firestore itself refuses
+    // it if anything wrote the document since. The result is merged locally, as the write stored it
+    @Override
+    public UpdatedDocument updateDocumentIfUnchanged(String collection, StoredDocument read,
+                                                     Map<String, Object> updates)
+            throws ExecutionException, InterruptedException {
+        if (read.getUpdateTime() == null) {
+            return updateDocumentIfVersion(collection, read.getId(), read.getVersion(), updates);
+        }
+        Map<String, Object> versioned = WriteOperation.versioned(updates, read.getVersion());
+        try {
+            firestore.collection(collection).document(read.getId())
+                    .update(versioned, Precondition.updatedAt(read.getUpdateTime())).get();
+        } catch (ExecutionException e) {
+            throw conflictOr(e, collection + "/" + read.getId());
+        }
+        return new UpdatedDocument(read, read.withUpdates(versioned));
+    }
+
+    @Override
+    public void deleteDocument(String collection, String documentId)
+            throws ExecutionException, InterruptedException {
+        firestore.collection(collection).document(documentId).delete().get();
+    }
+
+    @Override
+    public void writeBatch(List<WriteOperation> operations) throws ExecutionException, InterruptedException {
+        if (operations.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Firestore batches are limited to " + MAX_BATCH_SIZE + " writes");
+        }
+        // Conditions that carry the read's update time go into the commit as preconditions; only a bare
+        // version needs the transaction that reads the documents again
+        if (operations.stream().anyMatch(op -> op.getExpectedVersion() != null && op.getExpectedUpdateTime() == null)) {
+            writeConditionally(operations);
+            return;
+        }
+        WriteBatch batch = firestore.batch();
+        for (WriteOperation operation : operations) {
+            DocumentReference ref = reference(operation);
+            switch (operation.getType()) {
+                case SET:
+                    batch.set(ref, operation.getData());
+                    break;
+                case UPDATE:
+                    if (operation.getExpectedUpdateTime() != null) {
+                        batch.update(ref, WriteOperation.versioned(operation.getData(), operation.getExpectedVersion()),
+                                Precondition.updatedAt(operation.getExpectedUpdateTime()));
+                    } else {
+                        batch.update(ref, operation.getData());
+                    }
+                    break;
+                case DELETE:
+                    batch.delete(ref);
+                    break;
+            }
+        }
+        try {
+            batch.commit().get();
+        } catch (ExecutionException e) {
+            throw conflictOr(e, "batch of " + operations.size());
+        }
+    }
+
+    // A failed update-time precondition means someone wrote the document since it was read. The current
+    // state is not known without another read, so the conflict carries none
+    private ExecutionException conflictOr(ExecutionException e, String target) {
+        Throwable cause = e.getCause();
+        boolean failedPrecondition = cause instanceof ApiException
+                ? ((ApiException) cause).getStatusCode().getCode() == StatusCode.Code.FAILED_PRECONDITION
+                : cause instanceof FirestoreException
+                        && ((FirestoreException) cause).getStatus().getCode() == Status.Code.FAILED_PRECONDITION;
+        if (failedPrecondition) {
+            throw new VersionConflictException(target + " was changed by someone else", null);
+        }
+        return e;
+    }
+
+    // Conditional writes need their documents read inside the transaction, and all reads come before writes.
+    // Returns the checked documents as read, in operation order
+    private List<StoredDocument> writeConditionally(List<WriteOperation> operations)
+            throws ExecutionException, InterruptedException {
+        try {
+            return firestore.runTransaction(transaction -> {
+                List<DocumentSnapshot> checked = new ArrayList<>();
+                for (WriteOperation operation : operations) {
+                    if (operation.getExpectedVersion() != null) {
+                        checked.add(transaction.get(reference(operation)).get());
+                    }
+                }
+                int next = 0;
+                for (WriteOperation operation : operations) {
+                    if (operation.getExpectedVersion() != null) {
+                        checkVersion(operation, checked.get(next++));
+                    }
+                }
+                for (WriteOperation operation : operations) {
+                    apply(transaction, operation);
+                }
+                return checked.stream().map(this::toStored).collect(Collectors.toList());
+            }).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof VersionConflictException) {
+                throw (VersionConflictException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void checkVersion(WriteOperation operation, DocumentSnapshot snapshot) {
+        String key = operation.getCollection() + "/" + operation.getDocumentId();
+        if (!snapshot.exists()) {
+            throw new IllegalStateException("NOT_FOUND: No document to update: " + key);
+        }
+        StoredDocument current = toStored(snapshot);
+        if (current.getVersion() != operation.getExpectedVersion()) {
+            throw new VersionConflictException(key + " was changed by someone else", current.getData());
+        }
+    }
+
+    private void apply(Transaction transaction, WriteOperation operation) {
+        DocumentReference ref = reference(operation);
+        switch (operation.getType()) {
+            case SET:
+                transaction.set(ref, operation.getData());
+                break;
+            case UPDATE:
+                transaction.update(ref, operation.getExpectedVersion() != null
+                        ? WriteOperation.versioned(operation.getData(), operation.getExpectedVersion())
+                        : operation.getData());
+                break;
+            case DELETE:
+                transaction.delete(ref);
+                break;
+        }
+    }
+
+    private DocumentReference reference(WriteOperation operation) {
+        return firestore.collection(operation.getCollection()).document(operation.getDocumentId());
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return MAX_BATCH_SIZE;
+    }
+
+    @Override
+    public String generateId(String collection) {
+        return firestore.collection(collection).document().getId();
+    }
+
+    @Override
+    public CompletableFuture<StoredDocument> getDocumentAsync(String collection, String documentId) {
+        return toCompletable(firestore.collection(collection).document(documentId).get(), this::toStored);
+    }
+
+    @Override
+    public CompletableFuture<List<StoredDocument>> queryDocumentsAsync(String collection, String field, Object value) {
+        return toCompletable(firestore.collection(collection).whereEqualTo(field, value).get(),
+                querySnapshot -> querySnapshot.getDocuments().stream()
+                        .map(this::toStored)
+                        .collect(Collectors.toList()));
+    }
+
+    // Bridges ApiFuture to CompletableFuture without parking a thread on get()
+    private <T, R> CompletableFuture<R> toCompletable(ApiFuture<T> future, Function<T, R> mapper) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        ApiFutures.addCallback(future, new ApiFutureCallback<T>() {
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(new ExecutionException(t));
+            }
+
+            @Override
+            public void onSuccess(T value) {
+                try {
+                    result.complete(mapper.apply(value));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    private StoredDocument toStored(DocumentSnapshot snapshot) {
+        return snapshot.exists()
+                ? new StoredDocument(snapshot.getId(), snapshot.getData(), snapshot.getUpdateTime())
+                : StoredDocument.missing(snapshot.getId());
+    }
+}
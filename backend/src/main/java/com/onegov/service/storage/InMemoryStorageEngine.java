@@ -0,0 +1,298 @@
+package com.onegov.service.storage;
+
+import com.onegov.exception.VersionConflictException;
+import com.onegov.service.AsyncFirebaseService;
+import com.onegov.service.FirebaseService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * In-process storage engine for load tests, edge deployments and local runs
+ * without Firestore credentials. Activate with the "memory" Spring profile.
+ * Data lives only as long as the JVM. storage.memory.simulated-latency-micros adds a delay to
+ * every call (each one a round-trip to Firestore) to see how request paths behave with a
+ * remote store without one.
+ */
+@Service
+@Profile("memory")
+public class InMemoryStorageEngine implements FirebaseService, AsyncFirebaseService {
+
+    private static final String ID_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int ID_LENGTH = 20;
+
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, MemoryCollection> collections = new ConcurrentHashMap<>();
+    private final Set<String> indexedFields;
+    private final long simulatedLatencyNanos;
+
+    public InMemoryStorageEngine(
+            @Value("${storage.memory.indexed-fields:userId,trackingId,email,status}") String indexedFields,
+            @Value("${storage.memory.simulated-latency-micros:0}") long simulatedLatencyMicros) {
+        this.indexedFields = Arrays.stream(indexedFields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        this.simulatedLatencyNanos = TimeUnit.MICROSECONDS.toNanos(simulatedLatencyMicros);
+    }
+
+    @Override
+    public String createDocument(String collection, String documentId, Map<String, Object> data) {
+        roundTrip();
+        return store(collection, documentId, data);
+    }
+
+    @Override
+    public StoredDocument getDocument(String collection, String documentId) {
+        roundTrip();
+        return new StoredDocument(documentId, collection(collection).get(documentId));
+    }
+
+    @Override
+    public List<StoredDocument> getDocuments(String collection, List<String> documentIds) {
+        roundTrip();
+        MemoryCollection stored = collection(collection);
+        List<StoredDocument> documents = new ArrayList<>(documentIds.size());
+        for (String documentId : documentIds) {
+            documents.add(new StoredDocument(documentId, stored.get(documentId)));
+        }
+        return documents;
+    }
+
+    @Override
+    public List<StoredDocument> getAllDocuments(String collection) {
+        roundTrip();
+        return collection(collection).all();
+    }
+
+    @Override
+    public List<StoredDocument> queryDocuments(String collection, String field, Object value) {
+        roundTrip();
+        return collection(collection).find(field, MemoryCollection.normalize(value));
+    }
+
+    @Override
+    public DocumentPage queryPage(DocumentQuery query) {
+        roundTrip();
+        return collection(query.getCollection()).page(query);
+    }
+
+    @Override
+    public void updateDocument(String collection, String documentId, Map<String, Object> updates)
+            throws ExecutionException {
+        roundTrip();
+        update(collection, documentId, updates);
+    }
+
+    @Override
+    public UpdatedDocument updateAndGet(String collection, String documentId, Map<String, Object> updates) {
+        roundTrip();
+        MemoryCollection target = collection(collection);
+        synchronized (target) {
+            Map<String, Object> current = target.get(documentId);
+            if (current == null) {
+                return UpdatedDocument.missing(documentId);
+            }
+            Map<String, Object> updated = applyUpdates(current, updates);
+            target.put(documentId, updated);
+            return new UpdatedDocument(new StoredDocument(documentId, current), new StoredDocument(documentId, updated));
+        }
+    }
+
+    private String store(String collection, String documentId, Map<String, Object> data) {
+        // Same semantics as Firestore set(): replaces any existing document
+        collection(collection).put(documentId, copyMap(data));
+        return documentId;
+    }
+
+    private void update(String collection, String documentId, Map<String, Object> updates)
+            throws ExecutionException {
+        MemoryCollection target = collection(collection);
+        synchronized (target) {
+            Map<String, Object> current = target.get(documentId);
+            if (current == null) {
+                // Firestore update() fails the same way for a missing document
+                throw new ExecutionException(new IllegalStateException(
+                        "NOT_FOUND: No document to update: " + collection + "/" + documentId));
+            }
+            target.put(documentId, applyUpdates(current, updates));
+        }
+    }
+
+    @Override
+    public UpdatedDocument updateDocumentIfVersion(String collection, String documentId, long expectedVersion,
+                                                   Map<String, Object> updates) throws ExecutionException {
+        roundTrip();
+        MemoryCollection target = collection(collection);
+        synchronized (target) {
+            Map<String, Object> current = target.get(documentId);
+            if (current == null) {
+                throw new ExecutionException(new IllegalStateException(
+                        "NOT_FOUND: No document to update: " + collection + "/" + documentId));
+            }
+            checkVersion(collection, documentId, current, expectedVersion);
+            Map<String, Object> updated = applyUpdates(current, WriteOperation.versioned(updates, expectedVersion));
+            target.put(documentId, updated);
+            return new UpdatedDocument(new StoredDocument(documentId, current), new StoredDocument(documentId, updated));
+        }
+    }
+
+    @Override
+    public void deleteDocument(String collection, String documentId) {
+        roundTrip();
+        collection(collection).remove(documentId);
+    }
+
+    // All-or-nothing like a Firestore batch: missing update targets and stale versions are rejected before
+    // anything is applied. Batches with conditional updates hold every collection they touch (in name order,
+    // so two batches cannot deadlock) for the check and the writes; other batches are not isolated from
+    // concurrent single writes, which is fine for seeding and imports.
+    @Override
+    public void writeBatch(List<WriteOperation> operations) throws ExecutionException {
+        roundTrip();
+        List<MemoryCollection> locks = operations.stream().anyMatch(op -> op.getExpectedVersion() != null)
+                ? operations.stream().map(WriteOperation::getCollection).distinct().sorted()
+                        .map(this::collection).collect(Collectors.toList())
+                : List.of();
+        applyBatch(operations, locks, 0);
+    }
+
+    private void applyBatch(List<WriteOperation> operations, List<MemoryCollection> locks, int held)
+            throws ExecutionException {
+        if (held < locks.size()) {
+            synchronized (locks.get(held)) {
+                applyBatch(operations, locks, held + 1);
+            }
+            return;
+        }
+        Set<String> created = new HashSet<>();
+        for (WriteOperation operation : operations) {
+            String key = operation.getCollection() + "/" + operation.getDocumentId();
+            if (operation.getType() == WriteOperation.Type.SET) {
+                created.add(key);
+            } else if (operation.getType() == WriteOperation.Type.UPDATE && !created.contains(key)) {
+                Map<String, Object> current = collection(operation.getCollection()).get(operation.getDocumentId());
+                if (current == null) {
+                    throw new ExecutionException(new IllegalStateException("NOT_FOUND: No document to update: " + key));
+                }
+                if (operation.getExpectedVersion() != null) {
+                    checkVersion(operation.getCollection(), operation.getDocumentId(), current,
+                            operation.getExpectedVersion());
+                }
+            }
+        }
+        for (WriteOperation operation : operations) {
+            switch (operation.getType()) {
+                case SET:
+                    store(operation.getCollection(), operation.getDocumentId(), operation.getData());
+                    break;
+                case UPDATE:
+                    update(operation.getCollection(), operation.getDocumentId(),
+                            operation.getExpectedVersion() != null
+                                    ? WriteOperation.versioned(operation.getData(), operation.getExpectedVersion())
+                                    : operation.getData());
+                    break;
+                case DELETE:
+                    collection(operation.getCollection()).remove(operation.getDocumentId());
+                    break;
+            }
+        }
+    }
+
+    private void checkVersion(String collection, String documentId, Map<String, Object> current,
+                              long expectedVersion) {
+        StoredDocument stored = new StoredDocument(documentId, copyMap(current));
+        if (stored.getVersion() != expectedVersion) {
+            throw new VersionConflictException(collection + "/" + documentId + " was changed by someone else",
+                    stored.getData());
+        }
+    }
+
+    @Override
+    public String generateId(String collection) {
+        StringBuilder id = new StringBuilder(ID_LENGTH);
+        for (int i = 0; i < ID_LENGTH; i++) {
+            id.append(ID_ALPHABET.charAt(random.nextInt(ID_ALPHABET.length())));
+        }
+        return id.toString();
+    }
+
+    // Memory reads never block on I/O, so the async variants complete immediately
+    // (any simulated latency is paid by the caller)
+    @Override
+    public CompletableFuture<StoredDocument> getDocumentAsync(String collection, String documentId) {
+        return CompletableFuture.completedFuture(getDocument(collection, documentId));
+    }
+
+    @Override
+    public CompletableFuture<List<StoredDocument>> queryDocumentsAsync(String collection, String field, Object value) {
+        return CompletableFuture.completedFuture(queryDocuments(collection, field, value));
+    }
+
+    private void roundTrip() {
+        if (simulatedLatencyNanos > 0) {
+            LockSupport.parkNanos(simulatedLatencyNanos);
+        }
+    }
+
+    private MemoryCollection collection(String name) {
+        return collections.computeIfAbsent(name, n -> new MemoryCollection(indexedFields, IndexCatalog.forCollection(n)));
+    }
+
+    // Applies Firestore-style updates; dotted keys ("performance.totalProcessed") address nested maps
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> applyUpdates(Map<String, Object> current, Map<String, Object> updates) {
+        Map<String, Object> merged = copyMap(current);
+        for (Map.Entry<String, Object> update : updates.entrySet()) {
+            String[] path = update.getKey().split("\\.");
+            Map<String, Object> node = merged;
+            for (int i = 0; i < path.length - 1; i++) {
+                Object child = node.get(path[i]);
+                if (!(child instanceof Map)) {
+                    child = new LinkedHashMap<String, Object>();
+                    node.put(path[i], child);
+                }
+                node = (Map<String, Object>) child;
+            }
+            node.put(path[path.length - 1], copyValue(update.getValue()));
+        }
+        return merged;
+    }
+
+    private Map<String, Object> copyMap(Map<String, Object> source) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        source.forEach((key, value) -> copy.put(key, copyValue(value)));
+        return copy;
+    }
+
+    // Deep-copies maps and lists so callers never share mutable state with the store
+    @SuppressWarnings("unchecked")
+    private Object copyValue(Object value) {
+        if (value instanceof Map) {
+            return copyMap((Map<String, Object>) value);
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object item : (List<Object>) value) {
+                copy.add(copyValue(item));
+            }
+            return copy;
+        }
+        return MemoryCollection.normalize(value);
+    }
+}
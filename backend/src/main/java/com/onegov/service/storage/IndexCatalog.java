@@ -0,0 +1,96 @@
+package com.onegov.service.storage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Composite indexes per collection, declared once for both adapters. The
+ * in-process engine maintains them and its planner scans them; for Firestore,
+ * firestoreConfig() is the firestore.indexes.json to deploy (also served at
+ * GET /api/admin/storage/indexes). Each list endpoint declares the fields it
+ * may filter on by equality and the timestamp it orders (or ranges) on, and
+ * every combination of those fields gets an index; ListQueries refuses any
+ * other filter, so no list query can reach Firestore without one. An index
+ * without equality fields only matters to the in-process engine; Firestore
+ * indexes single fields itself.
+ */
+public final class IndexCatalog {
+
+    private static final List<CompositeIndex> INDEXES = new ArrayList<>();
+    private static final Map<String, List<String>> LIST_FILTERS = new LinkedHashMap<>();
+
+    static {
+        // Officers' complaint lists always carry their department, so it combines with the other two
+        newestFirst("applications", "updatedAt", "userId", "status");
+        newestFirst("complaints", "updatedAt", "userId", "status", "department");
+        newestFirst("healthServices", "updatedAt", "userId", "status");
+        newestFirst("documents", "uploadedAt", "userId", "verificationStatus");
+        newestFirst("users", "updatedAt", "status");
+    }
+
+    private IndexCatalog() {
+    }
+
+    // One index per subset of the filter fields (including none), declared order kept within each
+    private static void newestFirst(String collection, String orderField, String... filterFields) {
+        LIST_FILTERS.put(collection, List.of(filterFields));
+        for (int mask = 0; mask < 1 << filterFields.length; mask++) {
+            List<String> equalityFields = new ArrayList<>();
+            for (int i = 0; i < filterFields.length; i++) {
+                if ((mask & 1 << i) != 0) {
+                    equalityFields.add(filterFields[i]);
+                }
+            }
+            INDEXES.add(CompositeIndex.of(collection, equalityFields, orderField, true));
+        }
+    }
+
+    // Fields a list query on this collection may filter on by equality; empty for collections without a list
+    public static List<String> listFilters(String collection) {
+        return LIST_FILTERS.getOrDefault(collection, List.of());
+    }
+
+    public static List<CompositeIndex> all() {
+        return List.copyOf(INDEXES);
+    }
+
+    public static List<CompositeIndex> forCollection(String collection) {
+        return INDEXES.stream()
+                .filter(index -> index.getCollection().equals(collection))
+                .collect(Collectors.toList());
+    }
+
+    // firestore.indexes.json: equality fields ascending, then the order field; Firestore adds __name__ itself
+    public static Map<String, Object> firestoreConfig() {
+        List<Map<String, Object>> indexes = new ArrayList<>();
+        for (CompositeIndex index : INDEXES) {
+            if (index.getEqualityFields().isEmpty()) {
+                continue;
+            }
+            List<Map<String, Object>> fields = new ArrayList<>();
+            for (String field : index.getEqualityFields()) {
+                fields.add(indexField(field, "ASCENDING"));
+            }
+            fields.add(indexField(index.getOrderField(), index.isDescending() ? "DESCENDING" : "ASCENDING"));
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("collectionGroup", index.getCollection());
+            entry.put("queryScope", "COLLECTION");
+            entry.put("fields", fields);
+            indexes.add(entry);
+        }
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("indexes", indexes);
+        config.put("fieldOverrides", List.of());
+        return config;
+    }
+
+    private static Map<String, Object> indexField(String field, String order) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("fieldPath", field);
+        entry.put("order", order);
+        return entry;
+    }
+}
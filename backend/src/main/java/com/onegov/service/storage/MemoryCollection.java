@@ -0,0 +1,317 @@
+package com.onegov.service.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * One collection of the in-process engine: documents keyed by id plus
+ * secondary hash indexes (field value -> document ids) on configured fields
+ * and the collection's composite indexes from IndexCatalog. Reads are
+ * lock-free; writes are serialized per collection so a document and its
+ * index entries always change together.
+ */
+class MemoryCollection {
+
+    private final ConcurrentHashMap<String, Map<String, Object>> documents = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentHashMap<Object, Set<String>>> indexes = new ConcurrentHashMap<>();
+    private final List<OrderedIndex> orderedIndexes = new ArrayList<>();
+
+    MemoryCollection(Collection<String> indexedFields, Collection<CompositeIndex> compositeIndexes) {
+        for (String field : indexedFields) {
+            indexes.put(field, new ConcurrentHashMap<>());
+        }
+        for (CompositeIndex index : compositeIndexes) {
+            orderedIndexes.add(new OrderedIndex(index));
+        }
+    }
+
+    Map<String, Object> get(String id) {
+        return documents.get(id);
+    }
+
+    List<StoredDocument> all() {
+        List<StoredDocument> result = new ArrayList<>(documents.size());
+        documents.forEach((id, data) -> result.add(new StoredDocument(id, data)));
+        return result;
+    }
+
+    int size() {
+        return documents.size();
+    }
+
+    synchronized Map<String, Object> put(String id, Map<String, Object> data) {
+        Map<String, Object> previous = documents.put(id, data);
+        if (previous != null) {
+            unindex(id, previous);
+        }
+        index(id, data);
+        return previous;
+    }
+
+    synchronized Map<String, Object> remove(String id) {
+        Map<String, Object> previous = documents.remove(id);
+        if (previous != null) {
+            unindex(id, previous);
+        }
+        return previous;
+    }
+
+    boolean isIndexed(String field) {
+        return indexes.containsKey(field);
+    }
+
+    // Equality lookup; uses the hash index when the field is indexed, otherwise scans
+    List<StoredDocument> find(String field, Object value) {
+        List<StoredDocument> result = new ArrayList<>();
+        ConcurrentHashMap<Object, Set<String>> index = indexes.get(field);
+        if (index != null) {
+            Set<String> ids = index.get(value);
+            if (ids == null) {
+                return result;
+            }
+            for (String id : ids) {
+                Map<String, Object> data = documents.get(id);
+                // Re-check: a concurrent write may have moved the document since the index read
+                if (data != null && Objects.equals(data.get(field), value)) {
+                    result.add(new StoredDocument(id, data));
+                }
+            }
+            return result;
+        }
+        documents.forEach((id, data) -> {
+            if (Objects.equals(data.get(field), value)) {
+                result.add(new StoredDocument(id, data));
+            }
+        });
+        return result;
+    }
+
+    // Filters, sorts by (orderBy, id) and cuts one page after the cursor, walking a composite index when plan() finds one
+    DocumentPage page(DocumentQuery query) {
+        Map<String, Object> equalities = new LinkedHashMap<>();
+        query.getEqualities().forEach((field, value) -> equalities.put(field, normalize(value)));
+
+        OrderedIndex index = plan(equalities.keySet(), query.getOrderBy());
+        if (index != null) {
+            return scan(index, query, equalities);
+        }
+
+        Stream<Map.Entry<String, Map<String, Object>>> candidates = candidates(equalities)
+                .filter(entry -> matches(entry.getValue(), equalities));
+
+        String orderBy = query.getOrderBy();
+        if (orderBy != null) {
+            // Firestore leaves out documents that lack the orderBy field
+            candidates = candidates.filter(entry -> entry.getValue().get(orderBy) != null);
+        }
+        if (query.hasRange()) {
+            Object from = normalize(query.getRangeFrom());
+            Object to = normalize(query.getRangeTo());
+            candidates = candidates.filter(entry -> inRange(entry.getValue().get(orderBy), from, to));
+        }
+
+        Comparator<Map.Entry<String, Map<String, Object>>> order = orderBy != null
+                ? Comparator.<Map.Entry<String, Map<String, Object>>, Object>comparing(
+                        entry -> entry.getValue().get(orderBy), MemoryCollection::compareValues)
+                        .thenComparing(Map.Entry::getKey)
+                : Map.Entry.comparingByKey();
+        if (query.isDescending()) {
+            order = order.reversed();
+        }
+
+        PageCursor cursor = query.getStartAfter();
+        if (cursor != null) {
+            Map<String, Object> cursorData = new LinkedHashMap<>();
+            if (orderBy != null) {
+                cursorData.put(orderBy, normalize(cursor.getOrderValue()));
+            }
+            Map.Entry<String, Map<String, Object>> cursorEntry = Map.entry(cursor.getDocumentId(), cursorData);
+            Comparator<Map.Entry<String, Map<String, Object>>> pageOrder = order;
+            candidates = candidates.filter(entry -> pageOrder.compare(entry, cursorEntry) > 0);
+        }
+
+        Stream<Map.Entry<String, Map<String, Object>>> sorted = candidates.sorted(order);
+        if (query.getLimit() < Integer.MAX_VALUE) {
+            sorted = sorted.limit(query.getLimit() + 1L);
+        }
+        List<String> projection = query.getProjection();
+        List<StoredDocument> fetched = sorted
+                .map(entry -> new StoredDocument(entry.getKey(), project(entry.getValue(), projection)))
+                .collect(Collectors.toList());
+        return DocumentPage.fromFetched(fetched, query);
+    }
+
+    // How page() serves a query, for logs and benchmarks
+    String explain(DocumentQuery query) {
+        OrderedIndex index = plan(query.getEqualities().keySet(), query.getOrderBy());
+        if (index != null) {
+            return "index scan " + index.getDefinition();
+        }
+        return query.getEqualities().keySet().stream().anyMatch(this::isIndexed)
+                ? "hash lookup and sort" : "full scan and sort";
+    }
+
+    // A composite index on the orderBy field covering every equality filter is walked in order and stops at
+    // the page. One covering only some of them is still walked, filtering the rest, unless a remaining filter
+    // has a hash index: sorting a small bucket beats a long walk. Otherwise page() narrows by hash and sorts.
+    private OrderedIndex plan(Set<String> filterFields, String orderBy) {
+        if (orderBy == null) {
+            return null;
+        }
+        OrderedIndex best = null;
+        for (OrderedIndex index : orderedIndexes) {
+            CompositeIndex definition = index.getDefinition();
+            if (definition.getOrderField().equals(orderBy) && filterFields.containsAll(definition.getEqualityFields())
+                    && (best == null || definition.getEqualityFields().size()
+                            > best.getDefinition().getEqualityFields().size())) {
+                best = index;
+            }
+        }
+        if (best == null || best.getDefinition().getEqualityFields().size() == filterFields.size()) {
+            return best;
+        }
+        for (String field : filterFields) {
+            if (!best.getDefinition().getEqualityFields().contains(field) && isIndexed(field)) {
+                return null;
+            }
+        }
+        return best;
+    }
+
+    private DocumentPage scan(OrderedIndex index, DocumentQuery query, Map<String, Object> equalities) {
+        String orderBy = query.getOrderBy();
+        long wanted = query.getLimit() < Integer.MAX_VALUE ? query.getLimit() + 1L : Long.MAX_VALUE;
+        List<String> projection = query.getProjection();
+        List<StoredDocument> fetched = new ArrayList<>();
+        for (OrderedIndex.Entry entry : index.scan(equalities, query.isDescending(), query.getRangeFrom(),
+                query.getRangeTo(), query.getStartAfter())) {
+            Map<String, Object> data = documents.get(entry.id);
+            // Re-check: a concurrent write may have moved the document since the index read
+            if (data == null || !matches(data, equalities) || compareValues(data.get(orderBy), entry.value) != 0) {
+                continue;
+            }
+            fetched.add(new StoredDocument(entry.id, project(data, projection)));
+            if (fetched.size() >= wanted) {
+                break;
+            }
+        }
+        return DocumentPage.fromFetched(fetched, query);
+    }
+
+    // Narrows to the smallest index bucket among the indexed equality fields
+    private Stream<Map.Entry<String, Map<String, Object>>> candidates(Map<String, Object> equalities) {
+        Set<String> best = null;
+        for (Map.Entry<String, Object> filter : equalities.entrySet()) {
+            ConcurrentHashMap<Object, Set<String>> index = indexes.get(filter.getKey());
+            if (index != null) {
+                Set<String> ids = index.getOrDefault(filter.getValue(), Set.of());
+                if (best == null || ids.size() < best.size()) {
+                    best = ids;
+                }
+            }
+        }
+        if (best == null) {
+            return documents.entrySet().stream();
+        }
+        return best.stream()
+                .map(id -> {
+                    Map<String, Object> data = documents.get(id);
+                    return data != null ? Map.entry(id, data) : null;
+                })
+                .filter(Objects::nonNull);
+    }
+
+    private static boolean matches(Map<String, Object> data, Map<String, Object> equalities) {
+        for (Map.Entry<String, Object> filter : equalities.entrySet()) {
+            if (!Objects.equals(data.get(filter.getKey()), filter.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean inRange(Object value, Object from, Object to) {
+        return (from == null || compareValues(value, from) >= 0) && (to == null || compareValues(value, to) < 0);
+    }
+
+    private static Map<String, Object> project(Map<String, Object> data, List<String> fields) {
+        if (fields.isEmpty()) {
+            return data;
+        }
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (String field : fields) {
+            if (data.containsKey(field)) {
+                projected.put(field, data.get(field));
+            }
+        }
+        return projected;
+    }
+
+    // Total order over stored values: numbers numerically, same-type comparables naturally
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compareValues(Object a, Object b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a == null) {
+            return -1;
+        }
+        if (b == null) {
+            return 1;
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable) a).compareTo(b);
+        }
+        return a.getClass().getName().compareTo(b.getClass().getName());
+    }
+
+    // Firestore hands integral numbers back as Long and decimals as Double; keep parity
+    static Object normalize(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float) {
+            return ((Float) value).doubleValue();
+        }
+        return value;
+    }
+
+    private void index(String id, Map<String, Object> data) {
+        for (OrderedIndex ordered : orderedIndexes) {
+            ordered.add(id, data);
+        }
+        indexes.forEach((field, index) -> {
+            Object value = data.get(field);
+            if (value != null) {
+                index.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        });
+    }
+
+    private void unindex(String id, Map<String, Object> data) {
+        for (OrderedIndex ordered : orderedIndexes) {
+            ordered.remove(id, data);
+        }
+        indexes.forEach((field, index) -> {
+            Object value = data.get(field);
+            if (value != null) {
+                index.computeIfPresent(value, (v, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package com.onegov.service.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * The in-process side of a CompositeIndex: for every combination of equality
+ * values, the documents sorted by (order value, id) in a skip list. A page is
+ * a walk from the cursor (or range bound) that stops once it has enough rows.
+ * Changed by MemoryCollection under its write lock, read without locking.
+ * Documents missing an equality or order field are left out, like Firestore.
+ */
+final class OrderedIndex {
+
+    static final class Entry {
+        final Object value;
+        final String id;
+
+        Entry(Object value, String id) {
+            this.value = value;
+            this.id = id;
+        }
+    }
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .<Entry, Object>comparing(entry -> entry.value, MemoryCollection::compareValues)
+            .thenComparing(entry -> entry.id);
+
+    private final CompositeIndex definition;
+    private final ConcurrentHashMap<List<Object>, ConcurrentSkipListSet<Entry>> buckets = new ConcurrentHashMap<>();
+
+    OrderedIndex(CompositeIndex definition) {
+        this.definition = definition;
+    }
+
+    CompositeIndex getDefinition() {
+        return definition;
+    }
+
+    void add(String id, Map<String, Object> data) {
+        List<Object> key = key(data);
+        Object value = data.get(definition.getOrderField());
+        if (key != null && value != null) {
+            buckets.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(ORDER)).add(new Entry(value, id));
+        }
+    }
+
+    void remove(String id, Map<String, Object> data) {
+        List<Object> key = key(data);
+        Object value = data.get(definition.getOrderField());
+        if (key != null && value != null) {
+            buckets.computeIfPresent(key, (k, entries) -> {
+                entries.remove(new Entry(value, id));
+                return entries.isEmpty() ? null : entries;
+            });
+        }
+    }
+
+    // Entries for these equality values in page order, starting after the cursor; from inclusive, to exclusive
+    Iterable<Entry> scan(Map<String, Object> equalities, boolean descending, Object from, Object to,
+                         PageCursor startAfter) {
+        List<Object> key = key(equalities);
+        NavigableSet<Entry> entries = key != null ? buckets.get(key) : null;
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        // "" sorts before every document id, so these bounds take in (or leave out) the whole value
+        if (from != null) {
+            entries = entries.tailSet(new Entry(MemoryCollection.normalize(from), ""), true);
+        }
+        if (to != null) {
+            entries = entries.headSet(new Entry(MemoryCollection.normalize(to), ""), false);
+        }
+        if (startAfter != null) {
+            Entry cursor = new Entry(MemoryCollection.normalize(startAfter.getOrderValue()), startAfter.getDocumentId());
+            entries = descending ? entries.headSet(cursor, false) : entries.tailSet(cursor, false);
+        }
+        return descending ? entries.descendingSet() : entries;
+    }
+
+    private List<Object> key(Map<String, Object> values) {
+        List<Object> key = new ArrayList<>(definition.getEqualityFields().size());
+        for (String field : definition.getEqualityFields()) {
+            Object value = values.get(field);
+            if (value == null) {
+                return null;
+            }
+            key.add(value);
+        }
+        return key;
+    }
+}
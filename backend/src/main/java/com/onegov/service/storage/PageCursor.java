@@ -0,0 +1,70 @@
+package com.onegov.service.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last row of a page: the orderBy value plus the document
+ * id as tie-breaker. Travels to clients as an opaque URL-safe token.
+ */
+public class PageCursor {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final Object orderValue;
+    private final String documentId;
+
+    public PageCursor(Object orderValue, String documentId) {
+        this.orderValue = orderValue;
+        this.documentId = documentId;
+    }
+
+    public Object getOrderValue() {
+        return orderValue;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public String encode() {
+        String value;
+        if (orderValue == null) {
+            value = "_";
+        } else if (orderValue instanceof Number) {
+            value = "n" + orderValue;
+        } else {
+            value = "s" + orderValue;
+        }
+        String raw = value + SEPARATOR + documentId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        int separator = raw.indexOf(SEPARATOR);
+        if (separator < 1) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        String value = raw.substring(0, separator);
+        String documentId = raw.substring(separator + 1);
+        Object orderValue;
+        switch (value.charAt(0)) {
+            case 'n':
+                orderValue = value.contains(".") ? (Object) Double.parseDouble(value.substring(1))
+                        : (Object) Long.parseLong(value.substring(1));
+                break;
+            case 's':
+                orderValue = value.substring(1);
+                break;
+            default:
+                orderValue = null;
+        }
+        return new PageCursor(orderValue, documentId);
+    }
+}
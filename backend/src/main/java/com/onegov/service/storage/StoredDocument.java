@@ -0,0 +1,106 @@
+package com.onegov.service.storage;
+
+import com.google.cloud.Timestamp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Storage-neutral, read-only view of a single document.
+ * Mirrors the subset of Firestore's DocumentSnapshot API the services use,
+ * so callers do not care which storage adapter produced it.
+ */
+public class StoredDocument {
+
+    // Bumped by every conditional write; documents written before versioning read as version 0
+    public static final String VERSION_FIELD = "version";
+
+    private final String id;
+    private final Map<String, Object> data;
+    private final Timestamp updateTime;
+
+    public StoredDocument(String id, Map<String, Object> data) {
+        this(id, data, null);
+    }
+
+    public StoredDocument(String id, Map<String, Object> data, Timestamp updateTime) {
+        this.id = id;
+        this.data = data != null ? Collections.unmodifiableMap(data) : null;
+        this.updateTime = updateTime;
+    }
+
+    public static StoredDocument missing(String id) {
+        return new StoredDocument(id, null);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean exists() {
+        return data != null;
+    }
+
+    public Object get(String field) {
+        return data != null ? data.get(field) : null;
+    }
+
+    public String getString(String field) {
+        return (String) get(field);
+    }
+
+    public Long getLong(String field) {
+        Object value = get(field);
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    public Double getDouble(String field) {
+        Object value = get(field);
+        return value != null ? ((Number) value).doubleValue() : null;
+    }
+
+    public Boolean getBoolean(String field) {
+        return (Boolean) get(field);
+    }
+
+    // When Firestore last wrote the document as this read saw it; null from the in-memory engine and for
+    // views merged locally. A conditional write can check it in the write itself, without reading again
+    public Timestamp getUpdateTime() {
+        return updateTime;
+    }
+
+    public long getVersion() {
+        Long version = getLong(VERSION_FIELD);
+        return version != null ? version : 0L;
+    }
+
+    // Returns a mutable copy, like DocumentSnapshot.getData()
+    public Map<String, Object> getData() {
+        return data != null ? new HashMap<>(data) : null;
+    }
+
+    // This document with Firestore-style updates applied; dotted keys ("performance.rating") address nested maps
+    public StoredDocument withUpdates(Map<String, Object> updates) {
+        Map<String, Object> merged = new HashMap<>(data != null ? data : Collections.emptyMap());
+        for (Map.Entry<String, Object> update : updates.entrySet()) {
+            String[] path = update.getKey().split("\\.");
+            Map<String, Object> node = merged;
+            for (int i = 0; i < path.length - 1; i++) {
+                Object child = node.get(path[i]);
+                // Copy on the way down so the nested maps of this document are never modified
+                Map<String, Object> copy = child instanceof Map ? new LinkedHashMap<>(castMap(child)) : new LinkedHashMap<>();
+                node.put(path[i], copy);
+                node = copy;
+            }
+            node.put(path[path.length - 1], update.getValue());
+        }
+        return new StoredDocument(id, merged);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+}
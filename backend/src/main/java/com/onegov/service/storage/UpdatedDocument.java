@@ -0,0 +1,30 @@
+package com.onegov.service.storage;
+
+// A document as it was just before an update and as the update left it, from one atomic store call
+public final class UpdatedDocument {
+
+    private final StoredDocument before;
+    private final StoredDocument after;
+
+    public UpdatedDocument(StoredDocument before, StoredDocument after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    // Nothing was written when the document did not exist; both sides are then missing
+    static UpdatedDocument missing(String documentId) {
+        return new UpdatedDocument(StoredDocument.missing(documentId), StoredDocument.missing(documentId));
+    }
+
+    public boolean exists() {
+        return before.exists();
+    }
+
+    public StoredDocument getBefore() {
+        return before;
+    }
+
+    public StoredDocument getAfter() {
+        return after;
+    }
+}
@@ -0,0 +1,88 @@
+package com.onegov.service.storage;
+
+import com.google.cloud.Timestamp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// One write inside a batch: set (create/replace), update (fields of an existing document) or delete.
+// An update may be conditional on the document's version, see FirebaseService.updateDocumentIfVersion
+public final class WriteOperation {
+
+    public enum Type { SET, UPDATE, DELETE }
+
+    private final Type type;
+    private final String collection;
+    private final String documentId;
+    private final Map<String, Object> data;
+    private final Long expectedVersion;
+    private final Timestamp expectedUpdateTime;
+
+    private WriteOperation(Type type, String collection, String documentId, Map<String, Object> data,
+                           Long expectedVersion, Timestamp expectedUpdateTime) {
+        this.type = type;
+        this.collection = collection;
+        this.documentId = documentId;
+        this.data = data;
+        this.expectedVersion = expectedVersion;
+        this.expectedUpdateTime = expectedUpdateTime;
+    }
+
+    public static WriteOperation set(String collection, String documentId, Map<String, Object> data) {
+        return new WriteOperation(Type.SET, collection, documentId, data, null, null);
+    }
+
+    public static WriteOperation update(String collection, String documentId, Map<String, Object> updates) {
+        return new WriteOperation(Type.UPDATE, collection, documentId, updates, null, null);
+    }
+
+    public static WriteOperation updateIfVersion(String collection, String documentId, long expectedVersion,
+                                                 Map<String, Object> updates) {
+        return new WriteOperation(Type.UPDATE, collection, documentId, updates, expectedVersion, null);
+    }
+
+    // Conditional on the document still being as it was read: its version, and on Firestore its update time
+    public static WriteOperation updateIfUnchanged(String collection, StoredDocument read,
+                                                   Map<String, Object> updates) {
+        return new WriteOperation(Type.UPDATE, collection, read.getId(), updates, read.getVersion(),
+                read.getUpdateTime());
+    }
+
+    public static WriteOperation delete(String collection, String documentId) {
+        return new WriteOperation(Type.DELETE, collection, documentId, Collections.emptyMap(), null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public Map<String, Object> getData() {
+        return data;
+    }
+
+    // Null for unconditional writes
+    public Long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    // Null unless the write was built from a Firestore read, see updateIfUnchanged
+    public Timestamp getExpectedUpdateTime() {
+        return expectedUpdateTime;
+    }
+
+    // The updates a conditional write stores: the caller's fields plus the next version
+    public static Map<String, Object> versioned(Map<String, Object> updates, long expectedVersion) {
+        Map<String, Object> versioned = new HashMap<>(updates);
+        versioned.put(StoredDocument.VERSION_FIELD, expectedVersion + 1);
+        return versioned;
+    }
+}
@@ -0,0 +1,210 @@
+package com.onegov.service.timeline;
+
+import com.onegov.model.OfficerInfo;
+import com.onegov.model.TimelineEntry;
+import com.onegov.service.AsyncFirebaseService;
+import com.onegov.service.EntityCache;
+import com.onegov.service.FirebaseService;
+import com.onegov.service.event.ApplicationStatusChanged;
+import com.onegov.service.event.Backpressure;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.storage.WriteOperation;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Application timelines as an append-only log: every entry is its own document in
+ * applications/{id}/timeline, written in the same batch as the status change, so an update
+ * costs one write however long the timeline is and nothing is read first. Entry ids sort in
+ * append order. Once an application is decided its entries are folded into one
+ * TimelineCodec blob on the application (timelineArchive) and the entry documents removed.
+ * Documents written before this kept the whole list inline in "timeline"; reads still honour
+ * it and archiving folds it in. Lists of applications don't load timelines, only single reads.
+ */
+@Component
+public class ApplicationTimelineStore {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private AsyncFirebaseService asyncFirebaseService;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private EventBus eventBus;
+
+    private static final String APPLICATIONS_COLLECTION = "applications";
+    private static final String ARCHIVE_FIELD = "timelineArchive";
+    private static final String LEGACY_FIELD = "timeline";
+
+    // Decided applications rarely change again, so their log is worth compacting
+    private static final Set<String> ARCHIVE_ON = Set.of("approved", "rejected");
+
+    private final AtomicLong lastEntryMicros = new AtomicLong();
+
+    // Compaction is best effort: if the queue is full the entries simply stay as documents
+    @PostConstruct
+    public void subscribe() {
+        eventBus.subscribe("timeline-archiver", ApplicationStatusChanged.class, event -> {
+            if (ARCHIVE_ON.contains(event.getNewStatus())) {
+                archive(event.getDocumentId());
+            }
+        }, Backpressure.DROP_NEWEST, 256);
+    }
+
+    public static String entriesCollection(String applicationId) {
+        return APPLICATIONS_COLLECTION + "/" + applicationId + "/timeline";
+    }
+
+    // The write that appends entry; batch it with the application's own update
+    public WriteOperation appendOperation(String applicationId, TimelineEntry entry) {
+        Map<String, Object> data = toMap(entry);
+        data.put("applicationId", applicationId);
+        return WriteOperation.set(entriesCollection(applicationId), nextEntryId(), data);
+    }
+
+    // Zero-padded microsecond clock (monotonic per instance) plus a random suffix against other instances
+    private String nextEntryId() {
+        long now = System.currentTimeMillis() * 1000;
+        long micros = lastEntryMicros.accumulateAndGet(now, (last, candidate) -> Math.max(last + 1, candidate));
+        return String.format("%016d-%04x", micros, ThreadLocalRandom.current().nextInt(0x10000));
+    }
+
+    // Legacy inline entries, then the archive, then entries appended since
+    public List<TimelineEntry> load(StoredDocument application) throws ExecutionException, InterruptedException {
+        String applicationId = application.getId();
+        List<StoredDocument> entries = firebaseService.queryDocuments(entriesCollection(applicationId),
+                "applicationId", applicationId);
+        if (entries.isEmpty() && !hasCompactedTimeline(application)) {
+            // A cached copy from before an archive: the entries are gone but the blob isn't visible yet
+            application = firebaseService.getDocument(APPLICATIONS_COLLECTION, applicationId);
+        }
+        return assemble(application, entries);
+    }
+
+    public CompletableFuture<List<TimelineEntry>> loadAsync(StoredDocument application) {
+        String applicationId = application.getId();
+        return asyncFirebaseService.queryDocumentsAsync(entriesCollection(applicationId), "applicationId", applicationId)
+                .thenCompose(entries -> {
+                    if (entries.isEmpty() && !hasCompactedTimeline(application)) {
+                        return asyncFirebaseService.getDocumentAsync(APPLICATIONS_COLLECTION, applicationId)
+                                .thenApply(fresh -> assemble(fresh, entries));
+                    }
+                    return CompletableFuture.completedFuture(assemble(application, entries));
+                });
+    }
+
+    // Folds everything into the archive blob and deletes the entry documents, in one batch
+    public void archive(String applicationId) {
+        try {
+            StoredDocument application = firebaseService.getDocument(APPLICATIONS_COLLECTION, applicationId);
+            if (!application.exists()) {
+                return;
+            }
+            List<StoredDocument> entries = firebaseService.queryDocuments(entriesCollection(applicationId),
+                    "applicationId", applicationId);
+            // One slot for the application update; anything beyond a batch waits for the next decision
+            int batchable = Math.min(entries.size(), firebaseService.getMaxBatchSize() - 1);
+            List<StoredDocument> folded = sortById(entries).subList(0, batchable);
+            if (folded.isEmpty() && application.get(LEGACY_FIELD) == null) {
+                return;
+            }
+
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(ARCHIVE_FIELD, Base64.getEncoder().encodeToString(TimelineCodec.encode(assemble(application, folded))));
+            updates.put(LEGACY_FIELD, null);
+            List<WriteOperation> batch = new ArrayList<>();
+            batch.add(WriteOperation.update(APPLICATIONS_COLLECTION, applicationId, updates));
+            for (StoredDocument entry : folded) {
+                batch.add(WriteOperation.delete(entriesCollection(applicationId), entry.getId()));
+            }
+            firebaseService.writeBatch(batch);
+            entityCache.invalidate(APPLICATIONS_COLLECTION, applicationId);
+        } catch (ExecutionException | InterruptedException | IllegalArgumentException e) {
+            System.err.println("Timeline archive of application " + applicationId + " failed, entries kept: "
+                    + e.getMessage());
+        }
+    }
+
+    private List<TimelineEntry> assemble(StoredDocument application, List<StoredDocument> entries) {
+        List<TimelineEntry> timeline = new ArrayList<>();
+        Object legacy = application.get(LEGACY_FIELD);
+        if (legacy instanceof List) {
+            for (Object item : (List<?>) legacy) {
+                if (item instanceof Map) {
+                    timeline.add(fromMap(castMap(item)));
+                }
+            }
+        }
+        String archive = application.getString(ARCHIVE_FIELD);
+        if (archive != null) {
+            timeline.addAll(TimelineCodec.decode(Base64.getDecoder().decode(archive)));
+        }
+        for (StoredDocument entry : sortById(entries)) {
+            timeline.add(fromMap(entry.getData()));
+        }
+        return timeline;
+    }
+
+    private static boolean hasCompactedTimeline(StoredDocument application) {
+        return application.get(ARCHIVE_FIELD) != null || application.get(LEGACY_FIELD) != null;
+    }
+
+    private static List<StoredDocument> sortById(List<StoredDocument> entries) {
+        return entries.stream()
+                .sorted(Comparator.comparing(StoredDocument::getId))
+                .collect(Collectors.toList());
+    }
+
+    public static Map<String, Object> toMap(TimelineEntry entry) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("stage", entry.getStage());
+        map.put("status", entry.getStatus());
+        map.put("timestamp", entry.getTimestamp().toString());
+        if (entry.getOfficer() != null) {
+            Map<String, String> officer = new HashMap<>();
+            officer.put("name", entry.getOfficer().getName());
+            officer.put("id", entry.getOfficer().getId());
+            map.put("officer", officer);
+        }
+        return map;
+    }
+
+    public static TimelineEntry fromMap(Map<String, Object> map) {
+        TimelineEntry entry = new TimelineEntry();
+        entry.setStage((String) map.get("stage"));
+        entry.setStatus((String) map.get("status"));
+        Object timestamp = map.get("timestamp");
+        entry.setTimestamp(timestamp != null ? LocalDateTime.parse(timestamp.toString()) : null);
+        Object officer = map.get("officer");
+        if (officer instanceof Map) {
+            Map<String, Object> info = castMap(officer);
+            entry.setOfficer(new OfficerInfo((String) info.get("name"), (String) info.get("id")));
+        }
+        return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+}
@@ -0,0 +1,163 @@
+package com.onegov.service.timeline;
+
+import com.onegov.model.OfficerInfo;
+import com.onegov.model.TimelineEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact columnar encoding for archived timelines. Stage, status and officer strings repeat
+ * across entries, so they go into one dictionary and every column holds small varint indexes;
+ * timestamps are stored as millisecond deltas from the previous entry. Layout (version 2):
+ * <pre>
+ *   byte    version
+ *   varint  entry count
+ *   varint  dictionary size, then each string (modified UTF-8)
+ *   columns stage, status, officer name, officer id: one varint per entry (0 = null, i + 1 = dictionary[i])
+ *   column  timestamp: one varint per entry, 0 = null, otherwise the zig-zag delta from the previous
+ *           non-null timestamp (epoch millis, starting from 0) plus one
+ * </pre>
+ * Version 1 archives have no null marker (a missing timestamp was written as epoch 0) and are still read.
+ * Timestamps are kept to the millisecond; the zone-less LocalDateTime is read as UTC both ways.
+ */
+public final class TimelineCodec {
+
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_NULL_TIMESTAMPS = 1;
+
+    private TimelineCodec() {
+    }
+
+    public static byte[] encode(List<TimelineEntry> entries) {
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> codes = new HashMap<>();
+        int[][] columns = new int[4][entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            TimelineEntry entry = entries.get(i);
+            OfficerInfo officer = entry.getOfficer();
+            columns[0][i] = code(entry.getStage(), dictionary, codes);
+            columns[1][i] = code(entry.getStatus(), dictionary, codes);
+            columns[2][i] = code(officer != null ? officer.getName() : null, dictionary, codes);
+            columns[3][i] = code(officer != null ? officer.getId() : null, dictionary, codes);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + entries.size() * 8);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            writeVarint(out, entries.size());
+            writeVarint(out, dictionary.size());
+            for (String value : dictionary) {
+                out.writeUTF(value);
+            }
+            for (int[] column : columns) {
+                for (int value : column) {
+                    writeVarint(out, value);
+                }
+            }
+            long previous = 0;
+            for (TimelineEntry entry : entries) {
+                if (entry.getTimestamp() == null) {
+                    writeVarint(out, 0);
+                    continue;
+                }
+                long millis = entry.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+                writeVarint(out, zigZag(millis - previous) + 1);
+                previous = millis;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Throws IllegalArgumentException for data this codec did not write
+    public static List<TimelineEntry> decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = in.readUnsignedByte();
+            if (version != VERSION && version != VERSION_WITHOUT_NULL_TIMESTAMPS) {
+                throw new IllegalArgumentException("Unsupported timeline archive version " + version);
+            }
+            int count = (int) readVarint(in);
+            String[] dictionary = new String[(int) readVarint(in)];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = in.readUTF();
+            }
+            String[][] columns = new String[4][count];
+            for (String[] column : columns) {
+                for (int i = 0; i < count; i++) {
+                    int code = (int) readVarint(in);
+                    column[i] = code == 0 ? null : dictionary[code - 1];
+                }
+            }
+            List<TimelineEntry> entries = new ArrayList<>(count);
+            long millis = 0;
+            for (int i = 0; i < count; i++) {
+                long delta = readVarint(in);
+                TimelineEntry entry = new TimelineEntry();
+                entry.setStage(columns[0][i]);
+                entry.setStatus(columns[1][i]);
+                if (version == VERSION_WITHOUT_NULL_TIMESTAMPS || delta != 0) {
+                    millis += unZigZag(version == VERSION_WITHOUT_NULL_TIMESTAMPS ? delta : delta - 1);
+                    entry.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                            (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC));
+                }
+                if (columns[2][i] != null || columns[3][i] != null) {
+                    entry.setOfficer(new OfficerInfo(columns[2][i], columns[3][i]));
+                }
+                entries.add(entry);
+            }
+            return entries;
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupt timeline archive: " + e.getMessage());
+        }
+    }
+
+    private static int code(String value, List<String> dictionary, Map<String, Integer> codes) {
+        if (value == null) {
+            return 0;
+        }
+        return codes.computeIfAbsent(value, v -> {
+            dictionary.add(v);
+            return dictionary.size();
+        });
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,9 @@
+package com.onegov.service.workqueue;
+
+// How queued work is pushed to a department's active officers
+public enum AssignmentStrategy {
+    // The officer holding the fewest leases gets the next item; ties go to the longest idle
+    LEAST_LOADED,
+    // Officers take turns in a fixed order, skipping anyone at their lease limit
+    ROUND_ROBIN
+}
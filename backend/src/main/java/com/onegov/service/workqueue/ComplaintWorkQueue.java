@@ -0,0 +1,646 @@
+package com.onegov.service.workqueue;
+
+import com.onegov.exception.ResourceNotFoundException;
+import com.onegov.exception.VersionConflictException;
+import com.onegov.exception.WorkItemConflictException;
+import com.onegov.service.EntityCache;
+import com.onegov.service.FirebaseService;
+import com.onegov.service.VersionedUpdater;
+import com.onegov.service.WriteBehindQueue;
+import com.onegov.service.event.Backpressure;
+import com.onegov.service.event.ComplaintStatusChanged;
+import com.onegov.service.event.EventBus;
+import com.onegov.service.storage.DocumentPage;
+import com.onegov.service.storage.DocumentQuery;
+import com.onegov.service.storage.StoredDocument;
+import com.onegov.service.storage.UpdatedDocument;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Routes complaints to department queues and hands them out under leases. A complaint's
+ * department comes from its type (the department picked when filing). Each department's
+ * queue is ordered by creation time minus a priority head start (urgent 72h, high 24h,
+ * medium 8h), so a low-priority complaint is eventually served ahead of newer urgent ones
+ * instead of starving. Claiming moves an item from the queue to a lease held by one
+ * officer; a lease that is not started (in_progress) within workqueue.lease-ms goes back to
+ * the queue. Queues and leases are rebuilt from open complaints on startup.
+ * Assignments are conditional writes on the complaint's version, so a complaint claimed on another
+ * instance is skipped here rather than claimed twice.
+ */
+@Component
+public class ComplaintWorkQueue {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private EntityCache entityCache;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private WriteBehindQueue writeBehindQueue;
+
+    @Autowired
+    private OfficerDirectory officerDirectory;
+
+    @Autowired
+    private VersionedUpdater versionedUpdater;
+
+    private static final String COMPLAINTS_COLLECTION = "complaints";
+    // The departments offered by the complaint form (app/file-complaint) plus the fallback; keep the two in step
+    private static final Set<String> DEPARTMENTS = Set.of("health", "education", "revenue", "transport", "utility",
+            "police", "general");
+    // Unknown departments already reported, so each is logged once rather than per complaint
+    private static final Set<String> UNKNOWN_DEPARTMENTS = ConcurrentHashMap.newKeySet();
+    private static final String DEFAULT_DEPARTMENT = "general";
+    private static final Map<String, Long> PRIORITY_HEAD_START_HOURS = Map.of("urgent", 72L, "high", 24L, "medium", 8L);
+    private static final Set<String> CLOSED_STATUSES = Set.of("resolved", "closed");
+
+    private static final Comparator<WorkItem> QUEUE_ORDER = Comparator
+            .comparingLong((WorkItem item) -> item.rank)
+            .thenComparing(item -> item.complaintId);
+
+    private final long leaseMs;
+    private final int maxLeasesPerOfficer;
+
+    // All state below is guarded by this; store writes happen outside the lock
+    private final Map<String, TreeSet<WorkItem>> queues = new HashMap<>();
+    private final Map<String, WorkItem> queued = new HashMap<>();
+    private final Map<String, Lease> leases = new HashMap<>();
+    private final Map<String, Set<String>> heldBy = new HashMap<>();
+    private final Map<String, Long> lastAssignedAt = new HashMap<>();
+    private final Map<String, Integer> roundRobinNext = new HashMap<>();
+
+    private long claimed;
+    private long expired;
+
+    public ComplaintWorkQueue(@Value("${workqueue.lease-ms:1800000}") long leaseMs,
+                              @Value("${workqueue.max-leases-per-officer:5}") int maxLeasesPerOfficer) {
+        this.leaseMs = leaseMs;
+        this.maxLeasesPerOfficer = maxLeasesPerOfficer;
+    }
+
+    // Status changes made anywhere (officer updates, citizen-facing updates) keep the queues in step
+    @PostConstruct
+    public void subscribe() {
+        eventBus.subscribe("complaint-work-queue", ComplaintStatusChanged.class, this::onStatusChanged,
+                Backpressure.CALLER_RUNS);
+    }
+
+    public static String departmentFor(String complaintType) {
+        return normalizeDepartment(complaintType);
+    }
+
+    static String normalizeDepartment(String department) {
+        String normalized = department != null ? department.trim().toLowerCase(Locale.ROOT) : "";
+        if (DEPARTMENTS.contains(normalized)) {
+            return normalized;
+        }
+        if (!normalized.isEmpty() && UNKNOWN_DEPARTMENTS.add(normalized)) {
+            System.err.println("Unknown department '" + normalized + "', routing to " + DEFAULT_DEPARTMENT
+                    + "; add it to ComplaintWorkQueue.DEPARTMENTS if it is real");
+        }
+        return DEFAULT_DEPARTMENT;
+    }
+
+    // A newly filed (or reopened) complaint waiting for an officer
+    public synchronized void enqueue(String complaintId, String department, String priority, String createdAt) {
+        if (queued.containsKey(complaintId) || leases.containsKey(complaintId)) {
+            return;
+        }
+        WorkItem item = new WorkItem(complaintId, normalizeDepartment(department), rank(priority, createdAt));
+        queued.put(complaintId, item);
+        queues.computeIfAbsent(item.department, d -> new TreeSet<>(QUEUE_ORDER)).add(item);
+    }
+
+    // Leases the most urgent complaint in the officer's department; null when the queue is empty
+    public Map<String, Object> claimNext(String officerId) throws ExecutionException, InterruptedException {
+        String department = requireActive(officerId);
+        while (true) {
+            WorkItem item;
+            synchronized (this) {
+                checkCapacity(officerId);
+                TreeSet<WorkItem> queue = queues.get(department);
+                item = queue != null ? queue.pollFirst() : null;
+                if (item == null) {
+                    return null;
+                }
+                queued.remove(item.complaintId);
+                lease(item, officerId);
+            }
+            try {
+                return persistAssignment(item, officerId, true);
+            } catch (VersionConflictException e) {
+                // Taken or closed elsewhere since it was queued here; it is not ours to hand out, try the next one
+            }
+        }
+    }
+
+    // Explicit assignment (admin or supervisor choice); fails if another officer holds a live lease or the
+    // officer is already at workqueue.max-leases-per-officer, like a claim would
+    public Map<String, Object> assign(String complaintId, String officerId) throws ExecutionException, InterruptedException {
+        if (officerId == null || officerId.isEmpty()) {
+            throw new IllegalArgumentException("officerId is required");
+        }
+        // Taking the item off the queue and leasing it happen under one lock, so a claim in between cannot
+        // lease it too. A complaint that is in no queue here is read from the store first, then rechecked
+        WorkItem item;
+        WorkItem fromStore = null;
+        while (true) {
+            synchronized (this) {
+                Lease current = leases.get(complaintId);
+                if (current != null && !current.officerId.equals(officerId)) {
+                    throw new WorkItemConflictException("Complaint is being worked on by another officer");
+                }
+                if (current != null) {
+                    current.expiresAt = System.currentTimeMillis() + leaseMs;
+                    item = current.item;
+                    break;
+                }
+                checkCapacity(officerId);
+                item = queued.remove(complaintId);
+                if (item != null) {
+                    queues.get(item.department).remove(item);
+                } else {
+                    item = fromStore;
+                }
+                if (item != null) {
+                    lease(item, officerId);
+                    break;
+                }
+            }
+            StoredDocument doc = entityCache.getDocument(COMPLAINTS_COLLECTION, complaintId);
+            if (!doc.exists()) {
+                throw new ResourceNotFoundException("Complaint not found");
+            }
+            fromStore = itemFor(doc);
+        }
+        return persistAssignment(item, officerId, false);
+    }
+
+    public synchronized void renew(String complaintId, String officerId) {
+        Lease lease = requireHeld(complaintId, officerId);
+        if (lease.expiresAt != Long.MAX_VALUE) {
+            lease.expiresAt = System.currentTimeMillis() + leaseMs;
+        }
+    }
+
+    // Gives a leased complaint back to the department queue
+    public void release(String complaintId, String officerId) throws ExecutionException, InterruptedException {
+        synchronized (this) {
+            requireHeld(complaintId, officerId);
+        }
+        returnToQueue(complaintId, officerId);
+    }
+
+    // Officers may only update complaints they hold or that nobody holds; null (admins) may always
+    public synchronized void checkHolder(String complaintId, String officerId) {
+        Lease lease = leases.get(complaintId);
+        if (officerId != null && lease != null && !lease.officerId.equals(officerId)) {
+            throw new WorkItemConflictException("Complaint is being worked on by another officer");
+        }
+    }
+
+    // Pushes queued complaints to the department's active officers until the queue is empty or all are full
+    public Map<String, Object> distribute(String department, AssignmentStrategy strategy)
+            throws ExecutionException, InterruptedException {
+        String target = normalizeDepartment(department);
+        List<String> officers = officerDirectory.activeOfficers(target);
+        int assigned = 0;
+        int failed = 0;
+        while (true) {
+            WorkItem item;
+            String officerId;
+            synchronized (this) {
+                TreeSet<WorkItem> queue = queues.get(target);
+                officerId = queue == null || queue.isEmpty() ? null : pickOfficer(target, officers, strategy);
+                if (officerId == null) {
+                    break;
+                }
+                item = queue.pollFirst();
+                queued.remove(item.complaintId);
+                lease(item, officerId);
+            }
+            try {
+                persistAssignment(item, officerId, true);
+                assigned++;
+            } catch (VersionConflictException e) {
+                // Taken elsewhere; the item is gone from this queue, carry on with the next
+            } catch (ExecutionException | RuntimeException e) {
+                failed++;
+                break; // persistAssignment already put the item back
+            }
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("department", target);
+        result.put("strategy", strategy.name());
+        result.put("assigned", assigned);
+        result.put("failed", failed);
+        result.put("officers", officers.size());
+        synchronized (this) {
+            TreeSet<WorkItem> queue = queues.get(target);
+            result.put("remaining", queue != null ? queue.size() : 0);
+        }
+        return result;
+    }
+
+    private String pickOfficer(String department, List<String> officers, AssignmentStrategy strategy) {
+        if (strategy == AssignmentStrategy.ROUND_ROBIN) {
+            int start = roundRobinNext.getOrDefault(department, 0);
+            for (int i = 0; i < officers.size(); i++) {
+                int index = (start + i) % officers.size();
+                if (load(officers.get(index)) < maxLeasesPerOfficer) {
+                    roundRobinNext.put(department, index + 1);
+                    return officers.get(index);
+                }
+            }
+            return null;
+        }
+        String best = null;
+        for (String officerId : officers) {
+            int load = load(officerId);
+            if (load >= maxLeasesPerOfficer) {
+                continue;
+            }
+            if (best == null || load < load(best)
+                    || (load == load(best) && lastAssignedAt.getOrDefault(officerId, 0L) < lastAssignedAt.getOrDefault(best, 0L))) {
+                best = officerId;
+            }
+        }
+        return best;
+    }
+
+    // The officer's leased complaints plus the head of their department queue, limit rows each
+    public Map<String, Object> inbox(String officerId, int limit) throws ExecutionException, InterruptedException {
+        String department = requireActive(officerId);
+        List<String> heldIds;
+        List<String> nextIds = new ArrayList<>();
+        int depth;
+        synchronized (this) {
+            heldIds = new ArrayList<>(heldBy.getOrDefault(officerId, Set.of()));
+            TreeSet<WorkItem> queue = queues.get(department);
+            depth = queue != null ? queue.size() : 0;
+            if (queue != null) {
+                Iterator<WorkItem> head = queue.iterator();
+                while (head.hasNext() && nextIds.size() < limit) {
+                    nextIds.add(head.next().complaintId);
+                }
+            }
+        }
+        Map<String, Object> inbox = new HashMap<>();
+        inbox.put("department", department);
+        inbox.put("leased", load(heldIds.subList(0, Math.min(limit, heldIds.size()))));
+        inbox.put("queued", load(nextIds));
+        inbox.put("queueDepth", depth);
+        inbox.put("maxLeases", maxLeasesPerOfficer);
+        return inbox;
+    }
+
+    private List<Map<String, Object>> load(List<String> complaintIds) throws ExecutionException, InterruptedException {
+        List<Map<String, Object>> rows = new ArrayList<>(complaintIds.size());
+        for (String complaintId : complaintIds) {
+            StoredDocument doc = entityCache.getDocument(COMPLAINTS_COLLECTION, complaintId);
+            if (doc.exists()) {
+                rows.add(doc.getData());
+            }
+        }
+        return rows;
+    }
+
+    // Leases nobody started in time go back to the queue
+    @Scheduled(fixedDelayString = "${workqueue.sweep-interval-ms:30000}")
+    public void expireLeases() {
+        long now = System.currentTimeMillis();
+        Map<String, String> lapsed = new HashMap<>();
+        synchronized (this) {
+            leases.forEach((complaintId, lease) -> {
+                if (lease.expiresAt < now) {
+                    lapsed.put(complaintId, lease.officerId);
+                }
+            });
+        }
+        lapsed.forEach((complaintId, officerId) -> {
+            try {
+                // The officer may have started it a moment ago; only an untouched assignment is taken back
+                StoredDocument doc = firebaseService.getDocument(COMPLAINTS_COLLECTION, complaintId);
+                if (doc.exists() && "assigned".equals(doc.getString("status")) && officerId.equals(doc.getString("assignedTo"))) {
+                    returnToQueue(complaintId, officerId);
+                    synchronized (this) {
+                        expired++;
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Work queue: could not expire lease on " + complaintId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void returnToQueue(String complaintId, String officerId) throws ExecutionException, InterruptedException {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("status", "submitted");
+        updates.put("assignedTo", null);
+        updates.put("leaseExpiresAt", null);
+        updates.put("updatedAt", LocalDateTime.now().toString());
+        StoredDocument doc = versionedUpdater.update(COMPLAINTS_COLLECTION, complaintId, null, "status",
+                "Complaint not found", current -> {
+                    if (!officerId.equals(current.getString("assignedTo"))) {
+                        throw new WorkItemConflictException("Complaint is no longer assigned to this officer");
+                    }
+                    return updates;
+                }).getBefore();
+        synchronized (this) {
+            Lease lease = leases.get(complaintId);
+            if (lease != null && lease.officerId.equals(officerId)) {
+                unlease(complaintId);
+                queued.put(complaintId, lease.item);
+                queues.computeIfAbsent(lease.item.department, d -> new TreeSet<>(QUEUE_ORDER)).add(lease.item);
+            }
+        }
+        eventBus.publish(new ComplaintStatusChanged(complaintId, doc.getString("userId"), doc.getString("trackingId"),
+                "assigned", "submitted", null, doc.getString("createdAt")));
+    }
+
+    // A claim only takes complaints nobody else holds; an explicit assignment may take one over
+    private Map<String, Object> persistAssignment(WorkItem item, String officerId, boolean claim)
+            throws ExecutionException, InterruptedException {
+        long expiresAt;
+        synchronized (this) {
+            expiresAt = leases.get(item.complaintId).expiresAt;
+        }
+        try {
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("assignedTo", officerId);
+            updates.put("status", "assigned");
+            updates.put("leaseExpiresAt", LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), ZoneId.systemDefault()).toString());
+            updates.put("updatedAt", LocalDateTime.now().toString());
+            // Conditional on the version read, so two instances cannot both claim the same complaint
+            UpdatedDocument updated = versionedUpdater.update(COMPLAINTS_COLLECTION, item.complaintId, null, "status",
+                    "Complaint not found", current -> {
+                        String holder = current.getString("assignedTo");
+                        if (claim && (CLOSED_STATUSES.contains(current.getString("status"))
+                                || (holder != null && !holder.equals(officerId)))) {
+                            throw new VersionConflictException("Complaint was taken by another officer", current.getData());
+                        }
+                        return updates;
+                    });
+            StoredDocument doc = updated.getBefore();
+            String previousStatus = doc.getString("status");
+            synchronized (this) {
+                claimed++;
+            }
+            if (!"assigned".equals(previousStatus)) {
+                eventBus.publish(new ComplaintStatusChanged(item.complaintId, doc.getString("userId"),
+                        doc.getString("trackingId"), previousStatus, "assigned", officerId, doc.getString("createdAt")));
+            }
+            return updated.getAfter().getData();
+        } catch (ExecutionException | InterruptedException | RuntimeException e) {
+            synchronized (this) {
+                Lease lease = leases.get(item.complaintId);
+                if (lease != null && lease.officerId.equals(officerId)) {
+                    unlease(item.complaintId);
+                    if (!(e instanceof ResourceNotFoundException) && !(e instanceof VersionConflictException)) {
+                        queued.put(item.complaintId, item);
+                        queues.computeIfAbsent(item.department, d -> new TreeSet<>(QUEUE_ORDER)).add(item);
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void onStatusChanged(ComplaintStatusChanged event) {
+        String complaintId = event.getDocumentId();
+        String status = event.getNewStatus();
+        synchronized (this) {
+            if (CLOSED_STATUSES.contains(status)) {
+                WorkItem item = queued.remove(complaintId);
+                if (item != null) {
+                    queues.get(item.department).remove(item);
+                }
+                unlease(complaintId);
+                return;
+            }
+            Lease lease = leases.get(complaintId);
+            if ("in_progress".equals(status) && lease != null) {
+                lease.expiresAt = Long.MAX_VALUE; // started: the officer keeps it until it is closed or released
+                return;
+            }
+            if ("in_progress".equals(status) && queued.containsKey(complaintId)) {
+                // Started straight from the queue: it belongs to whoever started it, or at least leaves the queue
+                WorkItem item = queued.remove(complaintId);
+                queues.get(item.department).remove(item);
+                if (event.getActorId() != null) {
+                    lease(item, event.getActorId());
+                    leases.get(complaintId).expiresAt = Long.MAX_VALUE;
+                }
+                return;
+            }
+            if (!"submitted".equals(status) || queued.containsKey(complaintId) || lease != null) {
+                return;
+            }
+        }
+        // Reopened outside the queue (e.g. a status reset); read it to route it again
+        try {
+            StoredDocument doc = entityCache.getDocument(COMPLAINTS_COLLECTION, complaintId);
+            if (doc.exists()) {
+                enqueue(complaintId, doc.getString("department") != null ? doc.getString("department")
+                        : departmentFor(doc.getString("type")), doc.getString("priority"), doc.getString("createdAt"));
+            }
+        } catch (Exception e) {
+            System.err.println("Work queue: could not requeue " + complaintId + ": " + e.getMessage());
+        }
+    }
+
+    // Open complaints become queue entries or leases again; missing department fields are backfilled
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        int restored = 0;
+        try {
+            for (String status : List.of("submitted", "assigned", "in_progress")) {
+                String cursor = null;
+                do {
+                    DocumentPage page = firebaseService.queryPage(DocumentQuery.of(COMPLAINTS_COLLECTION)
+                            .whereEqualTo("status", status)
+                            .limit(500)
+                            .startAfter(cursor)
+                            .select(List.of("type", "department", "priority", "createdAt", "assignedTo", "leaseExpiresAt")));
+                    for (StoredDocument doc : page.getDocuments()) {
+                        restore(doc, status);
+                        restored++;
+                    }
+                    cursor = page.getNextCursor();
+                } while (cursor != null);
+            }
+            System.out.println("Work queue: restored " + restored + " open complaints in "
+                    + (System.currentTimeMillis() - started) + "ms");
+        } catch (Exception e) {
+            System.err.println("Work queue: rebuild failed after " + restored + " complaints: " + e.getMessage());
+        }
+    }
+
+    private void restore(StoredDocument doc, String status) {
+        String department = doc.getString("department");
+        if (department == null) {
+            department = departmentFor(doc.getString("type"));
+            writeBehindQueue.enqueue(COMPLAINTS_COLLECTION, doc.getId(), Map.of("department", department));
+        }
+        String officerId = doc.getString("assignedTo");
+        if (status.equals("submitted") || officerId == null) {
+            enqueue(doc.getId(), department, doc.getString("priority"), doc.getString("createdAt"));
+            return;
+        }
+        WorkItem item = new WorkItem(doc.getId(), normalizeDepartment(department),
+                rank(doc.getString("priority"), doc.getString("createdAt")));
+        long expiresAt = Long.MAX_VALUE;
+        if (status.equals("assigned")) {
+            // Assignments made before leases existed get a fresh lease
+            expiresAt = System.currentTimeMillis() + leaseMs;
+            String stored = doc.getString("leaseExpiresAt");
+            if (stored != null) {
+                try {
+                    expiresAt = LocalDateTime.parse(stored).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                } catch (DateTimeParseException e) {
+                    // keep the fresh lease
+                }
+            }
+        }
+        synchronized (this) {
+            if (!leases.containsKey(item.complaintId)) {
+                lease(item, officerId);
+                leases.get(item.complaintId).expiresAt = expiresAt;
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Integer> depth = new TreeMap<>();
+        queues.forEach((department, queue) -> depth.put(department, queue.size()));
+        Map<String, Integer> load = new TreeMap<>();
+        heldBy.forEach((officerId, held) -> load.put(officerId, held.size()));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", depth);
+        stats.put("leases", leases.size());
+        stats.put("leasesByOfficer", load);
+        stats.put("claimed", claimed);
+        stats.put("expired", expired);
+        stats.put("leaseMs", leaseMs);
+        stats.put("maxLeasesPerOfficer", maxLeasesPerOfficer);
+        return stats;
+    }
+
+    private String requireActive(String officerId) {
+        String department = officerDirectory.departmentOf(officerId);
+        if (department == null) {
+            throw new IllegalArgumentException("Only active officers have a work queue");
+        }
+        return department;
+    }
+
+    private void checkCapacity(String officerId) {
+        if (load(officerId) >= maxLeasesPerOfficer) {
+            throw new WorkItemConflictException("Finish or release a complaint first (limit " + maxLeasesPerOfficer + ")");
+        }
+    }
+
+    private Lease requireHeld(String complaintId, String officerId) {
+        Lease lease = leases.get(complaintId);
+        if (lease == null || !lease.officerId.equals(officerId)) {
+            throw new WorkItemConflictException("Complaint is not leased to this officer");
+        }
+        return lease;
+    }
+
+    private void lease(WorkItem item, String officerId) {
+        leases.put(item.complaintId, new Lease(item, officerId, System.currentTimeMillis() + leaseMs));
+        heldBy.computeIfAbsent(officerId, o -> new HashSet<>()).add(item.complaintId);
+        lastAssignedAt.put(officerId, System.currentTimeMillis());
+    }
+
+    private void unlease(String complaintId) {
+        Lease lease = leases.remove(complaintId);
+        if (lease != null) {
+            Set<String> held = heldBy.get(lease.officerId);
+            if (held != null && held.remove(complaintId) && held.isEmpty()) {
+                heldBy.remove(lease.officerId);
+            }
+        }
+    }
+
+    private int load(String officerId) {
+        Set<String> held = heldBy.get(officerId);
+        return held != null ? held.size() : 0;
+    }
+
+    private WorkItem itemFor(StoredDocument doc) {
+        String department = doc.getString("department") != null ? doc.getString("department")
+                : departmentFor(doc.getString("type"));
+        return new WorkItem(doc.getId(), normalizeDepartment(department),
+                rank(doc.getString("priority"), doc.getString("createdAt")));
+    }
+
+    // Smaller is served first: creation time, moved earlier by the priority's head start
+    private static long rank(String priority, String createdAt) {
+        long created;
+        try {
+            created = createdAt != null ? LocalDateTime.parse(createdAt).toEpochSecond(ZoneOffset.UTC) * 1000 : 0;
+        } catch (DateTimeParseException e) {
+            created = 0;
+        }
+        long headStartHours = PRIORITY_HEAD_START_HOURS.getOrDefault(
+                priority != null ? priority.toLowerCase(Locale.ROOT) : "", 0L);
+        return created - headStartHours * 3_600_000L;
+    }
+
+    private static final class WorkItem {
+        final String complaintId;
+        final String department;
+        final long rank;
+
+        WorkItem(String complaintId, String department, long rank) {
+            this.complaintId = complaintId;
+            this.department = department;
+            this.rank = rank;
+        }
+    }
+
+    private static final class Lease {
+        final WorkItem item;
+        final String officerId;
+        long expiresAt;
+
+        Lease(WorkItem item, String officerId, long expiresAt) {
+            this.item = item;
+            this.officerId = officerId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
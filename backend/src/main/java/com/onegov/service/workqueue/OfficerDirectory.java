@@ -0,0 +1,61 @@
+package com.onegov.service.workqueue;
+
+import com.onegov.service.FirebaseService;
+import com.onegov.service.storage.StoredDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Active officers by department, reloaded every workqueue.officer-refresh-ms for routing and assignment
+@Component
+public class OfficerDirectory {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    private static final String OFFICERS_COLLECTION = "officers";
+
+    private volatile Map<String, String> departmentOf = Collections.emptyMap();
+    private volatile Map<String, List<String>> activeByDepartment = Collections.emptyMap();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${workqueue.officer-refresh-ms:60000}",
+            initialDelayString = "${workqueue.officer-refresh-ms:60000}")
+    public void refresh() {
+        try {
+            Map<String, String> departments = new HashMap<>();
+            Map<String, List<String>> byDepartment = new HashMap<>();
+            for (StoredDocument doc : firebaseService.queryDocuments(OFFICERS_COLLECTION, "status", "active")) {
+                String department = ComplaintWorkQueue.normalizeDepartment(doc.getString("department"));
+                departments.put(doc.getId(), department);
+                byDepartment.computeIfAbsent(department, d -> new ArrayList<>()).add(doc.getId());
+            }
+            byDepartment.values().forEach(Collections::sort);
+            departmentOf = departments;
+            activeByDepartment = byDepartment;
+        } catch (Exception e) {
+            System.err.println("Officer directory refresh failed, keeping previous: " + e.getMessage());
+        }
+    }
+
+    // Null for officers that are unknown or inactive
+    public String departmentOf(String officerId) {
+        return officerId != null ? departmentOf.get(officerId) : null;
+    }
+
+    public List<String> activeOfficers(String department) {
+        return activeByDepartment.getOrDefault(department, Collections.emptyList());
+    }
+}
@@ -0,0 +1,77 @@
+package com.onegov.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Minimal RFC 4180 reader: first row is the header, fields may be quoted, "" escapes a quote
+public final class CsvReader {
+
+    private CsvReader() {
+    }
+
+    public static List<Map<String, String>> read(String text) {
+        List<List<String>> rows = parse(text);
+        List<Map<String, String>> records = new ArrayList<>();
+        if (rows.isEmpty()) {
+            return records;
+        }
+        List<String> header = rows.get(0);
+        for (int r = 1; r < rows.size(); r++) {
+            List<String> row = rows.get(r);
+            if (row.size() == 1 && row.get(0).isEmpty()) {
+                continue; // blank line
+            }
+            Map<String, String> record = new LinkedHashMap<>();
+            for (int c = 0; c < header.size(); c++) {
+                record.put(header.get(c).trim(), c < row.size() ? row.get(c) : "");
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static List<List<String>> parse(String text) {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = text.startsWith("\uFEFF") ? 1 : 0;
+        for (; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                row.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                row.add(field.toString());
+                field.setLength(0);
+                rows.add(row);
+                row = new ArrayList<>();
+            } else {
+                field.append(ch);
+            }
+        }
+        if (field.length() > 0 || !row.isEmpty()) {
+            row.add(field.toString());
+            rows.add(row);
+        }
+        return rows;
+    }
+}
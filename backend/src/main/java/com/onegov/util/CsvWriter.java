@@ -0,0 +1,43 @@
+package com.onegov.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+// RFC 4180 counterpart of CsvReader: fields with a comma, quote or line break are quoted, quotes doubled
+public final class CsvWriter {
+
+    private CsvWriter() {
+    }
+
+    // Numbers and booleans are written as they are, everything else as text
+    public static void writeRow(Writer out, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object value = values.get(i);
+            if (value instanceof Number || value instanceof Boolean) {
+                out.write(value.toString());
+            } else {
+                out.write(escape(value != null ? value.toString() : null));
+            }
+        }
+        out.write("\r\n");
+    }
+
+    static String escape(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        // Spreadsheets run cells starting with these as formulas; exported text must stay text
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
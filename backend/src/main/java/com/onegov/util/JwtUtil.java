@@ -1,28 +1,45 @@
 package com.onegov.util;
 
-import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    // Scope claim of tokens that may only open the update stream, see generateStreamToken
+    public static final String STREAM_SCOPE = "stream";
 
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    private final Long expiration;
+    private final long streamTokenExpiration;
+    private final int claimsCacheMaxEntries;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    // Built once; both are immutable and thread-safe
+    private final Key signingKey;
+    private final JwtParser parser;
+
+    // token -> verified claims, so each token's signature is checked once until it expires
+    private final ConcurrentHashMap<String, TokenClaims> claimsCache = new ConcurrentHashMap<>();
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") Long expiration,
+                   @Value("${jwt.stream-token.expiration:60000}") long streamTokenExpiration,
+                   @Value("${jwt.claims-cache.max-entries:10000}") int claimsCacheMaxEntries) {
+        this.expiration = expiration;
+        this.streamTokenExpiration = streamTokenExpiration;
+        this.claimsCacheMaxEntries = claimsCacheMaxEntries;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
     public String generateToken(String userId, String email, String role) {
@@ -30,38 +47,78 @@ public class JwtUtil {
         claims.put("userId", userId);
         claims.put("email", email);
         claims.put("role", role);
-        
+
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(userId)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    // Short-lived token for EventSource, which cannot send headers: it travels in the stream URL, so it
+    // only opens /api/updates/stream (JwtAuthenticationFilter refuses it anywhere else) and expires quickly
+    public String generateStreamToken(TokenClaims session) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", session.getUserId());
+        claims.put("email", session.getEmail());
+        claims.put("role", session.getRole());
+        claims.put("scope", STREAM_SCOPE);
+
+        return Jwts.builder()
+                .setClaims(claims)
+                .setSubject(session.getUserId())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + streamTokenExpiration))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public long getStreamTokenExpiration() {
+        return streamTokenExpiration;
+    }
+
+    // Verifies the token (or reuses an earlier verification); throws JwtException if invalid or expired
+    public TokenClaims extractClaims(String token) {
+        TokenClaims cached = claimsCache.get(token);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return cached;
+            }
+            claimsCache.remove(token);
+        }
+
+        TokenClaims claims = parseClaims(token);
+        if (claimsCache.size() >= claimsCacheMaxEntries) {
+            purgeExpiredClaims();
+        }
+        // Still full means every entry is live; skip caching rather than evict a live token
+        if (claimsCache.size() < claimsCacheMaxEntries) {
+            claimsCache.put(token, claims);
+        }
+        return claims;
+    }
+
+    // Full signature check and parse, bypassing the cache
+    TokenClaims parseClaims(String token) {
+        return new TokenClaims(parser.parseClaimsJws(token).getBody());
     }
 
     public String extractUserId(String token) {
-        return extractClaims(token).getSubject();
+        return extractClaims(token).getUserId();
     }
 
     public String extractEmail(String token) {
-        return (String) extractClaims(token).get("email");
+        return extractClaims(token).getEmail();
     }
 
     public String extractRole(String token) {
-        return (String) extractClaims(token).get("role");
+        return extractClaims(token).getRole();
     }
 
     public boolean isTokenExpired(String token) {
-        return extractClaims(token).getExpiration().before(new Date());
+        return extractClaims(token).isExpired();
     }
 
     public boolean validateToken(String token) {
@@ -71,4 +128,9 @@ public class JwtUtil {
             return false;
         }
     }
+
+    @Scheduled(fixedDelayString = "${jwt.claims-cache.purge-interval-ms:60000}")
+    public void purgeExpiredClaims() {
+        claimsCache.values().removeIf(TokenClaims::isExpired);
+    }
 }
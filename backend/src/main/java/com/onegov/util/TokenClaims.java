@@ -0,0 +1,54 @@
+package com.onegov.util;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+// Immutable view of a verified token's claims; safe to share between requests
+public final class TokenClaims {
+
+    private final String userId;
+    private final String email;
+    private final String role;
+    private final String scope;
+    private final Instant issuedAt;
+    private final Instant expiresAt;
+
+    TokenClaims(Claims claims) {
+        this.userId = claims.getSubject();
+        this.email = claims.get("email", String.class);
+        this.role = claims.get("role", String.class);
+        this.scope = claims.get("scope", String.class);
+        this.issuedAt = claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null;
+        this.expiresAt = claims.getExpiration().toInstant();
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    // Stream tokens (JwtUtil.generateStreamToken) authenticate the update stream and nothing else
+    public boolean isStreamToken() {
+        return JwtUtil.STREAM_SCOPE.equals(scope);
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return !Instant.now().isBefore(expiresAt);
+    }
+}
@@ -0,0 +1,90 @@
+package com.onegov.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Generates tracking ids as prefix + 13 Crockford base32 characters, e.g. APP0J4QZ8M2X1K7C.
+ * The encoded value is 41 bits of milliseconds since EPOCH_MILLIS, 10 bits of node id and
+ * 12 bits of per-millisecond sequence, so ids never collide within one node (up to 4096 per
+ * millisecond) or across nodes with distinct tracking.node-id values.
+ */
+@Component
+public class TrackingIdGenerator {
+
+    // 2024-01-01T00:00:00Z; 41 bits of milliseconds last until 2093
+    static final long EPOCH_MILLIS = 1704067200000L;
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    // Crockford base32: no I, L, O or U, so ids survive being read out or retyped
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    private final long nodeId;
+    private long lastTimestamp = -1L;
+    private long sequence;
+
+    public TrackingIdGenerator(@Value("${tracking.node-id:-1}") long configuredNodeId) {
+        if (configuredNodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("tracking.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        if (configuredNodeId >= 0) {
+            this.nodeId = configuredNodeId;
+        } else {
+            this.nodeId = deriveNodeId();
+            // Hostname hashes can collide in 1024 slots without any sign of it, so say which one was picked
+            System.err.println("tracking.node-id not set, derived node id " + nodeId + " from the hostname. "
+                    + "Set tracking.node-id (ONEGOV_NODE_ID) to a distinct value per instance in production.");
+        }
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    public String nextId(String prefix) {
+        return prefix + encode(nextValue());
+    }
+
+    // Monotonic per node: if the wall clock steps back, keep issuing from the last timestamp;
+    // when a millisecond's sequence is used up, borrow the next millisecond instead of sleeping
+    synchronized long nextValue() {
+        long now = Math.max(System.currentTimeMillis() - EPOCH_MILLIS, lastTimestamp);
+        if (now == lastTimestamp) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                now = lastTimestamp + 1;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = now;
+        return (now << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    static String encode(long value) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    // Fallback for single-instance and local setups only: two hosts can hash to the same node id, and then
+    // their ids can collide. Production deployments must set tracking.node-id, one value per instance
+    private static long deriveNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName().hashCode() & MAX_NODE_ID;
+        } catch (UnknownHostException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.onegov.service;
+
+import com.onegov.exception.VersionConflictException;
+import com.onegov.service.storage.InMemoryStorageEngine;
+import com.onegov.service.storage.StoredDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersionedUpdaterTest {
+
+    private static final String COLLECTION = "applications";
+    private static final String ID = "app-1";
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 200;
+
+    private InMemoryStorageEngine store;
+    private EntityCache cache;
+    private VersionedUpdater updater;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryStorageEngine("userId,trackingId,email,status", 0);
+        cache = new EntityCache(1000, 30, 3600, "");
+        ReflectionTestUtils.setField(cache, "firebaseService", store);
+        updater = new VersionedUpdater(3);
+        ReflectionTestUtils.setField(updater, "firebaseService", store);
+        ReflectionTestUtils.setField(updater, "entityCache", cache);
+
+        Map<String, Object> application = new HashMap<>();
+        application.put("status", "under_review");
+        application.put("count", 0L);
+        store.createDocument(COLLECTION, ID, application);
+    }
+
+    @Test
+    void concurrentUpdatesNeverLoseAWrite() throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger conflicted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                        try {
+                            updater.update(COLLECTION, ID, null, "status", "Application not found",
+                                    current -> Map.of("count", current.getLong("count") + 1));
+                            succeeded.incrementAndGet();
+                        } catch (VersionConflictException e) {
+                            // Out of attempts; allowed, as long as nothing was written
+                            conflicted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        StoredDocument stored = store.getDocument(COLLECTION, ID);
+        assertEquals(THREADS * UPDATES_PER_THREAD, succeeded.get() + conflicted.get());
+        assertEquals(succeeded.get(), stored.getVersion());
+        assertEquals(succeeded.get(), stored.getLong("count"));
+    }
+
+    @Test
+    void movedStatusIsAConflictCarryingTheCurrentRecord() {
+        AtomicInteger calls = new AtomicInteger();
+        String[] concurrentStatuses = {"approved", "rejected"};
+
+        VersionConflictException e = assertThrows(VersionConflictException.class, () ->
+                updater.update(COLLECTION, ID, null, "status", "Application not found", current -> {
+                    // Another officer decides the record between our read and our write, twice
+                    int call = calls.getAndIncrement();
+                    if (call < concurrentStatuses.length) {
+                        moveStatus(current, concurrentStatuses[call]);
+                    }
+                    return Map.of("remarks", "checked");
+                }));
+
+        StoredDocument stored = store.getDocument(COLLECTION, ID);
+        assertEquals("rejected", e.getCurrent().get("status"));
+        assertEquals(stored.getVersion(), ((Number) e.getCurrent().get(StoredDocument.VERSION_FIELD)).longValue());
+        assertEquals(null, stored.get("remarks"));
+    }
+
+    @Test
+    void pinnedStaleVersionIsAConflictCarryingTheCurrentRecord() throws Exception {
+        updater.update(COLLECTION, ID, null, "status", "Application not found", current -> Map.of("status", "approved"));
+
+        VersionConflictException e = assertThrows(VersionConflictException.class, () ->
+                updater.update(COLLECTION, ID, 0L, "status", "Application not found",
+                        current -> Map.of("status", "rejected")));
+
+        assertEquals("approved", e.getCurrent().get("status"));
+        assertEquals(1L, ((Number) e.getCurrent().get(StoredDocument.VERSION_FIELD)).longValue());
+        assertEquals("approved", store.getDocument(COLLECTION, ID).getString("status"));
+    }
+
+    @Test
+    void staleCachedCopyDoesNotCauseAConflict() throws Exception {
+        cache.getDocument(COLLECTION, ID);
+        // Decided elsewhere before this request; the cached copy still says under_review
+        moveStatus(store.getDocument(COLLECTION, ID), "approved");
+
+        StoredDocument after = updater.update(COLLECTION, ID, null, "status", "Application not found",
+                current -> Map.of("remarks", "checked")).getAfter();
+
+        assertEquals("approved", after.getString("status"));
+        assertEquals("checked", after.getString("remarks"));
+        assertTrue(updater.getRetried() > 0);
+        assertEquals(0, updater.getConflicts());
+    }
+
+    private void moveStatus(StoredDocument basis, String status) {
+        try {
+            StoredDocument latest = store.getDocument(COLLECTION, basis.getId());
+            store.updateDocumentIfVersion(COLLECTION, basis.getId(), latest.getVersion(), Map.of("status", status));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.onegov.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrackingIdGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void oneNodeNeverRepeatsAcrossThreads() throws Exception {
+        TrackingIdGenerator generator = new TrackingIdGenerator(7);
+
+        Set<String> ids = generateConcurrently(List.of(generator));
+
+        // Far more than 4096 ids per millisecond, so the sequence also wraps into borrowed milliseconds
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    void severalNodesNeverCollide() throws Exception {
+        List<TrackingIdGenerator> generators = List.of(
+                new TrackingIdGenerator(0), new TrackingIdGenerator(1),
+                new TrackingIdGenerator(512), new TrackingIdGenerator(TrackingIdGenerator.MAX_NODE_ID));
+
+        Set<String> ids = generateConcurrently(generators);
+
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    void idsArePrefixedAndFixedLength() {
+        String id = new TrackingIdGenerator(3).nextId("APP");
+
+        assertTrue(id.startsWith("APP"));
+        assertEquals(16, id.length());
+        assertTrue(id.substring(3).matches("[0-9A-HJKMNP-TV-Z]{13}"), id);
+    }
+
+    @Test
+    void rejectsNodeIdsOutsideTheNodeBits() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TrackingIdGenerator(TrackingIdGenerator.MAX_NODE_ID + 1));
+    }
+
+    // THREADS threads, spread round-robin over the generators, start together and each take IDS_PER_THREAD ids
+    private static Set<String> generateConcurrently(List<TrackingIdGenerator> generators) throws Exception {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                TrackingIdGenerator generator = generators.get(t % generators.size());
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        ids.add(generator.nextId("APP"));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return ids;
+    }
+}
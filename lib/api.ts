@@ -4,7 +4,46 @@ const API_BASE_URL = 'http://localhost:8080/api'
 
 // Helper function for API calls
 async function apiCall(endpoint: string, options: RequestInit = {}) {
-  const token = localStorage.getItem('authToken')
+  const response = await apiFetch(endpoint, options)
+  return response.json()
+}
+
+// List endpoints return one page of rows; the cursor for the next page comes back in the
+// X-Next-Cursor header (none on the last page). Pass it as startAfter to load the next page.
+export interface ListParams {
+  status?: string
+  department?: string
+  limit?: number
+  startAfter?: string | null
+}
+
+export interface Page<T = any> {
+  items: T[]
+  nextCursor: string | null
+}
+
+async function apiPage(endpoint: string, params: ListParams = {}): Promise<Page> {
+  const query = new URLSearchParams()
+  Object.entries(params).forEach(([key, value]) => {
+    if (value !== undefined && value !== null && value !== '') {
+      query.set(key, String(value))
+    }
+  })
+  const response = await apiFetch(query.toString() ? `${endpoint}?${query}` : endpoint)
+  const items = await response.json()
+  return {
+    items: Array.isArray(items) ? items : [],
+    nextCursor: response.headers.get('X-Next-Cursor'),
+  }
+}
+
+async function apiFetch(endpoint: string, options: RequestInit = {}) {
+  // Officer and admin endpoints are role-checked by the backend, so send the matching session's token
+  const token = endpoint.startsWith('/officer/')
+    ? localStorage.getItem('officerToken')
+    : endpoint.startsWith('/admin/')
+      ? localStorage.getItem('adminToken')
+      : localStorage.getItem('authToken')
   
   const headers: HeadersInit = {
     'Content-Type': 'application/json',
@@ -22,7 +61,17 @@ async function apiCall(endpoint: string, options: RequestInit = {}) {
     throw new Error(error.message || 'Request failed')
   }
 
-  return response.json()
+  return response
+}
+
+// Server-Sent Events: the backend pushes { status, previousStatus, record, ... } whenever a
+// tracked record changes. EventSource reconnects on its own; call the returned function to stop.
+function openUpdateStream(endpoint: string, onUpdate: (update: any) => void) {
+  const source = new EventSource(`${API_BASE_URL}${endpoint}`)
+  source.addEventListener('status', (event) => {
+    onUpdate(JSON.parse((event as MessageEvent).data))
+  })
+  return () => source.close()
 }
 
 // ============================================
@@ -176,6 +225,11 @@ export const healthServicesAPI = {
     return { service }
   },
 
+  // Live status updates for a tracking ID (replaces re-tracking)
+  watch: (trackingId: string, onUpdate: (update: any) => void) => {
+    return openUpdateStream(`/health-services/track/${trackingId}/stream`, onUpdate)
+  },
+
   // Get user's services
   getUserServices: async (userId: string) => {
     const services = await apiCall(`/health-services/user/${userId}`)
@@ -305,6 +359,11 @@ export const applicationsAPI = {
     return { application }
   },
 
+  // Live status updates for a tracking ID (replaces re-tracking)
+  watch: (trackingId: string, onUpdate: (update: any) => void) => {
+    return openUpdateStream(`/applications/track/${trackingId}/stream`, onUpdate)
+  },
+
   // Get user's applications
   getUserApplications: async (userId: string) => {
     const applications = await apiCall(`/applications/user/${userId}`)
@@ -349,6 +408,11 @@ export const complaintsAPI = {
     return apiCall(`/complaints/track/${trackingId}`)
   },
 
+  // Live status updates for a tracking ID (replaces re-tracking)
+  watch: (trackingId: string, onUpdate: (update: any) => void) => {
+    return openUpdateStream(`/complaints/track/${trackingId}/stream`, onUpdate)
+  },
+
   // Get user's complaints
   getUserComplaints: async (userId: string) => {
     return apiCall(`/complaints/user/${userId}`)
@@ -397,9 +461,9 @@ export const officerAPI = {
     })
   },
 
-  // Get all applications
-  getApplications: async () => {
-    return apiCall('/officer/applications')
+  // One page of applications, newest first
+  getApplications: async (params: ListParams = {}) => {
+    return apiPage('/officer/applications', params)
   },
 
   // Update application status
@@ -414,9 +478,14 @@ export const officerAPI = {
     })
   },
 
-  // Get all complaints
-  getComplaints: async () => {
-    return apiCall('/officer/complaints')
+  // One page of the officer's department's complaints, newest first
+  getComplaints: async (params: ListParams = {}) => {
+    return apiPage('/officer/complaints', params)
+  },
+
+  // Application and complaint totals per status, from the backend's counters (all departments)
+  getStatusCounters: async () => {
+    return apiCall('/officer/stats/counters')
   },
 
   // Update complaint status
@@ -496,9 +565,9 @@ export const adminAPI = {
     })
   },
 
-  // Citizen Management
-  getAllCitizens: async () => {
-    return apiCall('/admin/citizens')
+  // Citizen Management (one page at a time; totals come from getSystemStats)
+  getAllCitizens: async (params: ListParams = {}) => {
+    return apiPage('/admin/citizens', params)
   },
 
   updateCitizenStatus: async (userId: string, status: string) => {
@@ -509,17 +578,64 @@ export const adminAPI = {
   },
 
   // Application & Complaint Management
-  getAllApplications: async () => {
-    return apiCall('/admin/applications')
+  getAllApplications: async (params: ListParams = {}) => {
+    return apiPage('/admin/applications', params)
   },
 
-  getAllComplaints: async () => {
-    return apiCall('/admin/complaints')
+  getAllComplaints: async (params: ListParams = {}) => {
+    return apiPage('/admin/complaints', params)
+  },
+}
+
+// ============================================
+// 9. MY UPDATES (live status of everything the signed-in citizen has filed)
+// ============================================
+export const updatesAPI = {
+  // EventSource cannot send the Authorization header, so swap the session token for a
+  // short-lived stream token and pass that in the URL. A stream token only opens this stream.
+  getStreamToken: async () => {
+    return apiCall('/updates/stream-token', { method: 'POST' })
+  },
+
+  // Every reconnect fetches a fresh stream token: the one in the old URL has usually expired,
+  // and the backend would refuse it. Call the returned function to stop.
+  watchMine: (onUpdate: (update: any) => void) => {
+    let source: EventSource | null = null
+    let retryTimer: ReturnType<typeof setTimeout> | null = null
+    let stopped = false
+
+    const reconnect = () => {
+      if (!stopped) retryTimer = setTimeout(connect, 3000)
+    }
+
+    const connect = async () => {
+      try {
+        const { token } = await updatesAPI.getStreamToken()
+        if (stopped) return
+        source = new EventSource(`${API_BASE_URL}/updates/stream?token=${encodeURIComponent(token)}`)
+        source.addEventListener('status', (event) => {
+          onUpdate(JSON.parse((event as MessageEvent).data))
+        })
+        source.onerror = () => {
+          source?.close()
+          reconnect()
+        }
+      } catch {
+        reconnect()
+      }
+    }
+
+    connect()
+    return () => {
+      stopped = true
+      if (retryTimer) clearTimeout(retryTimer)
+      source?.close()
+    }
   },
 }
 
 // ============================================
-// 9. TEST API
+// 10. TEST API
 // ============================================
 export const testAPI = {
   hello: async () => {